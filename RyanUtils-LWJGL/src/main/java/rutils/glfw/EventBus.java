@@ -2,7 +2,11 @@ package rutils.glfw;
 
 import rutils.ClassUtil;
 import rutils.Logger;
+import rutils.concurrent.Signal;
+import rutils.concurrent.WaitStrategy;
 import rutils.glfw.event.Event;
+import rutils.profiler.Metric;
+import rutils.profiler.Metrics;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -21,6 +25,9 @@ public class EventBus
 {
     private static final Logger LOGGER = new Logger();
     
+    private static final Metric.Counter POSTED   = Metrics.counter("EventBus.posted");
+    private static final Metric.Timer   DISPATCH = Metrics.timer("EventBus.dispatch");
+    
     private static final AtomicInteger maxID = new AtomicInteger(0);
     
     private final Map<Integer, IEventListener>                            wrappedCache       = new HashMap<>();
@@ -35,6 +42,9 @@ public class EventBus
     
     private final Queue<Event> eventQueue = new ConcurrentLinkedQueue<>();
     
+    private final    Signal       signal       = new Signal();
+    private volatile WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+    
     private final Thread thread;
     
     public EventBus(boolean trackPhases)
@@ -54,6 +64,8 @@ public class EventBus
                     
                     Set<IEventListener> listeners = this.eventListeners.computeIfAbsent(event.getClass(), this::computeListeners);
                     
+                    long start = EventBus.DISPATCH.start();
+                    
                     int index = 0;
                     try
                     {
@@ -78,8 +90,12 @@ public class EventBus
                         EventBus.LOGGER.severe(builder.toString());
                         throw throwable;
                     }
+                    finally
+                    {
+                        EventBus.DISPATCH.stop(start);
+                    }
                 }
-                Thread.yield();
+                this.waitStrategy.await(this.signal);
             }
         }, "EventBus");
     }
@@ -94,6 +110,7 @@ public class EventBus
     {
         EventBus.LOGGER.fine("EventBus %s shutting down - future events will not be posted.", this.busID);
         this.shutdown = true;
+        this.signal.signal();
         try
         {
             this.thread.join();
@@ -101,6 +118,27 @@ public class EventBus
         catch (InterruptedException ignored) { }
     }
     
+    /**
+     * @return How the dispatch thread waits for events.
+     */
+    public WaitStrategy waitStrategy()
+    {
+        return this.waitStrategy;
+    }
+    
+    /**
+     * Sets how the dispatch thread waits for events.
+     *
+     * @param waitStrategy The new wait strategy.
+     */
+    public void waitStrategy(WaitStrategy waitStrategy)
+    {
+        EventBus.LOGGER.finest("Setting EventBus Wait Strategy:", waitStrategy);
+        
+        this.waitStrategy = waitStrategy;
+        this.signal.signal();
+    }
+    
     public void register(final Object target)
     {
         if (this.objectListeners.containsKey(target)) return;
@@ -134,6 +172,9 @@ public class EventBus
         if (this.shutdown) return;
         
         this.eventQueue.offer(event);
+        this.signal.signal();
+        
+        EventBus.POSTED.increment();
     }
     
     private void registerClass(final Class<?> clazz)
@@ -12,6 +12,7 @@ import org.lwjgl.system.MemoryUtil;
 import rutils.IOUtil;
 import rutils.Logger;
 import rutils.TaskDelegator;
+import rutils.concurrent.Signal;
 import rutils.glfw.event.EventJoystickConnected;
 import rutils.glfw.event.EventJoystickDisconnected;
 import rutils.glfw.event.EventMonitorConnected;
@@ -33,6 +34,16 @@ public final class GLFW
     
     private static final Map<Integer, String> ERROR_CODES = APIUtil.apiClassTokens((field, value) -> 0x10000 < value && value < 0x20000, null, org.lwjgl.glfw.GLFW.class);
     
+    /**
+     * The longest time in seconds that the event loop will wait for events.
+     */
+    private static final double EVENT_TIMEOUT = 0.1;
+    
+    /**
+     * The time in seconds between joystick polls while a joystick is connected.
+     */
+    private static final double JOYSTICK_POLL_RATE = 0.001;
+    
     private static boolean initialized = false;
     
     public static TaskDelegator TASK_DELEGATOR;
@@ -88,7 +99,14 @@ public final class GLFW
         
         if (!glfwInit()) throw new IllegalStateException("Unable to initialize GLFW");
         
-        GLFW.TASK_DELEGATOR = new TaskDelegator();
+        GLFW.TASK_DELEGATOR = new TaskDelegator(new Signal()
+        {
+            @Override
+            protected void wake(@Nullable Thread waiter)
+            {
+                glfwPostEmptyEvent();
+            }
+        });
         GLFW.TASK_DELEGATOR.setThread();
         
         GLFW.EVENT_BUS = new EventBus(true);
@@ -160,9 +178,11 @@ public final class GLFW
     /**
      * Processes all pending events.
      * <p>
-     * This function processes only those events that are already in the event
-     * queue and then returns immediately. Processing events will cause the
-     * window and input callbacks associated with those events to be called.
+     * This function waits until there are events in the event queue or a
+     * task is passed to {@link #TASK_DELEGATOR}, then processes them. While a
+     * joystick is connected it wakes up regularly to poll it. Processing
+     * events will cause the window and input callbacks associated with those
+     * events to be called.
      * <p>
      * On some platforms, a window move, resize or menu operation will cause
      * event processing to block. This is due to how event processing is
@@ -183,7 +203,14 @@ public final class GLFW
     {
         while (GLFW.WINDOWS.size() > 1)
         {
-            glfwPollEvents();
+            if (GLFW.TASK_DELEGATOR.signal().clear() || GLFW.TASK_DELEGATOR.deferredTasks() > 0)
+            {
+                glfwPollEvents();
+            }
+            else
+            {
+                glfwWaitEventsTimeout(GLFW.JOYSTICKS.isEmpty() ? GLFW.EVENT_TIMEOUT : GLFW.JOYSTICK_POLL_RATE);
+            }
             
             // -------------------- Joystick Callback Emulation -------------------- //
             {
@@ -269,8 +296,6 @@ public final class GLFW
             GLFW.TASK_DELEGATOR.runTasks();
             
             GLFW.WINDOWS.values().removeIf(window -> !window.isOpen());
-            
-            Thread.yield();
         }
     }
     
@@ -573,6 +598,7 @@ public final class GLFW
         Joystick joystick = GLFW.JOYSTICKS.get(jid);
         
         joystick.axisStateChanges.offer(new Pair<>(axis, value));
+        joystick.signal.signal();
     }
     
     private static void joystickButtonCallback(int jid, int button, int action)
@@ -580,6 +606,7 @@ public final class GLFW
         Joystick joystick = GLFW.JOYSTICKS.get(jid);
         
         joystick.buttonStateChanges.offer(new Pair<>(button, action));
+        joystick.signal.signal();
     }
     
     private static void joystickHatCallback(int jid, int hat, int action)
@@ -587,6 +614,7 @@ public final class GLFW
         Joystick joystick = GLFW.JOYSTICKS.get(jid);
         
         joystick.hatStateChanges.offer(new Pair<>(hat, action));
+        joystick.signal.signal();
     }
     
     private static void windowCloseCallback(long handle)
@@ -594,6 +622,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._close = true;
+        window.signal.signal();
     }
     
     private static void windowFocusCallback(long handle, boolean focused)
@@ -601,6 +630,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._focused = focused;
+        window.signal.signal();
     }
     
     private static void windowIconifyCallback(long handle, boolean iconified)
@@ -608,6 +638,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._iconified = iconified;
+        window.signal.signal();
     }
     
     private static void windowMaximizeCallback(long handle, boolean maximized)
@@ -615,6 +646,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._maximized = maximized;
+        window.signal.signal();
     }
     
     private static void windowRefreshCallback(long handle)
@@ -622,6 +654,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._refresh = true;
+        window.signal.signal();
     }
     
     private static void windowPosCallback(long handle, int x, int y)
@@ -629,6 +662,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._pos.set(x, y);
+        window.signal.signal();
     }
     
     private static void windowSizeCallback(long handle, int width, int height)
@@ -636,6 +670,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._size.set(width, height);
+        window.signal.signal();
     }
     
     private static void windowContentScaleCallback(long handle, float xScale, float yScale)
@@ -643,6 +678,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._scale.set(xScale, yScale);
+        window.signal.signal();
     }
     
     private static void framebufferSizeCallback(long handle, int width, int height)
@@ -650,6 +686,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         window._fbSize.set(width, height);
+        window.signal.signal();
     }
     
     private static void dropCallback(long handle, int count, long names)
@@ -659,6 +696,7 @@ public final class GLFW
         window._dropped = new String[count];
         PointerBuffer charPointers = MemoryUtil.memPointerBuffer(names, count);
         for (int i = 0; i < count; i++) window._dropped[i] = MemoryUtil.memUTF8(charPointers.get(i));
+        window.signal.signal();
     }
     
     private static void mouseEnteredCallback(long handle, boolean entered)
@@ -666,6 +704,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         GLFW.MOUSE._enteredChanges.offer(new Pair<>(window, entered));
+        GLFW.MOUSE.signal.signal();
     }
     
     private static void mousePosCallback(long handle, double x, double y)
@@ -676,6 +715,7 @@ public final class GLFW
         
         GLFW.MOUSE._pos.set(x, y);
         GLFW.MOUSE._posW = window;
+        GLFW.MOUSE.signal.signal();
     }
     
     private static void scrollCallback(long handle, double dx, double dy)
@@ -686,6 +726,7 @@ public final class GLFW
         
         GLFW.MOUSE._scroll.add(dx, dy);
         GLFW.MOUSE._scrollW = window;
+        GLFW.MOUSE.signal.signal();
     }
     
     private static void mouseButtonCallback(long handle, int button, int action, int mods)
@@ -693,6 +734,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         GLFW.MOUSE.buttonStateChanges.offer(new Triple<>(window, Mouse.Button.get(button), action));
+        GLFW.MOUSE.signal.signal();
         
         Modifier.updateMods(mods);
     }
@@ -702,6 +744,7 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         GLFW.KEYBOARD.keyStateChanges.offer(new Triple<>(window, Keyboard.Key.get(key, scancode), action));
+        GLFW.KEYBOARD.signal.signal();
         
         Modifier.updateMods(mods);
     }
@@ -711,5 +754,6 @@ public final class GLFW
         Window window = GLFW.WINDOWS.get(handle);
         
         GLFW.KEYBOARD._charChanges.offer(new Pair<>(window, Character.toString(codePoint)));
+        GLFW.KEYBOARD.signal.signal();
     }
 }
@@ -1,8 +1,11 @@
 package rutils.glfw;
 
 import rutils.Logger;
+import rutils.concurrent.Signal;
+import rutils.concurrent.WaitStrategy;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
 
 public abstract class InputDevice
 {
@@ -51,7 +54,14 @@ public abstract class InputDevice
         InputDevice.doublePressedDelay = (long) (doublePressedDelay * 1_000_000_000L);
     }
     
-    private boolean running;
+    private volatile boolean running;
+    
+    /**
+     * Raised by the GLFW callbacks whenever there is new input to process.
+     */
+    protected final Signal signal = new Signal();
+    
+    private volatile WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
     
     protected final CountDownLatch threadStart;
     private final   Thread         thread;
@@ -83,19 +93,54 @@ public abstract class InputDevice
             t  = System.nanoTime();
             dt = t - last;
             
+            if (dt < 100_000)
+            {
+                LockSupport.parkNanos(this, 100_000 - dt);
+                continue;
+            }
+            
             try
             {
-                if (dt >= 100_000) postEvents(last = t, dt);
+                postEvents(last = t, dt);
             }
             catch (Throwable throwable)
             {
                 InputDevice.LOGGER.severe(throwable);
             }
             
-            Thread.yield();
+            // Held events are generated on a timer, so only sleep until the next one is due.
+            if (holding())
+            {
+                this.waitStrategy.await(this.signal, InputDevice.holdFrequency);
+            }
+            else
+            {
+                this.waitStrategy.await(this.signal);
+            }
         }
     }
     
+    /**
+     * @return How the polling thread waits for new input.
+     */
+    public WaitStrategy waitStrategy()
+    {
+        return this.waitStrategy;
+    }
+    
+    /**
+     * Sets how the polling thread waits for new input.
+     *
+     * @param waitStrategy The new wait strategy.
+     */
+    public void waitStrategy(WaitStrategy waitStrategy)
+    {
+        InputDevice.LOGGER.finest("Setting InputDevice Wait Strategy:", waitStrategy);
+        
+        this.waitStrategy = waitStrategy;
+        this.signal.signal();
+    }
+    
     /**
      * This method is called by the window it is attached to. This is where
      * events should be posted to when something has changed.
@@ -105,6 +150,11 @@ public abstract class InputDevice
      */
     protected abstract void postEvents(long time, long deltaTime);
     
+    /**
+     * @return If any input is currently held down.
+     */
+    protected abstract boolean holding();
+    
     public void destroy()
     {
         this.running = false;
@@ -199,6 +199,13 @@ public class Joystick extends InputDevice
         }
     }
     
+    @Override
+    protected boolean holding()
+    {
+        for (Input input : this.buttonMap.values()) if (input.held) return true;
+        return false;
+    }
+    
     protected void postAxisEvent(int axis, double value, double delta)
     {
         GLFW.EVENT_BUS.post(EventJoystickAxis.create(this, axis, value, delta));
@@ -131,6 +131,13 @@ public class Keyboard extends InputDevice
         }
     }
     
+    @Override
+    protected boolean holding()
+    {
+        for (Input input : this.keyMap.values()) if (input.held) return true;
+        return false;
+    }
+    
     public enum Key
     {
         UNKNOWN(GLFW_KEY_UNKNOWN),
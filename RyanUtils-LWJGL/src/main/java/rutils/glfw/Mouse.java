@@ -563,6 +563,13 @@ public class Mouse extends InputDevice
         }
     }
     
+    @Override
+    protected boolean holding()
+    {
+        for (ButtonInput input : this.buttonMap.values()) if (input.held) return true;
+        return false;
+    }
+    
     static final class ButtonInput extends Input
     {
         final Vector2d click  = new Vector2d();
@@ -5,6 +5,8 @@ import org.lwjgl.glfw.GLFWImage;
 import org.lwjgl.system.MemoryStack;
 import rutils.Logger;
 import rutils.TaskDelegator;
+import rutils.concurrent.Signal;
+import rutils.concurrent.WaitStrategy;
 import rutils.glfw.event.*;
 
 import java.nio.FloatBuffer;
@@ -22,7 +24,14 @@ public class Window
 {
     private static final Logger LOGGER = new Logger();
     
-    public final TaskDelegator taskDelegator = new TaskDelegator();
+    /**
+     * Raised whenever the window's thread has something to do.
+     */
+    protected final Signal signal = new Signal();
+    
+    protected volatile WaitStrategy waitStrategy;
+    
+    public final TaskDelegator taskDelegator = new TaskDelegator(this.signal);
     
     protected final String name;
     protected final long   handle;
@@ -86,6 +95,8 @@ public class Window
     {
         this.name = builder.name;
         
+        this.waitStrategy = builder.waitStrategy;
+        
         //noinspection ConstantConditions
         this.handle = GLFW.TASK_DELEGATOR.waitReturnTask(() -> {
             if (builder.setPos) builder.visible(false);
@@ -227,10 +238,10 @@ public class Window
             try (MemoryStack stack = MemoryStack.stackPush())
             {
                 int count = icons.length;
-            
+                
                 GLFWImage.Buffer buffer = new GLFWImage.Buffer(stack.malloc(count * GLFWImage.SIZEOF));
                 for (int i = 0; i < count; i++) buffer.put(i, icons[i]);
-            
+                
                 glfwSetWindowIcon(this.handle, buffer);
             }
         });
@@ -671,6 +682,26 @@ public class Window
     public void vsync(boolean vsync)
     {
         this._vsync = vsync;
+        this.signal.signal();
+    }
+    
+    /**
+     * @return How the window's thread waits when it has nothing to draw.
+     */
+    public WaitStrategy waitStrategy()
+    {
+        return this.waitStrategy;
+    }
+    
+    /**
+     * Sets how the window's thread waits when it has nothing to draw.
+     *
+     * @param waitStrategy The new wait strategy.
+     */
+    public void waitStrategy(WaitStrategy waitStrategy)
+    {
+        this.waitStrategy = waitStrategy;
+        this.signal.signal();
     }
     
     /**
@@ -1020,6 +1051,7 @@ public class Window
     public void close()
     {
         this._close = true;
+        this.signal.signal();
     }
     
     public void onWindowInit(Runnable onWindowInit)
@@ -1030,6 +1062,7 @@ public class Window
     public void onWindowDraw(OnWindowDraw onWindowDraw)
     {
         this.onWindowDraw = onWindowDraw;
+        this.signal.signal();
     }
     
     public void makeCurrent()
@@ -1059,6 +1092,7 @@ public class Window
         }
         
         this.open = false;
+        this.signal.signal();
     }
     
     protected void runInThread()
@@ -1187,9 +1221,15 @@ public class Window
                     }
                 }
                 
-                if (this.onWindowDraw != null) this.onWindowDraw.run(time, dt);
-                
-                Thread.yield();
+                if (this.onWindowDraw != null)
+                {
+                    this.onWindowDraw.run(time, dt);
+                }
+                else
+                {
+                    // Nothing to draw, so sleep until a callback or task needs the thread.
+                    this.waitStrategy.await(this.signal);
+                }
             }
         }
         catch (Throwable cause)
@@ -1233,6 +1273,8 @@ public class Window
         private boolean windowed = true;
         private boolean vsync    = false;
         
+        private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+        
         private String title = null;
         
         private Boolean resizable              = null; // RESIZABLE TRUE TRUE or FALSE
@@ -1427,6 +1469,18 @@ public class Window
             return this;
         }
         
+        /**
+         * This function sets how the window's thread waits when it has nothing to draw.
+         *
+         * @param waitStrategy the wait strategy of the window's thread.
+         * @return This instance for call chaining.
+         */
+        public Builder waitStrategy(WaitStrategy waitStrategy)
+        {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+        
         /**
          * This function sets the initial title of the window.
          *
@@ -0,0 +1,522 @@
+package rutils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IllegalFormatException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * A compact binary log file.
+ * <p>
+ * Instead of a formatted line, each message is stored as the time, the
+ * thread, the level, the logger, the format string and the raw arguments.
+ * Thread names, logger names and format strings are written once and then
+ * referred to by id, and numbers are stored in binary, so nothing is
+ * formatted while the program runs. Only the first {@value #MAX_STRINGS}
+ * strings get an id, so formats built at runtime cannot grow the table
+ * forever. Any after that are written in full each time. Use {@link #decode} or run this class
+ * with {@code <input> [output]} to turn a file back into the same text that
+ * {@link Logger#addLogFile} would have written.
+ * <p>
+ * File layout: the magic number {@code RLOG} and a version byte, followed by
+ * entries that each start with a tag. A {@code STRING} entry defines the next
+ * string id, starting from two. A {@code RECORD} entry holds the zigzag
+ * varint time delta in milliseconds, the thread name id, the level, the
+ * logger name id, the format string id (zero if there is none) and the tagged
+ * arguments. An id of one is followed by the string itself.
+ */
+public class BinaryLog implements Closeable
+{
+    private static final Logger LOGGER = new Logger();
+    
+    static final int  MAGIC   = 0x524C4F47;
+    static final byte VERSION = 2;
+    
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_RECORD = 2;
+    
+    private static final byte ARG_NULL    = 0;
+    private static final byte ARG_BOOLEAN = 1;
+    private static final byte ARG_CHAR    = 2;
+    private static final byte ARG_BYTE    = 3;
+    private static final byte ARG_SHORT   = 4;
+    private static final byte ARG_INT     = 5;
+    private static final byte ARG_LONG    = 6;
+    private static final byte ARG_FLOAT   = 7;
+    private static final byte ARG_DOUBLE  = 8;
+    private static final byte ARG_STRING  = 9;
+    
+    private static final Level[] LEVELS = {
+            Level.OFF, Level.SEVERE, Level.WARNING, Level.INFO, Level.CONFIG, Level.FINE, Level.FINER, Level.FINEST, Level.ALL
+    };
+    
+    private static final int CUSTOM_LEVEL = 0xFF;
+    
+    /**
+     * The id that means the string is written in place instead of by id.
+     */
+    private static final int INLINE = 1;
+    
+    /**
+     * The most strings that are given an id.
+     */
+    static final int MAX_STRINGS = 4096;
+    
+    private final FileChannel              channel;
+    private final ByteBuffer               buffer  = ByteBuffer.allocate(1 << 16);
+    private final HashMap<String, Integer> strings = new HashMap<>();
+    
+    private long lastTime;
+    
+    /**
+     * Creates a new binary log file, replacing the file if it exists.
+     *
+     * @param path The path to the file.
+     * @throws IOException If the file could not be opened.
+     */
+    public BinaryLog(@NotNull Path path) throws IOException
+    {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        
+        this.buffer.putInt(BinaryLog.MAGIC);
+        this.buffer.put(BinaryLog.VERSION);
+    }
+    
+    /**
+     * Writes a message. The objects are interpreted the same way as
+     * {@link Logger#log(Level, Object...)}: if the first one is a string, it
+     * is stored as the format string.
+     *
+     * @param time    The time of the message in milliseconds since the epoch.
+     * @param thread  The name of the thread that logged the message.
+     * @param level   The level of the message.
+     * @param name    The name of the logger.
+     * @param objects The objects that were logged.
+     * @throws IOException If the buffer could not be written out.
+     */
+    public synchronized void write(long time, @NotNull String thread, @NotNull Level level, @NotNull String name, @NotNull Object... objects) throws IOException
+    {
+        if (objects.length > 0 && objects[0] instanceof String format)
+        {
+            writeRecord(time, thread, level, name, format, objects, 1);
+        }
+        else
+        {
+            writeRecord(time, thread, level, name, null, objects, 0);
+        }
+    }
+    
+    /**
+     * Writes a message that has already been turned into a string, such as
+     * from {@link Logger#log(Level, Object)}.
+     *
+     * @param time    The time of the message in milliseconds since the epoch.
+     * @param thread  The name of the thread that logged the message.
+     * @param level   The level of the message.
+     * @param name    The name of the logger.
+     * @param message The message.
+     * @throws IOException If the buffer could not be written out.
+     */
+    public synchronized void writeMessage(long time, @NotNull String thread, @NotNull Level level, @NotNull String name, @NotNull String message) throws IOException
+    {
+        writeRecord(time, thread, level, name, null, new Object[] {message}, 0);
+    }
+    
+    private void writeRecord(long time, String thread, Level level, String name, String format, Object[] objects, int start) throws IOException
+    {
+        int threadId = intern(thread);
+        int nameId   = intern(name);
+        int formatId = format != null ? intern(format) : 0;
+        
+        int levelIndex = levelIndex(level);
+        int levelName  = levelIndex == BinaryLog.CUSTOM_LEVEL ? intern(level.getName()) : 0;
+        
+        ensure(1 + 10 + 5 + 1);
+        this.buffer.put(BinaryLog.TAG_RECORD);
+        putVarLong(zigzag(time - this.lastTime));
+        putStringId(threadId, thread);
+        this.buffer.put((byte) levelIndex);
+        if (levelIndex == BinaryLog.CUSTOM_LEVEL)
+        {
+            putStringId(levelName, level.getName());
+            ensure(10);
+            putVarLong(zigzag((long) level.intValue()));
+        }
+        putStringId(nameId, name);
+        putStringId(formatId, format);
+        ensure(5);
+        putVarInt(objects.length - start);
+        for (int i = start; i < objects.length; i++) putObject(objects[i]);
+        
+        this.lastTime = time;
+        
+        if (level.intValue() >= Level.SEVERE.intValue()) flush();
+    }
+    
+    /**
+     * Writes out anything that is buffered.
+     *
+     * @throws IOException If the buffer could not be written out.
+     */
+    public synchronized void flush() throws IOException
+    {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) this.channel.write(this.buffer);
+        this.buffer.clear();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (!this.channel.isOpen()) return;
+        flush();
+        this.channel.close();
+    }
+    
+    /**
+     * Gives a string an id, writing it out the first time.
+     *
+     * @return The id, or {@link #INLINE} if the table is full.
+     */
+    private int intern(String string) throws IOException
+    {
+        Integer id = this.strings.get(string);
+        if (id != null) return id;
+        if (this.strings.size() >= BinaryLog.MAX_STRINGS) return BinaryLog.INLINE;
+        
+        id = this.strings.size() + 2;
+        this.strings.put(string, id);
+        
+        ensure(1);
+        this.buffer.put(BinaryLog.TAG_STRING);
+        putString(string);
+        return id;
+    }
+    
+    private void putObject(Object object) throws IOException
+    {
+        if (object instanceof Supplier<?> supplier) object = supplier.get();
+        
+        ensure(1 + 10);
+        if (object == null)
+        {
+            this.buffer.put(BinaryLog.ARG_NULL);
+        }
+        else if (object instanceof Boolean value)
+        {
+            this.buffer.put(BinaryLog.ARG_BOOLEAN).put((byte) (value ? 1 : 0));
+        }
+        else if (object instanceof Character value)
+        {
+            this.buffer.put(BinaryLog.ARG_CHAR);
+            putVarInt(value);
+        }
+        else if (object instanceof Byte value)
+        {
+            this.buffer.put(BinaryLog.ARG_BYTE).put(value);
+        }
+        else if (object instanceof Short value)
+        {
+            this.buffer.put(BinaryLog.ARG_SHORT);
+            putVarInt(zigzag(value));
+        }
+        else if (object instanceof Integer value)
+        {
+            this.buffer.put(BinaryLog.ARG_INT);
+            putVarInt(zigzag(value));
+        }
+        else if (object instanceof Long value)
+        {
+            this.buffer.put(BinaryLog.ARG_LONG);
+            putVarLong(zigzag(value));
+        }
+        else if (object instanceof Float value)
+        {
+            this.buffer.put(BinaryLog.ARG_FLOAT).putFloat(value);
+        }
+        else if (object instanceof Double value)
+        {
+            this.buffer.put(BinaryLog.ARG_DOUBLE).putDouble(value);
+        }
+        else
+        {
+            this.buffer.put(BinaryLog.ARG_STRING);
+            putString(object instanceof String value ? value : StringUtil.toString(object));
+        }
+    }
+    
+    private void putStringId(int id, String string) throws IOException
+    {
+        ensure(5);
+        putVarInt(id);
+        if (id == BinaryLog.INLINE) putString(string);
+    }
+    
+    private void putString(String string) throws IOException
+    {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        
+        ensure(5);
+        putVarInt(bytes.length);
+        
+        int offset = 0;
+        while (offset < bytes.length)
+        {
+            if (!this.buffer.hasRemaining()) flush();
+            int count = Math.min(bytes.length - offset, this.buffer.remaining());
+            this.buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+    
+    private void putVarInt(int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            this.buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte) value);
+    }
+    
+    private void putVarLong(long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            this.buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte) value);
+    }
+    
+    private void ensure(int bytes) throws IOException
+    {
+        if (this.buffer.remaining() < bytes) flush();
+    }
+    
+    private static int levelIndex(Level level)
+    {
+        for (int i = 0; i < BinaryLog.LEVELS.length; i++)
+        {
+            if (BinaryLog.LEVELS[i] == level) return i;
+        }
+        return BinaryLog.CUSTOM_LEVEL;
+    }
+    
+    private static int zigzag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    private static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    /**
+     * Decodes a binary log file into the text format of
+     * {@link Logger#addLogFile}.
+     *
+     * @param input  The binary log file.
+     * @param output Where to write the text.
+     * @throws IOException If the file could not be read or is not a binary log.
+     */
+    public static void decode(@NotNull Path input, @NotNull OutputStream output) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(input), 1 << 16)))
+        {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+            
+            if (in.readInt() != BinaryLog.MAGIC) throw new IOException("Not a binary log file: " + input);
+            int version = in.readUnsignedByte();
+            if (version != BinaryLog.VERSION) throw new IOException("Unsupported binary log version: " + version);
+            
+            ArrayList<String> strings = new ArrayList<>();
+            strings.add(null);
+            strings.add(null); // BinaryLog.INLINE
+            
+            StringBuilder builder = new StringBuilder();
+            long          time    = 0L;
+            int           tag;
+            while ((tag = in.read()) != -1)
+            {
+                if (tag == BinaryLog.TAG_STRING)
+                {
+                    strings.add(readString(in));
+                    continue;
+                }
+                if (tag != BinaryLog.TAG_RECORD) throw new IOException("Corrupt binary log file: unknown tag " + tag);
+                
+                time += unzigzag(readVarLong(in));
+                
+                String thread     = readStringId(in, strings);
+                int    levelIndex = in.readUnsignedByte();
+                Level  level;
+                if (levelIndex == BinaryLog.CUSTOM_LEVEL)
+                {
+                    level = new CustomLevel(readStringId(in, strings), (int) unzigzag(readVarLong(in)));
+                }
+                else
+                {
+                    level = BinaryLog.LEVELS[levelIndex];
+                }
+                String name   = readStringId(in, strings);
+                String format = readStringId(in, strings);
+                
+                Object[] args = new Object[readVarInt(in)];
+                for (int i = 0; i < args.length; i++) args[i] = readObject(in);
+                
+                builder.setLength(0);
+                Logger.logFileImpl(builder, Logger.prefix(StringUtil.getTimeString(time), thread, level, name), message(format, args));
+                writer.append(builder);
+            }
+            writer.flush();
+        }
+    }
+    
+    private static String message(@Nullable String format, Object[] args)
+    {
+        StringBuilder message = new StringBuilder();
+        if (format != null)
+        {
+            if (StringUtil.isFormatterString(format))
+            {
+                try
+                {
+                    return String.format(format, args);
+                }
+                catch (IllegalFormatException ignored) { }
+            }
+            message.append(format);
+            for (Object arg : args) message.append(' ').append(StringUtil.toString(arg));
+        }
+        else
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                if (i > 0) message.append(' ');
+                message.append(StringUtil.toString(args[i]));
+            }
+        }
+        return message.toString();
+    }
+    
+    private static Object readObject(DataInputStream in) throws IOException
+    {
+        int type = in.readUnsignedByte();
+        return switch (type)
+                {
+                    case BinaryLog.ARG_NULL -> null;
+                    case BinaryLog.ARG_BOOLEAN -> in.readByte() != 0;
+                    case BinaryLog.ARG_CHAR -> (char) readVarInt(in);
+                    case BinaryLog.ARG_BYTE -> in.readByte();
+                    case BinaryLog.ARG_SHORT -> (short) unzigzag(readVarInt(in));
+                    case BinaryLog.ARG_INT -> unzigzag(readVarInt(in));
+                    case BinaryLog.ARG_LONG -> unzigzag(readVarLong(in));
+                    case BinaryLog.ARG_FLOAT -> in.readFloat();
+                    case BinaryLog.ARG_DOUBLE -> in.readDouble();
+                    case BinaryLog.ARG_STRING -> readString(in);
+                    default -> throw new IOException("Corrupt binary log file: unknown argument type " + type);
+                };
+    }
+    
+    private static String readStringId(DataInputStream in, ArrayList<String> strings) throws IOException
+    {
+        int id = readVarInt(in);
+        if (id == BinaryLog.INLINE) return readString(in);
+        if (id < 0 || id >= strings.size()) throw new IOException("Corrupt binary log file: unknown string id " + id);
+        return strings.get(id);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static int readVarInt(DataInputStream in) throws IOException
+    {
+        return (int) readVarLong(in);
+    }
+    
+    private static long readVarLong(DataInputStream in) throws IOException
+    {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt binary log file: varint is too long");
+    }
+    
+    private static int unzigzag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    /**
+     * Decodes a binary log file to a text file, or to the console if no
+     * output is given.
+     *
+     * @param args {@code <input> [output]}
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: BinaryLog <input> [output]");
+            System.exit(1);
+        }
+        try
+        {
+            if (args.length > 1)
+            {
+                try (OutputStream out = Files.newOutputStream(Path.of(args[1])))
+                {
+                    decode(Path.of(args[0]), out);
+                }
+            }
+            else
+            {
+                decode(Path.of(args[0]), System.out);
+            }
+        }
+        catch (IOException e)
+        {
+            BinaryLog.LOGGER.severe(e);
+            System.exit(1);
+        }
+    }
+    
+    private static final class CustomLevel extends Level
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private CustomLevel(String name, int value)
+        {
+            super(name, value);
+        }
+    }
+}
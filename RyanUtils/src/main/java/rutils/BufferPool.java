@@ -0,0 +1,330 @@
+package rutils;
+
+import org.jetbrains.annotations.NotNull;
+import rutils.profiler.Metric;
+import rutils.profiler.Metrics;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of direct ByteBuffers, so that buffers that are allocated and
+ * released over and over do not each have to be cleaned up by the garbage
+ * collector before their memory can be used again.
+ * <p>
+ * Buffers are kept in size classes of every power of two from 64 bytes up to
+ * the pool's maximum size. An allocation is given a buffer from the smallest
+ * class that fits it, with its limit set to the size asked for. Each thread
+ * keeps a few buffers of each class up to {@link IOUtil#CHUNK_SIZE} to
+ * itself, so most small allocations and releases do not touch any shared
+ * state. Larger classes are only kept in the shared pool, so the memory
+ * held by free buffers stays close to its limit however many threads use
+ * the pool. Buffers larger than the maximum size are not pooled, and their
+ * memory is freed as soon as they are released.
+ * <p>
+ * Only buffers from {@link #allocate(int)} may be {@link #release(Buffer)
+ * released}, and only once. The contents of a reused buffer are not cleared.
+ * A buffer that is never released is cleaned up by the garbage collector as
+ * usual.
+ */
+public class BufferPool
+{
+    private static final Logger LOGGER = new Logger();
+    
+    /**
+     * The pool used by {@link IOUtil} and {@link MemUtil} by default, with
+     * classes up to 16 MB and up to 64 MB of free buffers kept.
+     */
+    public static final BufferPool DEFAULT = new BufferPool("BufferPool", 16 << 20, 64L << 20);
+    
+    private static final int MIN_SHIFT = 6;
+    
+    /**
+     * The number of buffers of each class that each thread keeps.
+     */
+    private static final int CACHE_SIZE = 8;
+    
+    /**
+     * The size of the largest class that each thread keeps buffers of.
+     */
+    private static final int MAX_CACHED_SIZE = IOUtil.CHUNK_SIZE;
+    
+    private final String name;
+    private final int    maxShift;
+    private final int    cachedClasses;
+    private final long   maxPooledBytes;
+    
+    private final ArrayDeque<ByteBuffer>[] shared;
+    private final AtomicLong               pooledBytes = new AtomicLong();
+    
+    private final ThreadLocal<Cache> cache;
+    private final LongAdder          cachedBytes = new LongAdder();
+    
+    private final Metric.Counter hits;
+    private final Metric.Counter misses;
+    private final LongAdder      allocatedBytes = new LongAdder();
+    private final LongAdder      releasedBytes  = new LongAdder();
+    
+    /**
+     * @param name           The name of the pool, used as the prefix of its {@link Metrics metrics}.
+     * @param maxSize        The size in bytes of the largest buffer that is pooled. Rounded up to a power of two.
+     * @param maxPooledBytes The most bytes of free buffers to keep shared between threads. Any more are freed when they are released.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(@NotNull String name, int maxSize, long maxPooledBytes)
+    {
+        this.name           = name;
+        this.maxShift       = Math.max(BufferPool.shift(maxSize), BufferPool.MIN_SHIFT);
+        this.maxPooledBytes = maxPooledBytes;
+        
+        int classes = this.maxShift - BufferPool.MIN_SHIFT + 1;
+        
+        this.shared = new ArrayDeque[classes];
+        for (int i = 0; i < classes; i++) this.shared[i] = new ArrayDeque<>();
+        
+        this.cachedClasses = Math.min(classes, BufferPool.shift(BufferPool.MAX_CACHED_SIZE) - BufferPool.MIN_SHIFT + 1);
+        this.cache         = ThreadLocal.withInitial(Cache::new);
+        
+        this.hits   = Metrics.counter(name + ".hits");
+        this.misses = Metrics.counter(name + ".misses");
+        Metrics.gauge(name + ".outstandingBytes", this::outstandingBytes);
+        Metrics.gauge(name + ".pooledBytes", this.pooledBytes::get);
+        Metrics.gauge(name + ".cachedBytes", this::cachedBytes);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "BufferPool{" + '\'' + this.name + '\'' + '}';
+    }
+    
+    /**
+     * @return The number of bytes in buffers that have been allocated and not released yet.
+     */
+    public long outstandingBytes()
+    {
+        return this.allocatedBytes.sum() - this.releasedBytes.sum();
+    }
+    
+    /**
+     * @return The number of bytes in free buffers that are shared between threads.
+     */
+    public long pooledBytes()
+    {
+        return this.pooledBytes.get();
+    }
+    
+    /**
+     * Buffers kept by a thread that has ended are cleaned up by the garbage
+     * collector, but are still counted.
+     *
+     * @return The number of bytes in free buffers that threads keep to themselves.
+     */
+    public long cachedBytes()
+    {
+        return this.cachedBytes.sum();
+    }
+    
+    /**
+     * Gets a direct buffer with its position at zero and its limit at the
+     * size. Its capacity may be larger, and its order is big endian.
+     *
+     * @param size The size in bytes.
+     * @return The buffer.
+     */
+    public @NotNull ByteBuffer allocate(int size)
+    {
+        if (size < 0) throw new IllegalArgumentException("Size must be positive: " + size);
+        
+        int shift = Math.max(BufferPool.shift(size), BufferPool.MIN_SHIFT);
+        if (shift > this.maxShift)
+        {
+            this.misses.increment();
+            this.allocatedBytes.add(size);
+            return ByteBuffer.allocateDirect(size);
+        }
+        
+        int        index = shift - BufferPool.MIN_SHIFT;
+        ByteBuffer buffer;
+        if (index < this.cachedClasses)
+        {
+            Cache cache = this.cache.get();
+            buffer = cache.pop(index);
+            if (buffer == null && refill(cache, index)) buffer = cache.pop(index);
+        }
+        else
+        {
+            buffer = take(index);
+        }
+        if (buffer == null)
+        {
+            this.misses.increment();
+            buffer = ByteBuffer.allocateDirect(1 << shift);
+        }
+        else
+        {
+            this.hits.increment();
+        }
+        this.allocatedBytes.add(buffer.capacity());
+        return buffer.clear().limit(size).order(ByteOrder.BIG_ENDIAN);
+    }
+    
+    /**
+     * Gives a buffer back to the pool. Anything that is not a direct
+     * ByteBuffer is ignored.
+     *
+     * @param buffer A buffer from {@link #allocate(int)}. Not a slice or duplicate of one.
+     */
+    public void release(@NotNull Buffer buffer)
+    {
+        if (!(buffer instanceof ByteBuffer byteBuffer) || !buffer.isDirect()) return;
+        
+        int capacity = buffer.capacity();
+        int shift    = BufferPool.shift(capacity);
+        if (shift > this.maxShift)
+        {
+            this.releasedBytes.add(capacity);
+            IOUtil.invokeCleaner(byteBuffer);
+            return;
+        }
+        if (capacity != 1 << shift || shift < BufferPool.MIN_SHIFT)
+        {
+            BufferPool.LOGGER.warning("%s cannot pool a buffer with a capacity of %s", this, capacity);
+            return;
+        }
+        this.releasedBytes.add(capacity);
+        
+        int index = shift - BufferPool.MIN_SHIFT;
+        if (index < this.cachedClasses)
+        {
+            Cache cache = this.cache.get();
+            if (cache.counts[index] == BufferPool.CACHE_SIZE) spill(cache, index);
+            cache.push(index, byteBuffer);
+        }
+        else
+        {
+            give(index, byteBuffer);
+        }
+    }
+    
+    /**
+     * Frees every buffer that is shared between threads. Buffers kept by
+     * each thread are not freed.
+     */
+    public void trim()
+    {
+        BufferPool.LOGGER.finer("Trimming", this);
+        
+        for (ArrayDeque<ByteBuffer> buffers : this.shared)
+        {
+            synchronized (buffers)
+            {
+                for (ByteBuffer buffer; (buffer = buffers.poll()) != null; )
+                {
+                    this.pooledBytes.addAndGet(-buffer.capacity());
+                    IOUtil.invokeCleaner(buffer);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Moves half a cache's worth of buffers from the shared pool to the cache.
+     *
+     * @return If any buffers were moved.
+     */
+    private boolean refill(Cache cache, int index)
+    {
+        ArrayDeque<ByteBuffer> buffers = this.shared[index];
+        synchronized (buffers)
+        {
+            if (buffers.isEmpty()) return false;
+            for (int i = 0; i < BufferPool.CACHE_SIZE / 2 && !buffers.isEmpty(); i++)
+            {
+                ByteBuffer buffer = buffers.pop();
+                this.pooledBytes.addAndGet(-buffer.capacity());
+                cache.push(index, buffer);
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Moves half of a full cache to the shared pool, or frees them if the pool is full.
+     */
+    private void spill(Cache cache, int index)
+    {
+        for (int i = 0; i < BufferPool.CACHE_SIZE / 2; i++) give(index, cache.pop(index));
+    }
+    
+    /**
+     * @return A buffer of the class from the shared pool, or null if there are none.
+     */
+    private ByteBuffer take(int index)
+    {
+        ArrayDeque<ByteBuffer> buffers = this.shared[index];
+        synchronized (buffers)
+        {
+            ByteBuffer buffer = buffers.poll();
+            if (buffer != null) this.pooledBytes.addAndGet(-buffer.capacity());
+            return buffer;
+        }
+    }
+    
+    /**
+     * Puts a buffer in the shared pool, or frees it if the pool is full.
+     */
+    private void give(int index, ByteBuffer buffer)
+    {
+        ArrayDeque<ByteBuffer> buffers = this.shared[index];
+        synchronized (buffers)
+        {
+            int capacity = buffer.capacity();
+            if (this.pooledBytes.get() + capacity > this.maxPooledBytes)
+            {
+                IOUtil.invokeCleaner(buffer);
+            }
+            else
+            {
+                this.pooledBytes.addAndGet(capacity);
+                buffers.push(buffer);
+            }
+        }
+    }
+    
+    /**
+     * @return The smallest {@code n} where {@code 1 << n} is at least the size.
+     */
+    private static int shift(int size)
+    {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+    
+    /**
+     * The buffers of each small class that one thread keeps, as stacks.
+     */
+    private final class Cache
+    {
+        private final ByteBuffer[][] buffers = new ByteBuffer[BufferPool.this.cachedClasses][BufferPool.CACHE_SIZE];
+        private final int[]          counts  = new int[BufferPool.this.cachedClasses];
+        
+        private ByteBuffer pop(int index)
+        {
+            if (this.counts[index] == 0) return null;
+            ByteBuffer buffer = this.buffers[index][--this.counts[index]];
+            this.buffers[index][this.counts[index]] = null;
+            BufferPool.this.cachedBytes.add(-buffer.capacity());
+            return buffer;
+        }
+        
+        private void push(int index, ByteBuffer buffer)
+        {
+            this.buffers[index][this.counts[index]++] = buffer;
+            BufferPool.this.cachedBytes.add(buffer.capacity());
+        }
+    }
+}
@@ -2,31 +2,89 @@ package rutils;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import rutils.codec.Codec;
+import rutils.profiler.Metric;
+import rutils.profiler.Metrics;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.net.URISyntaxException;
 import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.zip.ZipException;
 
 public class IOUtil
 {
     private static final Logger LOGGER = new Logger();
     
-    private static final Function<@NotNull Integer, @NotNull ByteBuffer> DEFAULT_MEM_ALLOC = ByteBuffer::allocateDirect;
-    private static final Consumer<@NotNull Buffer>                       DEFAULT_MEM_FREE  = (buffer) -> {};
+    private static final Metric.Counter BYTES_READ    = Metrics.counter("IOUtil.bytesRead");
+    private static final Metric.Counter BYTES_WRITTEN = Metrics.counter("IOUtil.bytesWritten");
+    private static final Metric.Timer   READ          = Metrics.timer("IOUtil.read");
+    private static final Metric.Timer   WRITE         = Metrics.timer("IOUtil.write");
+    private static final Metric.Counter BYTES_MAPPED  = Metrics.counter("IOUtil.bytesMapped");
+    
+    private static final Metric.Counter BYTES_COMPRESSED   = Metrics.counter("IOUtil.bytesCompressed");
+    private static final Metric.Counter BYTES_DECOMPRESSED = Metrics.counter("IOUtil.bytesDecompressed");
+    
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    
+    static
+    {
+        Object unsafe        = null;
+        Method invokeCleaner = null;
+        try
+        {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field    field       = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe        = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        }
+        catch (ReflectiveOperationException | RuntimeException ignored) { }
+        UNSAFE         = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+    
+    private static final Function<@NotNull Integer, @NotNull ByteBuffer> DEFAULT_MEM_ALLOC = BufferPool.DEFAULT::allocate;
+    private static final Consumer<@NotNull Buffer>                       DEFAULT_MEM_FREE  = BufferPool.DEFAULT::release;
     
     private static Function<@NotNull Integer, @NotNull ByteBuffer> memAlloc = DEFAULT_MEM_ALLOC;
     private static Consumer<@NotNull Buffer>                       memFree  = DEFAULT_MEM_FREE;
     
+    private static volatile long mapThreshold = 1L << 20;
+    
+    /**
+     * The size of the direct buffers used to stream files.
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+    
+    /**
+     * The number of bytes in each block that {@link #compressBlocks(ByteBuffer, Codec)} compresses on its own.
+     */
+    public static final int COMPRESSION_BLOCK_SIZE = 1 << 20;
+    
     /**
      * Sets the function in which to allocate a ByteBuffer with a specified
-     * {@code size}.
+     * {@code size}. By default, buffers come from {@link BufferPool#DEFAULT}.
      *
      * @param memAlloc The function
      */
@@ -36,7 +94,8 @@ public class IOUtil
     }
     
     /**
-     * Sets the function in which to free a Buffer.
+     * Sets the function in which to free a Buffer. By default, buffers are
+     * given back to {@link BufferPool#DEFAULT}.
      *
      * @param memFree The function
      */
@@ -45,6 +104,27 @@ public class IOUtil
         IOUtil.memFree = memFree;
     }
     
+    /**
+     * @return The size in bytes at which {@link #readOrMapFile(String)} maps a file instead of reading it.
+     */
+    public static long mapThreshold()
+    {
+        return IOUtil.mapThreshold;
+    }
+    
+    /**
+     * Sets the size in bytes at which {@link #readOrMapFile(String)} maps a
+     * file instead of reading it. Mapping skips the copy into a new buffer,
+     * but each page is only loaded when it is first touched and setting up
+     * the mapping costs more than reading a small file.
+     *
+     * @param mapThreshold The size in bytes.
+     */
+    public static void mapThreshold(long mapThreshold)
+    {
+        IOUtil.mapThreshold = mapThreshold;
+    }
+    
     /**
      * Gets the path to the file. First it tries to load a resources, then if it fails then tries to load from disk.
      *
@@ -71,18 +151,64 @@ public class IOUtil
      */
     public static @Nullable ByteBuffer readFromFile(@NotNull String resource, int[] size, @NotNull Function<@NotNull Integer, @NotNull ByteBuffer> allocator)
     {
-        ByteBuffer buffer = null;
-        try (SeekableByteChannel fc = Files.newByteChannel(IOUtil.getPath(resource)))
+        try
         {
-            buffer  = allocator.apply((int) fc.size() + 1);
-            size[0] = 0;
-            for (int read; (read = fc.read(buffer)) != -1; ) size[0] += read;
+            return read(IOUtil.getPath(resource), size, allocator);
         }
         catch (IOException e)
         {
             IOUtil.LOGGER.warning("Could not load resource: \"%s\"\n%s", resource, e);
         }
-        return buffer != null ? buffer.clear() : null;
+        return null;
+    }
+    
+    /**
+     * Reads a whole file into a new buffer, with a zero byte after the data.
+     *
+     * @param path      The path to the file.
+     * @param size      The number of bytes read from the file.
+     * @param allocator The function to allocate the buffer with.
+     * @return The data as a ByteBuffer.
+     * @throws IOException If the file could not be read.
+     */
+    static @NotNull ByteBuffer read(@NotNull Path path, int[] size, @NotNull Function<@NotNull Integer, @NotNull ByteBuffer> allocator) throws IOException
+    {
+        long start = IOUtil.READ.start();
+        try (SeekableByteChannel fc = Files.newByteChannel(path))
+        {
+            int        length = (int) fc.size();
+            ByteBuffer buffer = allocator.apply(length + 1);
+            buffer.limit(length);
+            size[0] = 0;
+            for (int read; buffer.hasRemaining() && (read = fc.read(buffer)) != -1; ) size[0] += read;
+            IOUtil.BYTES_READ.add(size[0]);
+            
+            // The allocator may give back memory that is not zeroed, so the trailing zero is written.
+            return buffer.limit(size[0] + 1).put(size[0], (byte) 0).position(0);
+        }
+        finally
+        {
+            IOUtil.READ.stop(start);
+        }
+    }
+    
+    /**
+     * @return The function that buffers are allocated with.
+     */
+    static @NotNull Function<@NotNull Integer, @NotNull ByteBuffer> memAlloc()
+    {
+        return IOUtil.memAlloc;
+    }
+    
+    /**
+     * Frees a buffer with the {@link #memFree(Consumer) free function}, such
+     * as one from {@link #readFromFile(String)}. It must not be used after.
+     *
+     * @param buffer The buffer.
+     */
+    public static void free(@NotNull Buffer buffer)
+    {
+        IOUtil.memFree.accept(buffer);
     }
     
     /**
@@ -96,6 +222,146 @@ public class IOUtil
         return readFromFile(resource, new int[1], IOUtil.memAlloc);
     }
     
+    /**
+     * Maps a file into memory as a read-only buffer, without copying it. The
+     * buffer must not be used after it is passed to {@link #unmap}, which
+     * should be called when it is done with instead of waiting for it to be
+     * garbage collected.
+     * <p>
+     * Only files on the default file system and up to 2 GB can be mapped to a
+     * single buffer. Use {@link #mapLargeFile(String)} for larger files.
+     *
+     * @param resource The path to the file.
+     * @return The mapped buffer, or null if the file could not be mapped.
+     */
+    public static @Nullable MappedByteBuffer mapFile(@NotNull String resource)
+    {
+        try (FileChannel channel = FileChannel.open(IOUtil.getPath(resource), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                IOUtil.LOGGER.warning("Could not map resource: \"%s\"\nIt is %s bytes, which is too large for one buffer", resource, size);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            IOUtil.BYTES_MAPPED.add(size);
+            return buffer;
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            IOUtil.LOGGER.warning("Could not map resource: \"%s\"\n%s", resource, e);
+        }
+        return null;
+    }
+    
+    /**
+     * Maps a file of any size into memory as a number of read-only segments.
+     * The file must be {@link MappedFile#close() closed} when it is done with.
+     *
+     * @param resource The path to the file.
+     * @return The mapped file, or null if the file could not be mapped.
+     */
+    public static @Nullable MappedFile mapLargeFile(@NotNull String resource)
+    {
+        try
+        {
+            MappedFile file = new MappedFile(IOUtil.getPath(resource), MappedFile.SEGMENT_SIZE);
+            IOUtil.BYTES_MAPPED.add(file.size());
+            return file;
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            IOUtil.LOGGER.warning("Could not map resource: \"%s\"\n%s", resource, e);
+        }
+        return null;
+    }
+    
+    /**
+     * Releases the mapping of a buffer from {@link #mapFile(String)} straight
+     * away instead of waiting for it to be garbage collected, so the file can
+     * be changed, truncated and renamed on every platform. Any use of the
+     * buffer or its views after this may crash the JVM.
+     *
+     * @param buffer The mapped buffer. Not a slice or duplicate of one.
+     * @return {@code true} if the mapping was released.
+     */
+    public static boolean unmap(@NotNull MappedByteBuffer buffer)
+    {
+        return invokeCleaner(buffer);
+    }
+    
+    /**
+     * Frees the memory of a direct buffer or the mapping of a mapped buffer
+     * straight away.
+     *
+     * @param buffer The buffer. Not a slice or duplicate of one.
+     * @return {@code true} if the memory was freed.
+     */
+    static boolean invokeCleaner(@NotNull ByteBuffer buffer)
+    {
+        if (IOUtil.INVOKE_CLEANER == null) return false;
+        try
+        {
+            IOUtil.INVOKE_CLEANER.invoke(IOUtil.UNSAFE, buffer);
+            return true;
+        }
+        catch (ReflectiveOperationException | IllegalArgumentException ignored) { }
+        return false;
+    }
+    
+    /**
+     * Loads a file as a ByteBuffer, choosing how by its size. Files smaller
+     * than the {@link #mapThreshold() map threshold} are read into a new
+     * buffer like {@link #readFromFile(String)}, and larger files on the
+     * default file system are {@link #mapFile(String) mapped}.
+     * <p>
+     * A mapped buffer is read-only and does not have the trailing zero byte
+     * that a read buffer has. Either way, the buffer should be given back to
+     * {@link #freeFile(ByteBuffer)} when it is done with.
+     *
+     * @param resource The path to the file.
+     * @return The data as a ByteBuffer.
+     */
+    public static @Nullable ByteBuffer readOrMapFile(@NotNull String resource)
+    {
+        Path path = IOUtil.getPath(resource);
+        try
+        {
+            long size = Files.size(path);
+            if (size >= IOUtil.mapThreshold && size <= Integer.MAX_VALUE && path.getFileSystem() == FileSystems.getDefault())
+            {
+                MappedByteBuffer buffer = mapFile(resource);
+                if (buffer != null) return buffer;
+            }
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not load resource: \"%s\"\n%s", resource, e);
+            return null;
+        }
+        return readFromFile(resource);
+    }
+    
+    /**
+     * Frees a buffer from {@link #readOrMapFile(String)}, by unmapping it if
+     * it was mapped or passing it to the {@link #memFree(Consumer) free
+     * function} if it was read.
+     *
+     * @param buffer The buffer.
+     */
+    public static void freeFile(@NotNull ByteBuffer buffer)
+    {
+        if (buffer instanceof MappedByteBuffer mapped && buffer.isReadOnly())
+        {
+            IOUtil.unmap(mapped);
+        }
+        else
+        {
+            IOUtil.memFree.accept(buffer);
+        }
+    }
+    
     /**
      * Saves a ByteBuffer to file.
      *
@@ -106,16 +372,22 @@ public class IOUtil
      */
     public static boolean writeToFile(@NotNull String resource, @NotNull ByteBuffer buffer, int[] bytesWritten)
     {
-        try (SeekableByteChannel fc = Files.newByteChannel(IOUtil.getPath(resource)))
+        long start = IOUtil.WRITE.start();
+        bytesWritten[0] = 0;
+        try (SeekableByteChannel fc = Files.newByteChannel(IOUtil.getPath(resource), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
         {
-            bytesWritten[0] = 0;
-            for (int read; (read = fc.write(buffer)) != -1; ) bytesWritten[0] += read;
+            while (buffer.hasRemaining()) bytesWritten[0] += fc.write(buffer);
             return true;
         }
         catch (IOException e)
         {
             IOUtil.LOGGER.warning("Could not save resource: \"%s\"\n%s", resource, e);
         }
+        finally
+        {
+            IOUtil.BYTES_WRITTEN.add(bytesWritten[0]);
+            IOUtil.WRITE.stop(start);
+        }
         return false;
     }
     
@@ -131,6 +403,712 @@ public class IOUtil
         return writeToFile(resource, buffer, new int[1]);
     }
     
+    /**
+     * Streams a file through a direct buffer from {@link BufferPool#DEFAULT},
+     * one chunk at a time, so the file never has to be in memory all at once.
+     * <p>
+     * Every chunk is full except for the last. The buffer passed to the
+     * consumer is only valid until it returns, and is then reused for the
+     * next chunk.
+     *
+     * @param resource  The path to the file.
+     * @param chunkSize The number of bytes in each chunk.
+     * @param consumer  Called with each chunk, in order.
+     * @return The number of bytes read, or -1 if the file could not be read.
+     * @throws IllegalArgumentException If the chunk size is zero or less.
+     */
+    public static long read(@NotNull String resource, int chunkSize, @NotNull Consumer<@NotNull ByteBuffer> consumer)
+    {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        
+        long       start = IOUtil.READ.start();
+        long       total = 0L;
+        ByteBuffer chunk = BufferPool.DEFAULT.allocate(chunkSize);
+        try (FileChannel channel = FileChannel.open(IOUtil.getPath(resource), StandardOpenOption.READ))
+        {
+            boolean end = false;
+            while (!end)
+            {
+                chunk.clear().limit(chunkSize);
+                while (chunk.hasRemaining())
+                {
+                    if (channel.read(chunk) < 0)
+                    {
+                        end = true;
+                        break;
+                    }
+                }
+                if (chunk.position() == 0) break;
+                
+                total += chunk.position();
+                consumer.accept(chunk.flip());
+            }
+            return total;
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not load resource: \"%s\"\n%s", resource, e);
+        }
+        finally
+        {
+            BufferPool.DEFAULT.release(chunk);
+            IOUtil.BYTES_READ.add(total);
+            IOUtil.READ.stop(start);
+        }
+        return -1L;
+    }
+    
+    /**
+     * Streams a file through a pooled direct buffer in chunks of
+     * {@link #CHUNK_SIZE} bytes.
+     *
+     * @param resource The path to the file.
+     * @param consumer Called with each chunk, in order.
+     * @return The number of bytes read, or -1 if the file could not be read.
+     */
+    public static long read(@NotNull String resource, @NotNull Consumer<@NotNull ByteBuffer> consumer)
+    {
+        return read(resource, IOUtil.CHUNK_SIZE, consumer);
+    }
+    
+    /**
+     * Writes buffers to a file one after another, replacing anything that was
+     * in it, so the data never has to be in memory all at once. The
+     * remaining bytes of each buffer are written and its position is moved
+     * past them. Heap buffers are copied through a pooled direct buffer so
+     * that the channel does not need its own.
+     *
+     * @param resource The path to the file.
+     * @param buffers  The data to write.
+     * @param fsync    If the data should be forced onto the storage device before returning.
+     * @return The number of bytes written, or -1 if the file could not be written.
+     */
+    public static long write(@NotNull String resource, @NotNull Iterator<@NotNull ByteBuffer> buffers, boolean fsync)
+    {
+        long       start = IOUtil.WRITE.start();
+        long       total = 0L;
+        ByteBuffer chunk = null;
+        try (FileChannel channel = FileChannel.open(IOUtil.getPath(resource), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (buffers.hasNext())
+            {
+                ByteBuffer buffer = buffers.next();
+                if (buffer.isDirect())
+                {
+                    while (buffer.hasRemaining()) total += channel.write(buffer);
+                    continue;
+                }
+                if (chunk == null) chunk = BufferPool.DEFAULT.allocate(IOUtil.CHUNK_SIZE);
+                while (buffer.hasRemaining())
+                {
+                    int length = Math.min(chunk.capacity(), buffer.remaining());
+                    chunk.clear().put(0, buffer, buffer.position(), length).limit(length);
+                    buffer.position(buffer.position() + length);
+                    while (chunk.hasRemaining()) total += channel.write(chunk);
+                }
+            }
+            if (fsync) channel.force(true);
+            return total;
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not save resource: \"%s\"\n%s", resource, e);
+        }
+        finally
+        {
+            if (chunk != null) BufferPool.DEFAULT.release(chunk);
+            IOUtil.BYTES_WRITTEN.add(total);
+            IOUtil.WRITE.stop(start);
+        }
+        return -1L;
+    }
+    
+    /**
+     * Writes buffers to a file one after another, replacing anything that was
+     * in it, without forcing the data onto the storage device.
+     *
+     * @param resource The path to the file.
+     * @param buffers  The data to write.
+     * @return The number of bytes written, or -1 if the file could not be written.
+     */
+    public static long write(@NotNull String resource, @NotNull Iterator<@NotNull ByteBuffer> buffers)
+    {
+        return write(resource, buffers, false);
+    }
+    
+    /**
+     * Compresses the remaining bytes of a buffer into a new buffer from the
+     * {@link #memAlloc(Function) allocation function}. The position of the
+     * buffer is moved to its limit.
+     *
+     * @param buffer The data to compress.
+     * @param codec  The format to compress with.
+     * @return The compressed data, or null if it could not be compressed.
+     */
+    public static @Nullable ByteBuffer compress(@NotNull ByteBuffer buffer, @NotNull Codec codec)
+    {
+        int        length = buffer.remaining();
+        ByteBuffer dst    = IOUtil.memAlloc.apply(codec.maxCompressedLength(length));
+        try
+        {
+            codec.compress(buffer, dst);
+            IOUtil.BYTES_COMPRESSED.add(length);
+            return dst.flip();
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not compress buffer with %s\n%s", codec.name(), e);
+            IOUtil.memFree.accept(dst);
+        }
+        return null;
+    }
+    
+    /**
+     * Decompresses the remaining bytes of a buffer from
+     * {@link #compress(ByteBuffer, Codec)} into a new buffer from the
+     * {@link #memAlloc(Function) allocation function}.
+     *
+     * @param buffer The data to decompress.
+     * @param codec  The format it was compressed with.
+     * @param length The number of bytes it decompresses to.
+     * @return The decompressed data, or null if it could not be decompressed.
+     */
+    public static @Nullable ByteBuffer decompress(@NotNull ByteBuffer buffer, @NotNull Codec codec, int length)
+    {
+        ByteBuffer dst = IOUtil.memAlloc.apply(length);
+        try
+        {
+            codec.decompress(buffer, dst);
+            IOUtil.BYTES_DECOMPRESSED.add(dst.position());
+            return dst.flip();
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not decompress buffer with %s\n%s", codec.name(), e);
+            IOUtil.memFree.accept(dst);
+        }
+        return null;
+    }
+    
+    /**
+     * Compresses the remaining bytes of a buffer as a number of blocks that
+     * are each compressed on their own, on every core at once. The position
+     * of the buffer is moved to its limit.
+     * <p>
+     * The result starts with the block size and the total length, followed by
+     * each block's compressed length and data, and is read back with
+     * {@link #decompressBlocks(ByteBuffer, Codec)}. Smaller blocks give more
+     * parallelism but compress less well.
+     *
+     * @param buffer    The data to compress.
+     * @param codec     The format to compress each block with.
+     * @param blockSize The number of bytes in each block.
+     * @return The compressed data, from the {@link #memAlloc(Function) allocation function}, or null if it could not be compressed.
+     */
+    public static @Nullable ByteBuffer compressBlocks(@NotNull ByteBuffer buffer, @NotNull Codec codec, int blockSize)
+    {
+        ByteBuffer[] blocks = null;
+        try
+        {
+            int length = buffer.remaining();
+            blocks = compressEach(buffer, codec, blockSize);
+            
+            int total = 12;
+            for (ByteBuffer block : blocks) total += block.remaining();
+            
+            ByteBuffer dst = IOUtil.memAlloc.apply(total).order(ByteOrder.BIG_ENDIAN);
+            dst.putInt(blockSize).putLong(length);
+            for (ByteBuffer block : blocks) dst.put(block);
+            buffer.position(buffer.limit());
+            return dst.flip();
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not compress buffer with %s\n%s", codec.name(), e);
+        }
+        finally
+        {
+            if (blocks != null) release(blocks);
+        }
+        return null;
+    }
+    
+    /**
+     * Compresses the remaining bytes of a buffer in blocks of
+     * {@link #COMPRESSION_BLOCK_SIZE} bytes, on every core at once.
+     *
+     * @param buffer The data to compress.
+     * @param codec  The format to compress each block with.
+     * @return The compressed data, or null if it could not be compressed.
+     */
+    public static @Nullable ByteBuffer compressBlocks(@NotNull ByteBuffer buffer, @NotNull Codec codec)
+    {
+        return compressBlocks(buffer, codec, IOUtil.COMPRESSION_BLOCK_SIZE);
+    }
+    
+    /**
+     * Decompresses a buffer from {@link #compressBlocks(ByteBuffer, Codec)},
+     * decompressing each block straight into its place in the result, on
+     * every core at once. The position of the buffer is moved past the
+     * compressed data.
+     *
+     * @param buffer The data to decompress.
+     * @param codec  The format each block was compressed with.
+     * @return The decompressed data, from the {@link #memAlloc(Function) allocation function}, or null if it could not be decompressed.
+     */
+    public static @Nullable ByteBuffer decompressBlocks(@NotNull ByteBuffer buffer, @NotNull Codec codec)
+    {
+        try
+        {
+            ByteBuffer src = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+            
+            int  blockSize = src.getInt();
+            long total     = src.getLong();
+            if (blockSize <= 0 || total < 0 || total > Integer.MAX_VALUE) throw new ZipException("Invalid header: block size " + blockSize + ", length " + total);
+            
+            int   length  = (int) total;
+            int   count   = Math.max((int) ((total + blockSize - 1) / blockSize), 1);
+            int[] offsets = new int[count];
+            int[] sizes   = new int[count];
+            for (int i = 0; i < count; i++)
+            {
+                sizes[i]   = src.getInt();
+                offsets[i] = src.position();
+                src.position(offsets[i] + sizes[i]);
+            }
+            
+            ByteBuffer dst = IOUtil.memAlloc.apply(length);
+            parallel(count, i -> {
+                ByteBuffer block = dst.slice(i * blockSize, Math.min(blockSize, length - i * blockSize));
+                codec.decompress(src.slice(offsets[i], sizes[i]), block);
+                if (block.hasRemaining()) throw new ZipException("Block " + i + " is " + block.remaining() + " bytes short");
+            });
+            
+            IOUtil.BYTES_DECOMPRESSED.add(length);
+            buffer.position(src.position());
+            return dst.position(0).limit(length);
+        }
+        catch (IOException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e)
+        {
+            // Other blocks may still be decompressing into the result, so it is left to be garbage collected instead of freed.
+            IOUtil.LOGGER.warning("Could not decompress buffer with %s\n%s", codec.name(), e);
+        }
+        return null;
+    }
+    
+    /**
+     * Saves a buffer to file compressed with
+     * {@link #compressBlocks(ByteBuffer, Codec)}, streaming the blocks to the
+     * file instead of joining them first.
+     * <p>
+     * The whole buffer and all of its compressed blocks are in memory at
+     * once. Use {@link #writeCompressed(String, Iterator, Codec)} for data
+     * that does not fit.
+     *
+     * @param resource The path to the file.
+     * @param buffer   The data to save.
+     * @param codec    The format to compress each block with.
+     * @return {@code true} if the file was written
+     */
+    public static boolean writeCompressed(@NotNull String resource, @NotNull ByteBuffer buffer, @NotNull Codec codec)
+    {
+        ByteBuffer[] blocks = null;
+        ByteBuffer   header = BufferPool.DEFAULT.allocate(12);
+        try
+        {
+            header.putInt(IOUtil.COMPRESSION_BLOCK_SIZE).putLong(buffer.remaining()).flip();
+            blocks = compressEach(buffer, codec, IOUtil.COMPRESSION_BLOCK_SIZE);
+            buffer.position(buffer.limit());
+            
+            ByteBuffer[] data = new ByteBuffer[blocks.length + 1];
+            data[0] = header;
+            System.arraycopy(blocks, 0, data, 1, blocks.length);
+            return write(resource, Arrays.asList(data).iterator()) >= 0;
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not compress buffer with %s\n%s", codec.name(), e);
+        }
+        finally
+        {
+            BufferPool.DEFAULT.release(header);
+            if (blocks != null) release(blocks);
+        }
+        return false;
+    }
+    
+    /**
+     * Loads a file saved with {@link #writeCompressed(String, ByteBuffer, Codec)}.
+     * <p>
+     * The whole file and the whole result are in memory at once. Use
+     * {@link #readCompressed(String, Codec, Consumer)} for data that does not
+     * fit.
+     *
+     * @param resource The path to the file.
+     * @param codec    The format each block was compressed with.
+     * @return The decompressed data, or null if the file could not be loaded.
+     */
+    public static @Nullable ByteBuffer readCompressed(@NotNull String resource, @NotNull Codec codec)
+    {
+        ByteBuffer data = readOrMapFile(resource);
+        if (data == null) return null;
+        try
+        {
+            return decompressBlocks(data, codec);
+        }
+        finally
+        {
+            freeFile(data);
+        }
+    }
+    
+    /**
+     * Saves buffers to file one after another, compressed in the same format
+     * as {@link #writeCompressed(String, ByteBuffer, Codec)}, so the data
+     * never has to be in memory all at once. The buffers are gathered into a
+     * block for each core, which are compressed at once and streamed to the
+     * file before the next ones are gathered. The remaining bytes of each
+     * buffer are read and its position is moved past them.
+     *
+     * @param resource The path to the file.
+     * @param buffers  The data to save.
+     * @param codec    The format to compress each block with.
+     * @return {@code true} if the file was written
+     */
+    public static boolean writeCompressed(@NotNull String resource, @NotNull Iterator<@NotNull ByteBuffer> buffers, @NotNull Codec codec)
+    {
+        int              batch  = Runtime.getRuntime().availableProcessors();
+        CompressedBlocks blocks = new CompressedBlocks(buffers, codec, IOUtil.COMPRESSION_BLOCK_SIZE, batch);
+        try
+        {
+            if (write(resource, blocks) < 0) return false;
+            
+            // The length is only known once every buffer has been read.
+            try (FileChannel channel = FileChannel.open(IOUtil.getPath(resource), StandardOpenOption.WRITE))
+            {
+                ByteBuffer length = blocks.header.clear().putLong(0, blocks.length).limit(8);
+                while (length.hasRemaining()) channel.write(length, 4 + length.position());
+            }
+            return true;
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not save resource: \"%s\"\n%s", resource, e);
+        }
+        catch (UncheckedIOException e)
+        {
+            IOUtil.LOGGER.warning("Could not compress buffer with %s\n%s", codec.name(), e.getCause());
+        }
+        finally
+        {
+            blocks.release();
+        }
+        return false;
+    }
+    
+    /**
+     * Streams a file saved with {@link #writeCompressed(String, ByteBuffer, Codec)}
+     * or {@link #writeCompressed(String, Iterator, Codec)}, decompressing one
+     * block at a time, so neither the file nor the data has to be in memory
+     * all at once.
+     * <p>
+     * Every block is {@link #COMPRESSION_BLOCK_SIZE} bytes except for the
+     * last. The buffer passed to the consumer is only valid until it
+     * returns, and is then reused for the next block.
+     *
+     * @param resource The path to the file.
+     * @param codec    The format each block was compressed with.
+     * @param consumer Called with each decompressed block, in order.
+     * @return The number of bytes decompressed, or -1 if the file could not be loaded.
+     */
+    public static long readCompressed(@NotNull String resource, @NotNull Codec codec, @NotNull Consumer<@NotNull ByteBuffer> consumer)
+    {
+        BlockReader reader = new BlockReader(codec, consumer);
+        try
+        {
+            if (read(resource, reader) < 0) return -1L;
+            reader.finish();
+            return reader.total;
+        }
+        catch (IOException e)
+        {
+            IOUtil.LOGGER.warning("Could not decompress buffer with %s\n%s", codec.name(), e);
+        }
+        catch (UncheckedIOException e)
+        {
+            IOUtil.LOGGER.warning("Could not decompress buffer with %s\n%s", codec.name(), e.getCause());
+        }
+        finally
+        {
+            reader.release();
+        }
+        return -1L;
+    }
+    
+    /**
+     * Compresses each block of a buffer into its own pooled buffer, which
+     * starts with the compressed length. The buffer's position is not moved.
+     */
+    private static ByteBuffer[] compressEach(ByteBuffer buffer, Codec codec, int blockSize) throws IOException
+    {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        
+        int          position = buffer.position();
+        int          length   = buffer.remaining();
+        int          count    = Math.max((int) ((length + (long) blockSize - 1) / blockSize), 1);
+        ByteBuffer[] blocks   = new ByteBuffer[count];
+        
+        // If a block fails, the others may still be running, so their buffers are left to be garbage collected instead of released.
+        parallel(count, i -> {
+            int        size  = Math.min(blockSize, length - i * blockSize);
+            ByteBuffer block = blocks[i] = BufferPool.DEFAULT.allocate(4 + codec.maxCompressedLength(size));
+            codec.compress(buffer.slice(position + i * blockSize, size), block.position(4));
+            block.putInt(0, block.position() - 4).flip();
+        });
+        IOUtil.BYTES_COMPRESSED.add(length);
+        return blocks;
+    }
+    
+    /**
+     * Runs a task for each index, on the common pool if there is more than one.
+     */
+    private static void parallel(int count, BlockTask task) throws IOException
+    {
+        try
+        {
+            IntStream indices = IntStream.range(0, count);
+            (count > 1 ? indices.parallel() : indices).forEach(i -> {
+                try
+                {
+                    task.run(i);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Copies as much of the source as fits into the buffer, moving both of
+     * their positions.
+     */
+    private static void fill(ByteBuffer buffer, ByteBuffer src)
+    {
+        int length = Math.min(buffer.remaining(), src.remaining());
+        buffer.put(buffer.position(), src, src.position(), length).position(buffer.position() + length);
+        src.position(src.position() + length);
+    }
+    
+    private static void release(ByteBuffer[] blocks)
+    {
+        for (ByteBuffer block : blocks)
+        {
+            if (block != null) BufferPool.DEFAULT.release(block);
+        }
+    }
+    
+    private interface BlockTask
+    {
+        void run(int index) throws IOException;
+    }
+    
+    /**
+     * The header and then the compressed blocks of the buffers, gathering
+     * and compressing the next batch of blocks once the last one has been
+     * written. The length in the header is left as zero.
+     */
+    private static final class CompressedBlocks implements Iterator<ByteBuffer>
+    {
+        private final Iterator<ByteBuffer> buffers;
+        private final Codec                codec;
+        private final int                  blockSize;
+        private final ByteBuffer           header;
+        private final ByteBuffer           input;
+        
+        private ByteBuffer   source;
+        private ByteBuffer[] blocks = new ByteBuffer[0];
+        private int          next   = -1;
+        private long         length = 0L;
+        private boolean      done   = false;
+        
+        private CompressedBlocks(Iterator<ByteBuffer> buffers, Codec codec, int blockSize, int batch)
+        {
+            this.buffers   = buffers;
+            this.codec     = codec;
+            this.blockSize = blockSize;
+            this.header    = BufferPool.DEFAULT.allocate(12).putInt(0, blockSize).putLong(4, 0L);
+            this.input     = BufferPool.DEFAULT.allocate(blockSize * batch);
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            if (this.next < this.blocks.length) return true;
+            if (this.done) return false;
+            
+            // The blocks from the last batch have all been written by now.
+            IOUtil.release(this.blocks);
+            this.blocks = new ByteBuffer[0];
+            this.next   = 0;
+            
+            this.input.clear();
+            while (this.input.hasRemaining())
+            {
+                if (this.source == null || !this.source.hasRemaining())
+                {
+                    if (!this.buffers.hasNext())
+                    {
+                        this.done = true;
+                        break;
+                    }
+                    this.source = this.buffers.next();
+                    continue;
+                }
+                fill(this.input, this.source);
+            }
+            // An empty file still has one empty block.
+            if (this.input.position() == 0 && this.length > 0) return false;
+            
+            this.length += this.input.flip().remaining();
+            try
+            {
+                this.blocks = compressEach(this.input, this.codec, this.blockSize);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+        
+        @Override
+        public ByteBuffer next()
+        {
+            if (!hasNext()) throw new NoSuchElementException();
+            if (this.next < 0)
+            {
+                this.next = 0;
+                return this.header;
+            }
+            return this.blocks[this.next++];
+        }
+        
+        private void release()
+        {
+            IOUtil.release(this.blocks);
+            BufferPool.DEFAULT.release(this.header);
+            BufferPool.DEFAULT.release(this.input);
+        }
+    }
+    
+    /**
+     * Reads the header and then each block of a compressed file from the
+     * chunks it is streamed in, and passes each block on once it is
+     * decompressed.
+     */
+    private static final class BlockReader implements Consumer<ByteBuffer>
+    {
+        private final Codec                codec;
+        private final Consumer<ByteBuffer> consumer;
+        private final ByteBuffer           prefix = BufferPool.DEFAULT.allocate(12);
+        
+        private int        blockSize;
+        private long       length;
+        private long       count;
+        private long       read;
+        private long       total;
+        private ByteBuffer block;
+        private ByteBuffer output;
+        
+        private BlockReader(Codec codec, Consumer<ByteBuffer> consumer)
+        {
+            this.codec    = codec;
+            this.consumer = consumer;
+        }
+        
+        @Override
+        public void accept(ByteBuffer chunk)
+        {
+            try
+            {
+                while (chunk.hasRemaining())
+                {
+                    if (this.block == null)
+                    {
+                        fill(this.prefix, chunk);
+                        if (this.prefix.hasRemaining()) return;
+                        
+                        if (this.output == null)
+                        {
+                            readHeader();
+                            continue;
+                        }
+                        
+                        int size = this.prefix.getInt(0);
+                        int max  = this.codec.maxCompressedLength(blockLength());
+                        if (this.read == this.count) throw new ZipException("Data after the last block");
+                        if (size < 0 || size > max) throw new ZipException("Invalid size of block " + this.read + ": " + size);
+                        this.block = BufferPool.DEFAULT.allocate(size);
+                        this.prefix.clear().limit(4);
+                    }
+                    
+                    fill(this.block, chunk);
+                    if (this.block.hasRemaining()) return;
+                    
+                    ByteBuffer output = this.output.clear().limit(blockLength());
+                    this.codec.decompress(this.block.flip(), output);
+                    if (output.hasRemaining()) throw new ZipException("Block " + this.read + " is " + output.remaining() + " bytes short");
+                    BufferPool.DEFAULT.release(this.block);
+                    this.block = null;
+                    
+                    this.read++;
+                    this.total += output.flip().remaining();
+                    IOUtil.BYTES_DECOMPRESSED.add(output.remaining());
+                    this.consumer.accept(output);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        private void readHeader() throws ZipException
+        {
+            this.blockSize = this.prefix.getInt(0);
+            this.length    = this.prefix.getLong(4);
+            if (this.blockSize <= 0 || this.length < 0) throw new ZipException("Invalid header: block size " + this.blockSize + ", length " + this.length);
+            
+            this.count  = Math.max((this.length + this.blockSize - 1) / this.blockSize, 1L);
+            this.output = BufferPool.DEFAULT.allocate((int) Math.min(this.blockSize, this.length));
+            this.prefix.clear().limit(4);
+        }
+        
+        private int blockLength()
+        {
+            return (int) Math.min(this.blockSize, this.length - this.read * this.blockSize);
+        }
+        
+        private void finish() throws ZipException
+        {
+            if (this.output == null) throw new ZipException("Missing header");
+            if (this.read < this.count) throw new ZipException("Missing " + (this.count - this.read) + " of " + this.count + " blocks");
+        }
+        
+        private void release()
+        {
+            BufferPool.DEFAULT.release(this.prefix);
+            if (this.block != null) BufferPool.DEFAULT.release(this.block);
+            if (this.output != null) BufferPool.DEFAULT.release(this.output);
+        }
+    }
+    
     /**
      * Gets the extension string for a file name string.
      * <p>
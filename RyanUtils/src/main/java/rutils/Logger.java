@@ -1,23 +1,36 @@
 package rutils;
 
+import rutils.concurrent.RingBuffer;
+import rutils.concurrent.Signal;
+
 import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
-import static rutils.StringUtil.getCurrentTimeString;
-
 /**
  * A simple logging implementation for use in Engine classes. Only one logger should be used per file as the file's class path is in the message.
  * <p>
  * Use the global {@link #setLevel} to allow for log message to be displayed to the console.
+ * <p>
+ * By default, messages are written and flushed on the thread that logs them.
+ * Use {@link #startAsync} to hand them to a background writer instead.
  */
 public class Logger
 {
@@ -25,16 +38,37 @@ public class Logger
     
     private static final Pattern SPLIT_PATTERN = Pattern.compile("(\\n|\\n\\r|\\r\\n)");
     
-    private static final ArrayList<OutputStream> OUTPUT_STREAMS = new ArrayList<>();
+    private static final CopyOnWriteArrayList<OutputStream> OUTPUT_STREAMS = new CopyOnWriteArrayList<>();
+    
+    private static final OutputStream CONSOLE = new BufferedOutputStream(System.out);
+    
+    private static final ConcurrentHashMap<String, Pattern> WHITELIST = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Pattern> BLACKLIST = new ConcurrentHashMap<>();
+    
+    private static volatile Level level = Level.INFO;
+    
+    /**
+     * Incremented whenever the level or filters change so that each logger
+     * knows to recompute its cached threshold.
+     */
+    private static final AtomicInteger VERSION = new AtomicInteger();
+    
+    private static volatile AsyncWriter    asyncWriter    = null;
+    private static volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private static volatile Level          overflowLevel  = Level.WARNING;
+    private static volatile long           flushInterval  = 0L;
     
-    private static final HashMap<String, Pattern> WHITELIST = new HashMap<>();
-    private static final HashMap<String, Pattern> BLACKLIST = new HashMap<>();
+    private static final LongAdder DROPPED = new LongAdder();
     
-    private static Level level = Level.INFO;
+    private static final ThreadLocal<LineEncoder> ENCODER = ThreadLocal.withInitial(LineEncoder::new);
+    
+    private static volatile BinaryLog binaryLog = null;
     
     static
     {
-        Logger.OUTPUT_STREAMS.add(new BufferedOutputStream(System.out));
+        Logger.OUTPUT_STREAMS.add(Logger.CONSOLE);
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::shutdown, "Logger-Shutdown"));
     }
     
     
@@ -56,6 +90,7 @@ public class Logger
         Logger.LOGGER.finest("Setting Global Log Level", level);
         
         Logger.level = level;
+        Logger.VERSION.incrementAndGet();
     }
     
     /**
@@ -68,6 +103,7 @@ public class Logger
         Logger.LOGGER.finest("Adding filter the Whitelist", regex);
         
         Logger.WHITELIST.put(regex, Pattern.compile(regex));
+        Logger.VERSION.incrementAndGet();
     }
     
     /**
@@ -80,6 +116,7 @@ public class Logger
         Logger.LOGGER.finest("Removing filter from the Whitelist", regex);
         
         Logger.WHITELIST.remove(regex);
+        Logger.VERSION.incrementAndGet();
     }
     
     /**
@@ -92,6 +129,7 @@ public class Logger
         Logger.LOGGER.finest("Adding filter to the Blacklist", regex);
         
         Logger.BLACKLIST.put(regex, Pattern.compile(regex));
+        Logger.VERSION.incrementAndGet();
     }
     
     /**
@@ -104,6 +142,7 @@ public class Logger
         Logger.LOGGER.finest("Removing filter from the Blacklist", regex);
         
         Logger.BLACKLIST.remove(regex);
+        Logger.VERSION.incrementAndGet();
     }
     
     private static boolean applyFilters(String name)
@@ -123,6 +162,200 @@ public class Logger
         return false;
     }
     
+    /**
+     * Starts writing log messages on a background thread. Messages are placed
+     * in a ring buffer by the logging thread and written in batches, so
+     * logging no longer waits on the console, files or binary log. If the
+     * writer is already running, it is stopped and replaced.
+     *
+     * @param bufferSize The number of messages that can be waiting to be written. This is rounded up to a power of two.
+     */
+    public static synchronized void startAsync(int bufferSize)
+    {
+        Logger.LOGGER.finest("Starting Async Writer", bufferSize);
+        
+        stopAsync();
+        
+        AsyncWriter writer = new AsyncWriter(bufferSize);
+        writer.thread.start();
+        Logger.asyncWriter = writer;
+    }
+    
+    /**
+     * Writes all waiting messages, then stops the background writer. Messages
+     * are written on the logging thread again afterwards. Does nothing if the
+     * writer is not running.
+     */
+    public static synchronized void stopAsync()
+    {
+        AsyncWriter writer = Logger.asyncWriter;
+        if (writer == null) return;
+        
+        Logger.asyncWriter = null;
+        
+        // A thread may have read the writer before it was cleared. Once it is
+        // stopped, enqueue refuses new records, so after the threads that are
+        // still enqueuing have finished, nothing more can be added.
+        writer.stopped = true;
+        while (writer.producers.get() > 0) LockSupport.parkNanos(10_000L);
+        
+        writer.running = false;
+        writer.signal.signal();
+        try
+        {
+            writer.thread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        
+        // Pick up anything that was queued while the writer was exiting.
+        writer.run();
+        
+        Logger.LOGGER.finest("Stopped Async Writer");
+    }
+    
+    /**
+     * @return If messages are written on a background thread.
+     */
+    public static boolean isAsync()
+    {
+        return Logger.asyncWriter != null;
+    }
+    
+    /**
+     * @return What happens to a message when the async buffer is full.
+     */
+    public static OverflowPolicy getOverflowPolicy()
+    {
+        return Logger.overflowPolicy;
+    }
+    
+    /**
+     * Sets what happens to a message when the async buffer is full.
+     *
+     * @param overflowPolicy The new overflow policy.
+     */
+    public static void setOverflowPolicy(OverflowPolicy overflowPolicy)
+    {
+        Logger.LOGGER.finest("Setting Overflow Policy", overflowPolicy);
+        
+        Logger.overflowPolicy = overflowPolicy;
+    }
+    
+    /**
+     * @return The lowest level that is never dropped with {@link OverflowPolicy#DROP_BELOW_LEVEL}.
+     */
+    public static Level getOverflowLevel()
+    {
+        return Logger.overflowLevel;
+    }
+    
+    /**
+     * Sets the lowest level that is never dropped with
+     * {@link OverflowPolicy#DROP_BELOW_LEVEL}.
+     *
+     * @param overflowLevel The new level.
+     */
+    public static void setOverflowLevel(Level overflowLevel)
+    {
+        Logger.LOGGER.finest("Setting Overflow Level", overflowLevel);
+        
+        Logger.overflowLevel = overflowLevel;
+    }
+    
+    /**
+     * @return The maximum time, in seconds, that the async writer holds written messages before flushing the output streams.
+     */
+    public static double getFlushInterval()
+    {
+        return Logger.flushInterval / 1_000_000_000D;
+    }
+    
+    /**
+     * Sets the maximum time, in seconds, that the async writer holds written
+     * messages before flushing the output streams. Zero flushes after every
+     * batch. {@link Level#SEVERE} messages are always flushed straight away.
+     *
+     * @param flushInterval The new flush interval in seconds.
+     */
+    public static void setFlushInterval(double flushInterval)
+    {
+        Logger.LOGGER.finest("Setting Flush Interval", flushInterval);
+        
+        Logger.flushInterval = (long) (flushInterval * 1_000_000_000L);
+    }
+    
+    /**
+     * @return The number of messages dropped because the async buffer was full.
+     */
+    public static long getDroppedCount()
+    {
+        return Logger.DROPPED.sum();
+    }
+    
+    /**
+     * Blocks until every message logged before this call has been written
+     * and the output streams have been flushed.
+     */
+    public static void flush()
+    {
+        if (!awaitAsync()) flushOutputStreams();
+        
+        BinaryLog binaryLog = Logger.binaryLog;
+        if (binaryLog != null)
+        {
+            try
+            {
+                binaryLog.flush();
+            }
+            catch (IOException e)
+            {
+                Logger.LOGGER.warning("Could not flush binary log\n%s", e);
+            }
+        }
+    }
+    
+    /**
+     * Waits until the async writer has written every record queued before
+     * this call and flushed the output streams.
+     *
+     * @return {@code false} if there was no writer to wait for.
+     */
+    private static boolean awaitAsync()
+    {
+        AsyncWriter writer = Logger.asyncWriter;
+        if (writer == null || writer.thread == Thread.currentThread()) return false;
+        
+        CountDownLatch latch = new CountDownLatch(1);
+        if (!writer.enqueue(new Record(latch), true)) return false; // The writer was stopped, so everything has been written.
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+    
+    private static void flushOutputStreams()
+    {
+        for (OutputStream outputStream : Logger.OUTPUT_STREAMS)
+        {
+            try
+            {
+                outputStream.flush();
+            }
+            catch (IOException e)
+            {
+                Logger.LOGGER.warning("Could not flush output stream\n%s", e);
+            }
+        }
+    }
+    
     public static void addLogFile(String file)
     {
         try
@@ -137,6 +370,115 @@ public class Logger
         }
     }
     
+    /**
+     * Adds a log file that is written through a memory-mapped region and
+     * rolled over while the program runs. See {@link RollingFileOutputStream}.
+     *
+     * @param file       The path to the log file.
+     * @param maxSize    The size in bytes at which the file is rolled, or zero or less to not roll by size.
+     * @param maxAge     The time in seconds after which the file is rolled, or zero or less to not roll by time.
+     * @param maxBackups The number of old log files to keep.
+     * @param compress   If old log files should be gzipped.
+     */
+    public static void addRollingLogFile(String file, long maxSize, double maxAge, int maxBackups, boolean compress)
+    {
+        try
+        {
+            Logger.OUTPUT_STREAMS.add(new RollingFileOutputStream(Path.of(file), maxSize, maxAge, maxBackups, compress));
+        }
+        catch (IOException e)
+        {
+            Logger.LOGGER.warning(e);
+        }
+    }
+    
+    /**
+     * Sets if messages are printed to {@link System#out}.
+     *
+     * @param enabled If messages are printed to the console.
+     */
+    public static void setConsoleEnabled(boolean enabled)
+    {
+        if (enabled)
+        {
+            Logger.OUTPUT_STREAMS.addIfAbsent(Logger.CONSOLE);
+        }
+        else
+        {
+            Logger.OUTPUT_STREAMS.remove(Logger.CONSOLE);
+        }
+    }
+    
+    /**
+     * Writes every message to a {@link BinaryLog} as well as the other
+     * outputs. Messages are stored unformatted, so if the binary log is the
+     * only output, no text is built at all. Read the file back with
+     * {@link BinaryLog#decode}.
+     * <p>
+     * Only one binary log can be open at a time. Setting a new one closes the
+     * previous one.
+     *
+     * @param file The path to the binary log, or {@code null} to stop writing one.
+     */
+    public static void setBinaryLogFile(String file)
+    {
+        BinaryLog previous;
+        synchronized (Logger.class)
+        {
+            previous         = Logger.binaryLog;
+            Logger.binaryLog = null;
+        }
+        if (previous != null)
+        {
+            // Records waiting for the async writer may still be for the old log.
+            // Not done while holding the lock, which the writer may need if the log fails.
+            awaitAsync();
+            try
+            {
+                previous.close();
+            }
+            catch (IOException e)
+            {
+                Logger.LOGGER.warning("Could not close binary log\n%s", e);
+            }
+        }
+        if (file == null) return;
+        try
+        {
+            BinaryLog binaryLog = new BinaryLog(Path.of(file));
+            synchronized (Logger.class)
+            {
+                Logger.binaryLog = binaryLog;
+            }
+        }
+        catch (IOException e)
+        {
+            Logger.LOGGER.warning(e);
+        }
+    }
+    
+    /**
+     * Stops the async writer and closes every log file. Called when the
+     * program exits. The console is still logged to afterwards.
+     */
+    private static void shutdown()
+    {
+        stopAsync();
+        setBinaryLogFile(null);
+        
+        for (OutputStream outputStream : Logger.OUTPUT_STREAMS)
+        {
+            if (outputStream instanceof BufferedOutputStream) continue;
+            // Removed first so anything logged afterwards does not write to a closed stream.
+            Logger.OUTPUT_STREAMS.remove(outputStream);
+            try
+            {
+                outputStream.close();
+            }
+            catch (IOException ignored) { }
+        }
+    }
+    
     private static void rotate(String baseFilePath, int level) throws IOException
     {
         if (level >= 5) return;
@@ -147,19 +489,14 @@ public class Logger
         Path currFilePath = Path.of(currFile);
         Path prevFilePath = Path.of(prevFile);
         
-        if (Files.exists(currFilePath))
-        {
-            rotate(baseFilePath, level + 1);
-        }
-        else
-        {
-            Files.createFile(currFilePath);
-        }
-        if (level > 0) Files.copy(prevFilePath, new FileOutputStream(currFile));
+        if (Files.exists(currFilePath)) rotate(baseFilePath, level + 1);
+        if (level > 0) Files.move(prevFilePath, currFilePath, StandardCopyOption.REPLACE_EXISTING);
     }
     
     private final String name;
     
+    private Threshold threshold;
+    
     /**
      * Creates a new logger whose name is the class path to the file.
      */
@@ -176,65 +513,105 @@ public class Logger
         return "Logger{" + this.name + '}';
     }
     
-    private void logConsoleImpl(OutputStream outputStream, StringBuilder prefix, Level level, String message) throws IOException
+    /**
+     * Checks if a message at the level would be logged by this logger. The
+     * global level and filters are only checked again after they change, so
+     * this costs a single volatile read.
+     *
+     * @param level The level to check.
+     * @return If a message at the level would be logged.
+     */
+    public boolean isLoggable(Level level)
     {
-        String prefixString;
-        if (level.intValue() >= Level.SEVERE.intValue())
-        {
-            prefixString = Logger.RED + prefix.toString();
-        }
-        else if (level.intValue() >= Level.WARNING.intValue())
-        {
-            prefixString = Logger.YELLOW + prefix.toString();
-        }
-        else
-        {
-            prefixString = prefix.toString();
-        }
-        
-        StringBuilder fullMessage = new StringBuilder();
-        for (String line : SPLIT_PATTERN.split(message)) fullMessage.append(prefixString).append(line).append(Logger.RESET).append(System.lineSeparator());
-        
-        outputStream.write(fullMessage.toString().getBytes());
-        outputStream.flush();
+        Threshold threshold = this.threshold;
+        if (threshold == null || threshold.version != Logger.VERSION.get()) threshold = updateThreshold();
+        return !threshold.filtered && level.intValue() >= threshold.value;
     }
     
-    private void logFileImpl(OutputStream outputStream, StringBuilder prefix, String message) throws IOException
+    private Threshold updateThreshold()
     {
-        StringBuilder fullMessage = new StringBuilder();
-        for (String line : SPLIT_PATTERN.split(message)) fullMessage.append(prefix).append(line).append(System.lineSeparator());
-        
-        outputStream.write(fullMessage.toString().getBytes());
-        outputStream.flush();
+        int version = Logger.VERSION.get();
+        return this.threshold = new Threshold(version, Logger.level.intValue(), applyFilters(this.name));
     }
     
-    private void logImpl(Level level, String message)
+    static String prefix(String time, String thread, Level level, String name)
     {
         StringBuilder prefix = new StringBuilder();
-        prefix.append('[').append(getCurrentTimeString()).append("] [").append(Thread.currentThread().getName()).append('/').append(level).append(']');
-        if (!this.name.equals("")) prefix.append(" [").append(this.name).append(']');
+        prefix.append('[').append(time).append("] [").append(thread).append('/').append(level).append(']');
+        if (!name.equals("")) prefix.append(" [").append(name).append(']');
         prefix.append(": ");
+        return prefix.toString();
+    }
+    
+    static void logFileImpl(StringBuilder builder, String prefix, String message)
+    {
+        for (String line : SPLIT_PATTERN.split(message)) builder.append(prefix).append(line).append(System.lineSeparator());
+    }
+    
+    /**
+     * Writes a message to the binary log and the output streams, or hands it
+     * to the async writer if it is running.
+     *
+     * @param message   The text for the output streams, or null if there is none.
+     * @param binaryLog The binary log to write to, or null if there is none.
+     * @param objects   The objects for the binary log, or null to write the message to it.
+     */
+    private void logImpl(Level level, String message, BinaryLog binaryLog, Object[] objects)
+    {
+        long   time   = System.currentTimeMillis();
+        String thread = Thread.currentThread().getName();
         
-        for (OutputStream outputStream : Logger.OUTPUT_STREAMS)
+        AsyncWriter writer = Logger.asyncWriter;
+        if (writer != null && writer.thread != Thread.currentThread())
         {
-            try
+            Object[] arguments = binaryLog != null && objects != null ? snapshot(objects) : null;
+            if (writer.enqueue(new Record(time, thread, level, this.name, message, binaryLog, arguments), false)) return;
+        }
+        
+        if (binaryLog != null) writeBinary(binaryLog, time, thread, level, this.name, message, objects);
+        if (message == null) return;
+        
+        LineEncoder encoder = Logger.ENCODER.get();
+        if (encoder.busy) encoder = new LineEncoder(); // Logging an error while writing.
+        encoder.busy = true;
+        try
+        {
+            encoder.clear();
+            encoder.prefix(time, thread, level, this.name);
+            
+            boolean console = false, file = false;
+            for (OutputStream outputStream : Logger.OUTPUT_STREAMS)
             {
-                if (outputStream instanceof BufferedOutputStream)
+                try
                 {
-                    logConsoleImpl(outputStream, prefix, level, message);
+                    if (outputStream instanceof BufferedOutputStream)
+                    {
+                        if (!console) encoder.console(level, message);
+                        console = true;
+                        encoder.writeConsole(outputStream);
+                        outputStream.flush();
+                    }
+                    else
+                    {
+                        if (!file) encoder.file(message);
+                        file = true;
+                        encoder.writeFile(outputStream);
+                        outputStream.flush();
+                    }
                 }
-                else if (outputStream instanceof FileOutputStream)
+                catch (IOException e)
                 {
-                    logFileImpl(outputStream, prefix, message);
+                    Logger.LOGGER.warning("Could not log to output stream\n%s", e);
                 }
             }
-            catch (IOException e)
-            {
-                Logger.LOGGER.warning("Could not log to output stream\n%s", e);
-            }
+        }
+        finally
+        {
+            encoder.busy = false;
         }
     }
     
+    
     /**
      * Logs the object at the level specified.
      * <p>
@@ -252,209 +629,145 @@ public class Logger
      */
     public void log(Level level, Object object)
     {
-        if (level.intValue() < Logger.level.intValue()) return;
-        if (applyFilters(this.name)) return;
-        logImpl(level, StringUtil.toString(object));
+        if (!isLoggable(level)) return;
+        logMessage(level, StringUtil.toString(object));
     }
     
     /**
-     * Logs the objects separated by spaces at the level specified.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the object returned by the supplier at the level specified. The supplier is
+     * only called if the message will be logged.
+     *
+     * @param level    The level to log at.
+     * @param supplier The supplier of the object to log.
+     */
+    public void log(Level level, Supplier<?> supplier)
+    {
+        if (!isLoggable(level)) return;
+        logMessage(level, StringUtil.toString(supplier != null ? supplier.get() : null));
+    }
+    
+    /**
+     * Logs the objects separated by spaces at the level specified. Unlike
+     * {@link #log(Level, Object...)}, nothing is allocated if the message is not logged.
      *
      * @param level   The level to log at.
-     * @param objects The objects to log.
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
      */
-    public void log(Level level, Object... objects)
+    public void log(Level level, Object object0, Object object1)
     {
-        if (level.intValue() < Logger.level.intValue()) return;
-        if (applyFilters(this.name)) return;
-        int n = objects.length;
-        if (n == 0) return;
-        StringBuilder message = new StringBuilder();
-        if (objects[0] instanceof String format)
-        {
-            if (StringUtil.isFormatterString(format))
-            {
-                Object[] transformed = new Object[n - 1];
-                for (int i = 1; i < n; i++) transformed[i - 1] = transformObject(objects[i]);
-                message.append(String.format(format, transformed));
-            }
-            else
-            {
-                message.append(StringUtil.toString(format));
-                for (int i = 1; i < n; i++) message.append(' ').append(StringUtil.toString(objects[i]));
-            }
-        }
-        else
-        {
-            message.append(StringUtil.toString(objects[0]));
-            for (int i = 1; i < n; i++) message.append(' ').append(StringUtil.toString(objects[i]));
-        }
-        logImpl(level, message.toString());
+        if (isLoggable(level)) logObjects(level, object0, object1);
     }
     
     /**
-     * Logs the object at {@link Level#ALL}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the objects separated by spaces at the level specified. Unlike
+     * {@link #log(Level, Object...)}, nothing is allocated if the message is not logged.
      *
-     * @param object The object to log.
+     * @param level   The level to log at.
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
      */
-    public void all(Object object)
+    public void log(Level level, Object object0, Object object1, Object object2)
     {
-        log(Level.ALL, object);
+        if (isLoggable(level)) logObjects(level, object0, object1, object2);
     }
     
     /**
-     * Logs the objects separated by spaces at {@link Level#ALL}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the objects separated by spaces at the level specified. Unlike
+     * {@link #log(Level, Object...)}, nothing is allocated if the message is not logged.
      *
-     * @param objects The objects to log.
+     * @param level   The level to log at.
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
      */
-    public void all(Object... objects)
+    public void log(Level level, Object object0, Object object1, Object object2, Object object3)
     {
-        log(Level.ALL, objects);
+        if (isLoggable(level)) logObjects(level, object0, object1, object2, object3);
     }
     
     /**
-     * Logs the object at {@link Level#SEVERE}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the object and a boolean separated by a space at the level specified. The
+     * value is only boxed if the message is logged.
      *
+     * @param level  The level to log at.
      * @param object The object to log.
+     * @param value  The value to log.
      */
-    public void severe(Object object)
+    public void log(Level level, Object object, boolean value)
     {
-        log(Level.SEVERE, object);
+        if (isLoggable(level)) logObjects(level, object, value);
     }
     
     /**
-     * Logs the objects separated by spaces at {@link Level#SEVERE}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the object and a char separated by a space at the level specified. The
+     * value is only boxed if the message is logged.
      *
-     * @param objects The objects to log.
+     * @param level  The level to log at.
+     * @param object The object to log.
+     * @param value  The value to log.
      */
-    public void severe(Object... objects)
+    public void log(Level level, Object object, char value)
     {
-        log(Level.SEVERE, objects);
+        if (isLoggable(level)) logObjects(level, object, value);
     }
     
     /**
-     * Logs the object at {@link Level#WARNING}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the object and an int separated by a space at the level specified. The
+     * value is only boxed if the message is logged.
      *
+     * @param level  The level to log at.
      * @param object The object to log.
+     * @param value  The value to log.
      */
-    public void warning(Object object)
+    public void log(Level level, Object object, int value)
     {
-        log(Level.WARNING, object);
+        if (isLoggable(level)) logObjects(level, object, value);
     }
     
     /**
-     * Logs the objects separated by spaces at {@link Level#WARNING}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the object and a long separated by a space at the level specified. The
+     * value is only boxed if the message is logged.
      *
-     * @param objects The objects to log.
+     * @param level  The level to log at.
+     * @param object The object to log.
+     * @param value  The value to log.
      */
-    public void warning(Object... objects)
+    public void log(Level level, Object object, long value)
     {
-        log(Level.WARNING, objects);
+        if (isLoggable(level)) logObjects(level, object, value);
     }
     
     /**
-     * Logs the object at {@link Level#INFO}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the object and a float separated by a space at the level specified. The
+     * value is only boxed if the message is logged.
      *
+     * @param level  The level to log at.
      * @param object The object to log.
+     * @param value  The value to log.
      */
-    public void info(Object object)
+    public void log(Level level, Object object, float value)
     {
-        log(Level.INFO, object);
+        if (isLoggable(level)) logObjects(level, object, value);
     }
     
     /**
-     * Logs the objects separated by spaces at {@link Level#INFO}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the object and a double separated by a space at the level specified. The
+     * value is only boxed if the message is logged.
      *
-     * @param objects The objects to log.
+     * @param level  The level to log at.
+     * @param object The object to log.
+     * @param value  The value to log.
      */
-    public void info(Object... objects)
+    public void log(Level level, Object object, double value)
     {
-        log(Level.INFO, objects);
+        if (isLoggable(level)) logObjects(level, object, value);
     }
     
     /**
-     * Logs the object at {@link Level#CONFIG}.
+     * Logs the objects separated by spaces at the level specified.
      * <p>
      * The objects will be printed with {@link StringUtil#toString(Object)} to
      * expand arrays and print the stacktrace for
@@ -465,34 +778,97 @@ public class Logger
      * objects. Arrays will be converted to strings with
      * {@link StringUtil#toString(Object)} before being formatted.
      *
-     * @param object The object to log.
+     * @param level   The level to log at.
+     * @param objects The objects to log.
      */
-    public void config(Object object)
+    public void log(Level level, Object... objects)
     {
-        log(Level.CONFIG, object);
+        if (isLoggable(level)) logObjects(level, objects);
+    }
+    
+    private static void writeBinary(BinaryLog binaryLog, long time, String thread, Level level, String name, String message, Object[] objects)
+    {
+        try
+        {
+            if (objects != null)
+            {
+                binaryLog.write(time, thread, level, name, objects);
+            }
+            else
+            {
+                binaryLog.writeMessage(time, thread, level, name, message);
+            }
+        }
+        catch (IOException e)
+        {
+            binaryLogFailed(binaryLog, e);
+        }
     }
     
     /**
-     * Logs the objects separated by spaces at {@link Level#CONFIG}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
-     *
-     * @param objects The objects to log.
+     * Stops writing to a binary log that could not be written to, so that
+     * logging the error does not fail again.
      */
-    public void config(Object... objects)
+    private static void binaryLogFailed(BinaryLog binaryLog, IOException e)
     {
-        log(Level.CONFIG, objects);
+        synchronized (Logger.class)
+        {
+            if (Logger.binaryLog == binaryLog) Logger.binaryLog = null;
+        }
+        Logger.LOGGER.warning("Could not write to binary log, it has been closed\n%s", e);
+        try
+        {
+            binaryLog.close();
+        }
+        catch (IOException ignored) { }
+    }
+    
+    private void logMessage(Level level, String message)
+    {
+        BinaryLog binaryLog = Logger.binaryLog;
+        if (binaryLog == null && Logger.OUTPUT_STREAMS.isEmpty()) return;
+        logImpl(level, message, binaryLog, null);
+    }
+    
+    private void logObjects(Level level, Object... objects)
+    {
+        int n = objects.length;
+        if (n == 0) return;
+        
+        objects = resolveSuppliers(objects);
+        
+        BinaryLog binaryLog = Logger.binaryLog;
+        if (Logger.OUTPUT_STREAMS.isEmpty())
+        {
+            if (binaryLog != null) logImpl(level, null, binaryLog, objects);
+            return;
+        }
+        
+        StringBuilder message = new StringBuilder();
+        if (objects[0] instanceof String format)
+        {
+            if (StringUtil.isFormatterString(format))
+            {
+                Object[] transformed = new Object[n - 1];
+                for (int i = 1; i < n; i++) transformed[i - 1] = transformObject(objects[i]);
+                message.append(String.format(format, transformed));
+            }
+            else
+            {
+                message.append(StringUtil.toString(format));
+                for (int i = 1; i < n; i++) message.append(' ').append(StringUtil.toString(objects[i]));
+            }
+        }
+        else
+        {
+            message.append(StringUtil.toString(objects[0]));
+            for (int i = 1; i < n; i++) message.append(' ').append(StringUtil.toString(objects[i]));
+        }
+        logImpl(level, message.toString(), binaryLog, objects);
     }
     
     /**
-     * Logs the object at {@link Level#FINE}.
+     * Logs the object at {@link Level#ALL}.
      * <p>
      * The objects will be printed with {@link StringUtil#toString(Object)} to
      * expand arrays and print the stacktrace for
@@ -505,85 +881,1251 @@ public class Logger
      *
      * @param object The object to log.
      */
-    public void fine(Object object)
+    public void all(Object object)
     {
-        log(Level.FINE, object);
+        log(Level.ALL, object);
     }
     
     /**
-     * Logs the objects separated by spaces at {@link Level#FINE}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the object returned by the supplier at {@link Level#ALL}. The supplier is
+     * only called if the message will be logged.
      *
-     * @param objects The objects to log.
+     * @param supplier The supplier of the object to log.
      */
-    public void fine(Object... objects)
+    public void all(Supplier<?> supplier)
     {
-        log(Level.FINE, objects);
+        log(Level.ALL, supplier);
     }
     
     /**
-     * Logs the object at {@link Level#FINER}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the objects separated by spaces at {@link Level#ALL}. Unlike
+     * {@link #all(Object...)}, nothing is allocated if the message is not logged.
      *
-     * @param object The object to log.
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
      */
-    public void finer(Object object)
+    public void all(Object object0, Object object1)
     {
-        log(Level.FINER, object);
+        log(Level.ALL, object0, object1);
     }
     
     /**
-     * Logs the objects separated by spaces at {@link Level#FINER}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the objects separated by spaces at {@link Level#ALL}. Unlike
+     * {@link #all(Object...)}, nothing is allocated if the message is not logged.
      *
-     * @param objects The objects to log.
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
      */
-    public void finer(Object... objects)
+    public void all(Object object0, Object object1, Object object2)
     {
-        log(Level.FINER, objects);
+        log(Level.ALL, object0, object1, object2);
     }
     
     /**
-     * Logs the object at {@link Level#FINEST}.
-     * <p>
-     * The objects will be printed with {@link StringUtil#toString(Object)} to
-     * expand arrays and print the stacktrace for
-     * {@link Throwable Throwable's}.
-     * <p>
-     * If the first object is a string that contains
-     * {@link java.util.Formatter} codes, then it will be used to format the
-     * objects. Arrays will be converted to strings with
-     * {@link StringUtil#toString(Object)} before being formatted.
+     * Logs the objects separated by spaces at {@link Level#ALL}. Unlike
+     * {@link #all(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
+     */
+    public void all(Object object0, Object object1, Object object2, Object object3)
+    {
+        log(Level.ALL, object0, object1, object2, object3);
+    }
+    
+    /**
+     * Logs the object and a boolean separated by a space at {@link Level#ALL}. The
+     * value is only boxed if the message is logged.
      *
      * @param object The object to log.
+     * @param value  The value to log.
      */
-    public void finest(Object object)
+    public void all(Object object, boolean value)
     {
-        log(Level.FINEST, object);
+        log(Level.ALL, object, value);
+    }
+    
+    /**
+     * Logs the object and a char separated by a space at {@link Level#ALL}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void all(Object object, char value)
+    {
+        log(Level.ALL, object, value);
+    }
+    
+    /**
+     * Logs the object and an int separated by a space at {@link Level#ALL}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void all(Object object, int value)
+    {
+        log(Level.ALL, object, value);
+    }
+    
+    /**
+     * Logs the object and a long separated by a space at {@link Level#ALL}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void all(Object object, long value)
+    {
+        log(Level.ALL, object, value);
+    }
+    
+    /**
+     * Logs the object and a float separated by a space at {@link Level#ALL}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void all(Object object, float value)
+    {
+        log(Level.ALL, object, value);
+    }
+    
+    /**
+     * Logs the object and a double separated by a space at {@link Level#ALL}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void all(Object object, double value)
+    {
+        log(Level.ALL, object, value);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#ALL}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param objects The objects to log.
+     */
+    public void all(Object... objects)
+    {
+        log(Level.ALL, objects);
+    }
+    
+    /**
+     * Logs the object at {@link Level#SEVERE}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param object The object to log.
+     */
+    public void severe(Object object)
+    {
+        log(Level.SEVERE, object);
+    }
+    
+    /**
+     * Logs the object returned by the supplier at {@link Level#SEVERE}. The supplier is
+     * only called if the message will be logged.
+     *
+     * @param supplier The supplier of the object to log.
+     */
+    public void severe(Supplier<?> supplier)
+    {
+        log(Level.SEVERE, supplier);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#SEVERE}. Unlike
+     * {@link #severe(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     */
+    public void severe(Object object0, Object object1)
+    {
+        log(Level.SEVERE, object0, object1);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#SEVERE}. Unlike
+     * {@link #severe(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     */
+    public void severe(Object object0, Object object1, Object object2)
+    {
+        log(Level.SEVERE, object0, object1, object2);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#SEVERE}. Unlike
+     * {@link #severe(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
+     */
+    public void severe(Object object0, Object object1, Object object2, Object object3)
+    {
+        log(Level.SEVERE, object0, object1, object2, object3);
+    }
+    
+    /**
+     * Logs the object and a boolean separated by a space at {@link Level#SEVERE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void severe(Object object, boolean value)
+    {
+        log(Level.SEVERE, object, value);
+    }
+    
+    /**
+     * Logs the object and a char separated by a space at {@link Level#SEVERE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void severe(Object object, char value)
+    {
+        log(Level.SEVERE, object, value);
+    }
+    
+    /**
+     * Logs the object and an int separated by a space at {@link Level#SEVERE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void severe(Object object, int value)
+    {
+        log(Level.SEVERE, object, value);
+    }
+    
+    /**
+     * Logs the object and a long separated by a space at {@link Level#SEVERE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void severe(Object object, long value)
+    {
+        log(Level.SEVERE, object, value);
+    }
+    
+    /**
+     * Logs the object and a float separated by a space at {@link Level#SEVERE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void severe(Object object, float value)
+    {
+        log(Level.SEVERE, object, value);
+    }
+    
+    /**
+     * Logs the object and a double separated by a space at {@link Level#SEVERE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void severe(Object object, double value)
+    {
+        log(Level.SEVERE, object, value);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#SEVERE}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param objects The objects to log.
+     */
+    public void severe(Object... objects)
+    {
+        log(Level.SEVERE, objects);
+    }
+    
+    /**
+     * Logs the object at {@link Level#WARNING}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param object The object to log.
+     */
+    public void warning(Object object)
+    {
+        log(Level.WARNING, object);
+    }
+    
+    /**
+     * Logs the object returned by the supplier at {@link Level#WARNING}. The supplier is
+     * only called if the message will be logged.
+     *
+     * @param supplier The supplier of the object to log.
+     */
+    public void warning(Supplier<?> supplier)
+    {
+        log(Level.WARNING, supplier);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#WARNING}. Unlike
+     * {@link #warning(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     */
+    public void warning(Object object0, Object object1)
+    {
+        log(Level.WARNING, object0, object1);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#WARNING}. Unlike
+     * {@link #warning(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     */
+    public void warning(Object object0, Object object1, Object object2)
+    {
+        log(Level.WARNING, object0, object1, object2);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#WARNING}. Unlike
+     * {@link #warning(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
+     */
+    public void warning(Object object0, Object object1, Object object2, Object object3)
+    {
+        log(Level.WARNING, object0, object1, object2, object3);
+    }
+    
+    /**
+     * Logs the object and a boolean separated by a space at {@link Level#WARNING}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void warning(Object object, boolean value)
+    {
+        log(Level.WARNING, object, value);
+    }
+    
+    /**
+     * Logs the object and a char separated by a space at {@link Level#WARNING}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void warning(Object object, char value)
+    {
+        log(Level.WARNING, object, value);
+    }
+    
+    /**
+     * Logs the object and an int separated by a space at {@link Level#WARNING}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void warning(Object object, int value)
+    {
+        log(Level.WARNING, object, value);
+    }
+    
+    /**
+     * Logs the object and a long separated by a space at {@link Level#WARNING}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void warning(Object object, long value)
+    {
+        log(Level.WARNING, object, value);
+    }
+    
+    /**
+     * Logs the object and a float separated by a space at {@link Level#WARNING}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void warning(Object object, float value)
+    {
+        log(Level.WARNING, object, value);
+    }
+    
+    /**
+     * Logs the object and a double separated by a space at {@link Level#WARNING}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void warning(Object object, double value)
+    {
+        log(Level.WARNING, object, value);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#WARNING}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param objects The objects to log.
+     */
+    public void warning(Object... objects)
+    {
+        log(Level.WARNING, objects);
+    }
+    
+    /**
+     * Logs the object at {@link Level#INFO}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param object The object to log.
+     */
+    public void info(Object object)
+    {
+        log(Level.INFO, object);
+    }
+    
+    /**
+     * Logs the object returned by the supplier at {@link Level#INFO}. The supplier is
+     * only called if the message will be logged.
+     *
+     * @param supplier The supplier of the object to log.
+     */
+    public void info(Supplier<?> supplier)
+    {
+        log(Level.INFO, supplier);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#INFO}. Unlike
+     * {@link #info(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     */
+    public void info(Object object0, Object object1)
+    {
+        log(Level.INFO, object0, object1);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#INFO}. Unlike
+     * {@link #info(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     */
+    public void info(Object object0, Object object1, Object object2)
+    {
+        log(Level.INFO, object0, object1, object2);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#INFO}. Unlike
+     * {@link #info(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
+     */
+    public void info(Object object0, Object object1, Object object2, Object object3)
+    {
+        log(Level.INFO, object0, object1, object2, object3);
+    }
+    
+    /**
+     * Logs the object and a boolean separated by a space at {@link Level#INFO}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void info(Object object, boolean value)
+    {
+        log(Level.INFO, object, value);
+    }
+    
+    /**
+     * Logs the object and a char separated by a space at {@link Level#INFO}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void info(Object object, char value)
+    {
+        log(Level.INFO, object, value);
+    }
+    
+    /**
+     * Logs the object and an int separated by a space at {@link Level#INFO}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void info(Object object, int value)
+    {
+        log(Level.INFO, object, value);
+    }
+    
+    /**
+     * Logs the object and a long separated by a space at {@link Level#INFO}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void info(Object object, long value)
+    {
+        log(Level.INFO, object, value);
+    }
+    
+    /**
+     * Logs the object and a float separated by a space at {@link Level#INFO}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void info(Object object, float value)
+    {
+        log(Level.INFO, object, value);
+    }
+    
+    /**
+     * Logs the object and a double separated by a space at {@link Level#INFO}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void info(Object object, double value)
+    {
+        log(Level.INFO, object, value);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#INFO}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param objects The objects to log.
+     */
+    public void info(Object... objects)
+    {
+        log(Level.INFO, objects);
+    }
+    
+    /**
+     * Logs the object at {@link Level#CONFIG}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param object The object to log.
+     */
+    public void config(Object object)
+    {
+        log(Level.CONFIG, object);
+    }
+    
+    /**
+     * Logs the object returned by the supplier at {@link Level#CONFIG}. The supplier is
+     * only called if the message will be logged.
+     *
+     * @param supplier The supplier of the object to log.
+     */
+    public void config(Supplier<?> supplier)
+    {
+        log(Level.CONFIG, supplier);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#CONFIG}. Unlike
+     * {@link #config(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     */
+    public void config(Object object0, Object object1)
+    {
+        log(Level.CONFIG, object0, object1);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#CONFIG}. Unlike
+     * {@link #config(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     */
+    public void config(Object object0, Object object1, Object object2)
+    {
+        log(Level.CONFIG, object0, object1, object2);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#CONFIG}. Unlike
+     * {@link #config(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
+     */
+    public void config(Object object0, Object object1, Object object2, Object object3)
+    {
+        log(Level.CONFIG, object0, object1, object2, object3);
+    }
+    
+    /**
+     * Logs the object and a boolean separated by a space at {@link Level#CONFIG}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void config(Object object, boolean value)
+    {
+        log(Level.CONFIG, object, value);
+    }
+    
+    /**
+     * Logs the object and a char separated by a space at {@link Level#CONFIG}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void config(Object object, char value)
+    {
+        log(Level.CONFIG, object, value);
+    }
+    
+    /**
+     * Logs the object and an int separated by a space at {@link Level#CONFIG}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void config(Object object, int value)
+    {
+        log(Level.CONFIG, object, value);
+    }
+    
+    /**
+     * Logs the object and a long separated by a space at {@link Level#CONFIG}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void config(Object object, long value)
+    {
+        log(Level.CONFIG, object, value);
+    }
+    
+    /**
+     * Logs the object and a float separated by a space at {@link Level#CONFIG}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void config(Object object, float value)
+    {
+        log(Level.CONFIG, object, value);
+    }
+    
+    /**
+     * Logs the object and a double separated by a space at {@link Level#CONFIG}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void config(Object object, double value)
+    {
+        log(Level.CONFIG, object, value);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#CONFIG}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param objects The objects to log.
+     */
+    public void config(Object... objects)
+    {
+        log(Level.CONFIG, objects);
+    }
+    
+    /**
+     * Logs the object at {@link Level#FINE}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param object The object to log.
+     */
+    public void fine(Object object)
+    {
+        log(Level.FINE, object);
+    }
+    
+    /**
+     * Logs the object returned by the supplier at {@link Level#FINE}. The supplier is
+     * only called if the message will be logged.
+     *
+     * @param supplier The supplier of the object to log.
+     */
+    public void fine(Supplier<?> supplier)
+    {
+        log(Level.FINE, supplier);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINE}. Unlike
+     * {@link #fine(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     */
+    public void fine(Object object0, Object object1)
+    {
+        log(Level.FINE, object0, object1);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINE}. Unlike
+     * {@link #fine(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     */
+    public void fine(Object object0, Object object1, Object object2)
+    {
+        log(Level.FINE, object0, object1, object2);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINE}. Unlike
+     * {@link #fine(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
+     */
+    public void fine(Object object0, Object object1, Object object2, Object object3)
+    {
+        log(Level.FINE, object0, object1, object2, object3);
+    }
+    
+    /**
+     * Logs the object and a boolean separated by a space at {@link Level#FINE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void fine(Object object, boolean value)
+    {
+        log(Level.FINE, object, value);
+    }
+    
+    /**
+     * Logs the object and a char separated by a space at {@link Level#FINE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void fine(Object object, char value)
+    {
+        log(Level.FINE, object, value);
+    }
+    
+    /**
+     * Logs the object and an int separated by a space at {@link Level#FINE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void fine(Object object, int value)
+    {
+        log(Level.FINE, object, value);
+    }
+    
+    /**
+     * Logs the object and a long separated by a space at {@link Level#FINE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void fine(Object object, long value)
+    {
+        log(Level.FINE, object, value);
+    }
+    
+    /**
+     * Logs the object and a float separated by a space at {@link Level#FINE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void fine(Object object, float value)
+    {
+        log(Level.FINE, object, value);
+    }
+    
+    /**
+     * Logs the object and a double separated by a space at {@link Level#FINE}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void fine(Object object, double value)
+    {
+        log(Level.FINE, object, value);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINE}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param objects The objects to log.
+     */
+    public void fine(Object... objects)
+    {
+        log(Level.FINE, objects);
+    }
+    
+    /**
+     * Logs the object at {@link Level#FINER}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param object The object to log.
+     */
+    public void finer(Object object)
+    {
+        log(Level.FINER, object);
+    }
+    
+    /**
+     * Logs the object returned by the supplier at {@link Level#FINER}. The supplier is
+     * only called if the message will be logged.
+     *
+     * @param supplier The supplier of the object to log.
+     */
+    public void finer(Supplier<?> supplier)
+    {
+        log(Level.FINER, supplier);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINER}. Unlike
+     * {@link #finer(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     */
+    public void finer(Object object0, Object object1)
+    {
+        log(Level.FINER, object0, object1);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINER}. Unlike
+     * {@link #finer(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     */
+    public void finer(Object object0, Object object1, Object object2)
+    {
+        log(Level.FINER, object0, object1, object2);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINER}. Unlike
+     * {@link #finer(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
+     */
+    public void finer(Object object0, Object object1, Object object2, Object object3)
+    {
+        log(Level.FINER, object0, object1, object2, object3);
+    }
+    
+    /**
+     * Logs the object and a boolean separated by a space at {@link Level#FINER}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finer(Object object, boolean value)
+    {
+        log(Level.FINER, object, value);
+    }
+    
+    /**
+     * Logs the object and a char separated by a space at {@link Level#FINER}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finer(Object object, char value)
+    {
+        log(Level.FINER, object, value);
+    }
+    
+    /**
+     * Logs the object and an int separated by a space at {@link Level#FINER}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finer(Object object, int value)
+    {
+        log(Level.FINER, object, value);
+    }
+    
+    /**
+     * Logs the object and a long separated by a space at {@link Level#FINER}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finer(Object object, long value)
+    {
+        log(Level.FINER, object, value);
+    }
+    
+    /**
+     * Logs the object and a float separated by a space at {@link Level#FINER}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finer(Object object, float value)
+    {
+        log(Level.FINER, object, value);
+    }
+    
+    /**
+     * Logs the object and a double separated by a space at {@link Level#FINER}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finer(Object object, double value)
+    {
+        log(Level.FINER, object, value);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINER}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param objects The objects to log.
+     */
+    public void finer(Object... objects)
+    {
+        log(Level.FINER, objects);
+    }
+    
+    /**
+     * Logs the object at {@link Level#FINEST}.
+     * <p>
+     * The objects will be printed with {@link StringUtil#toString(Object)} to
+     * expand arrays and print the stacktrace for
+     * {@link Throwable Throwable's}.
+     * <p>
+     * If the first object is a string that contains
+     * {@link java.util.Formatter} codes, then it will be used to format the
+     * objects. Arrays will be converted to strings with
+     * {@link StringUtil#toString(Object)} before being formatted.
+     *
+     * @param object The object to log.
+     */
+    public void finest(Object object)
+    {
+        log(Level.FINEST, object);
+    }
+    
+    /**
+     * Logs the object returned by the supplier at {@link Level#FINEST}. The supplier is
+     * only called if the message will be logged.
+     *
+     * @param supplier The supplier of the object to log.
+     */
+    public void finest(Supplier<?> supplier)
+    {
+        log(Level.FINEST, supplier);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINEST}. Unlike
+     * {@link #finest(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     */
+    public void finest(Object object0, Object object1)
+    {
+        log(Level.FINEST, object0, object1);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINEST}. Unlike
+     * {@link #finest(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     */
+    public void finest(Object object0, Object object1, Object object2)
+    {
+        log(Level.FINEST, object0, object1, object2);
+    }
+    
+    /**
+     * Logs the objects separated by spaces at {@link Level#FINEST}. Unlike
+     * {@link #finest(Object...)}, nothing is allocated if the message is not logged.
+     *
+     * @param object0 The first object to log.
+     * @param object1 The second object to log.
+     * @param object2 The third object to log.
+     * @param object3 The fourth object to log.
+     */
+    public void finest(Object object0, Object object1, Object object2, Object object3)
+    {
+        log(Level.FINEST, object0, object1, object2, object3);
+    }
+    
+    /**
+     * Logs the object and a boolean separated by a space at {@link Level#FINEST}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finest(Object object, boolean value)
+    {
+        log(Level.FINEST, object, value);
+    }
+    
+    /**
+     * Logs the object and a char separated by a space at {@link Level#FINEST}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finest(Object object, char value)
+    {
+        log(Level.FINEST, object, value);
+    }
+    
+    /**
+     * Logs the object and an int separated by a space at {@link Level#FINEST}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finest(Object object, int value)
+    {
+        log(Level.FINEST, object, value);
+    }
+    
+    /**
+     * Logs the object and a long separated by a space at {@link Level#FINEST}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finest(Object object, long value)
+    {
+        log(Level.FINEST, object, value);
+    }
+    
+    /**
+     * Logs the object and a float separated by a space at {@link Level#FINEST}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finest(Object object, float value)
+    {
+        log(Level.FINEST, object, value);
+    }
+    
+    /**
+     * Logs the object and a double separated by a space at {@link Level#FINEST}. The
+     * value is only boxed if the message is logged.
+     *
+     * @param object The object to log.
+     * @param value  The value to log.
+     */
+    public void finest(Object object, double value)
+    {
+        log(Level.FINEST, object, value);
     }
     
     /**
@@ -609,10 +2151,538 @@ public class Logger
     {
         if (obj instanceof Throwable) return StringUtil.toString(obj);
         if (obj != null && obj.getClass().isArray()) return StringUtil.toString(obj);
-        if (obj instanceof Supplier<?> supplier) return transformObject(supplier.get());
         return obj;
     }
     
+    /**
+     * Copies the objects for the async writer to put in the binary log later.
+     * Anything that could change before then is turned into a string now.
+     */
+    private static Object[] snapshot(Object[] objects)
+    {
+        Object[] copy = new Object[objects.length];
+        for (int i = 0, n = objects.length; i < n; i++)
+        {
+            Object object = objects[i];
+            copy[i] = object == null || object instanceof String || object instanceof Boolean || object instanceof Character ||
+                      object instanceof Byte || object instanceof Short || object instanceof Integer || object instanceof Long ||
+                      object instanceof Float || object instanceof Double ? object : StringUtil.toString(object);
+        }
+        return copy;
+    }
+    
+    /**
+     * Calls each supplier once, so the binary log and the text get the same
+     * values. The array is only copied if it holds a supplier.
+     */
+    private static Object[] resolveSuppliers(Object[] objects)
+    {
+        Object[] resolved = objects;
+        for (int i = 0, n = objects.length; i < n; i++)
+        {
+            Object object = objects[i];
+            if (!(object instanceof Supplier<?>)) continue;
+            
+            while (object instanceof Supplier<?> supplier) object = supplier.get();
+            if (resolved == objects) resolved = objects.clone();
+            resolved[i] = object;
+        }
+        return resolved;
+    }
+    
+    /**
+     * What happens to a message when the async buffer is full.
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * The logging thread waits until there is room.
+         */
+        BLOCK,
+        /**
+         * The message is dropped.
+         */
+        DROP,
+        /**
+         * Messages below the {@link #getOverflowLevel() overflow level} are
+         * dropped, and the logging thread waits for room for the rest.
+         */
+        DROP_BELOW_LEVEL
+    }
+    
+    private static final class Threshold
+    {
+        private final int     version;
+        private final int     value;
+        private final boolean filtered;
+        
+        private Threshold(int version, int value, boolean filtered)
+        {
+            this.version  = version;
+            this.value    = value;
+            this.filtered = filtered;
+        }
+    }
+    
+    private static final class Record
+    {
+        private final long           time;
+        private final String         thread;
+        private final Level          level;
+        private final String         name;
+        private final String         message;
+        private final BinaryLog      binaryLog;
+        private final Object[]       objects;
+        private final CountDownLatch flushed;
+        
+        private Record(long time, String thread, Level level, String name, String message, BinaryLog binaryLog, Object[] objects)
+        {
+            this.time      = time;
+            this.thread    = thread;
+            this.level     = level;
+            this.name      = name;
+            this.message   = message;
+            this.binaryLog = binaryLog;
+            this.objects   = objects;
+            this.flushed   = null;
+        }
+        
+        private Record(CountDownLatch flushed)
+        {
+            this.time      = 0L;
+            this.thread    = null;
+            this.level     = null;
+            this.name      = null;
+            this.message   = null;
+            this.binaryLog = null;
+            this.objects   = null;
+            this.flushed   = flushed;
+        }
+    }
+    
+    private static final class AsyncWriter implements Runnable
+    {
+        private final RingBuffer<Record> buffer;
+        private final Signal             signal = new Signal();
+        private final Thread             thread;
+        
+        private volatile boolean running = true;
+        private volatile boolean stopped = false;
+        
+        /**
+         * The number of threads inside {@link #enqueue}.
+         */
+        private final AtomicInteger producers = new AtomicInteger();
+        
+        private final LineEncoder               encoder = new LineEncoder();
+        private final ArrayList<CountDownLatch> flushed = new ArrayList<>();
+        
+        private boolean hasConsole, hasFile;
+        private boolean flushNow, dirty;
+        private long    lastFlush;
+        
+        private AsyncWriter(int bufferSize)
+        {
+            this.buffer = new RingBuffer<>(bufferSize);
+            this.thread = new Thread(this, "Logger");
+            this.thread.setDaemon(true);
+        }
+        
+        /**
+         * Adds a record for the writer thread, or drops it if the buffer is
+         * full and the overflow policy allows it.
+         *
+         * @return {@code false} if the writer has been stopped, so the caller has to write the record itself.
+         */
+        private boolean enqueue(Record record, boolean block)
+        {
+            this.producers.incrementAndGet();
+            try
+            {
+                if (this.stopped) return false;
+                if (this.buffer.offer(record))
+                {
+                    this.signal.signal();
+                    return true;
+                }
+                if (!block && drop(record))
+                {
+                    Logger.DROPPED.increment();
+                    return true;
+                }
+                do
+                {
+                    this.signal.signal();
+                    LockSupport.parkNanos(this, 10_000L);
+                }
+                while (!this.buffer.offer(record));
+                this.signal.signal();
+                return true;
+            }
+            finally
+            {
+                this.producers.decrementAndGet();
+            }
+        }
+        
+        private static boolean drop(Record record)
+        {
+            return switch (Logger.overflowPolicy)
+                    {
+                        case BLOCK -> false;
+                        case DROP -> true;
+                        case DROP_BELOW_LEVEL -> record.level.intValue() < Logger.overflowLevel.intValue();
+                    };
+        }
+        
+        @Override
+        public void run()
+        {
+            this.lastFlush = System.nanoTime();
+            while (true)
+            {
+                this.hasConsole = this.hasFile = false;
+                for (OutputStream outputStream : Logger.OUTPUT_STREAMS)
+                {
+                    if (outputStream instanceof BufferedOutputStream) this.hasConsole = true;
+                    else this.hasFile = true;
+                }
+                
+                if (this.buffer.drain(this::append, this.buffer.capacity()) > 0)
+                {
+                    write();
+                    continue;
+                }
+                if (this.dirty)
+                {
+                    long wait = this.running ? Logger.flushInterval - (System.nanoTime() - this.lastFlush) : 0L;
+                    if (wait > 0L)
+                    {
+                        this.signal.await(wait);
+                    }
+                    else
+                    {
+                        flushStreams();
+                    }
+                    continue;
+                }
+                if (!this.running) break;
+                this.signal.await();
+            }
+        }
+        
+        private void append(Record record)
+        {
+            if (record.flushed != null)
+            {
+                this.flushed.add(record.flushed);
+                this.flushNow = true;
+                return;
+            }
+            
+            if (record.binaryLog != null) writeBinary(record.binaryLog, record.time, record.thread, record.level, record.name, record.message, record.objects);
+            if (record.message == null) return;
+            
+            this.encoder.prefix(record.time, record.thread, record.level, record.name);
+            
+            if (this.hasConsole) this.encoder.console(record.level, record.message);
+            if (this.hasFile) this.encoder.file(record.message);
+            
+            if (record.level.intValue() >= Level.SEVERE.intValue()) this.flushNow = true;
+        }
+        
+        private void write()
+        {
+            for (OutputStream outputStream : Logger.OUTPUT_STREAMS)
+            {
+                try
+                {
+                    if (outputStream instanceof BufferedOutputStream)
+                    {
+                        this.encoder.writeConsole(outputStream);
+                    }
+                    else
+                    {
+                        this.encoder.writeFile(outputStream);
+                    }
+                }
+                catch (IOException e)
+                {
+                    Logger.LOGGER.warning("Could not log to output stream\n%s", e);
+                }
+            }
+            this.encoder.clear();
+            this.dirty = true;
+            
+            if (this.flushNow || Logger.flushInterval <= 0L) flushStreams();
+        }
+        
+        private void flushStreams()
+        {
+            for (OutputStream outputStream : Logger.OUTPUT_STREAMS)
+            {
+                try
+                {
+                    outputStream.flush();
+                }
+                catch (IOException e)
+                {
+                    Logger.LOGGER.warning("Could not flush output stream\n%s", e);
+                }
+            }
+            this.dirty     = false;
+            this.flushNow  = false;
+            this.lastFlush = System.nanoTime();
+            
+            for (CountDownLatch latch : this.flushed) latch.countDown();
+            this.flushed.clear();
+        }
+    }
+    
+    /**
+     * Turns messages into the bytes that are written to the output streams
+     * without building any strings along the way. Each thread keeps its own,
+     * so once the buffers have grown to fit, nothing is allocated per line.
+     * <p>
+     * The console and file text are appended to separate buffers, so the
+     * async writer can batch many messages into one write per stream.
+     */
+    static final class LineEncoder
+    {
+        private static final byte[] RED      = Logger.RED.getBytes(Bytes.CHARSET);
+        private static final byte[] YELLOW   = Logger.YELLOW.getBytes(Bytes.CHARSET);
+        private static final byte[] RESET    = Logger.RESET.getBytes(Bytes.CHARSET);
+        private static final byte[] NEW_LINE = System.lineSeparator().getBytes(Bytes.CHARSET);
+        
+        private final Bytes prefix  = new Bytes(128);
+        private final Bytes console = new Bytes(1024);
+        private final Bytes file    = new Bytes(1024);
+        
+        /**
+         * The time is always {@code HH:mm:ss.SSS}, so the text is only
+         * formatted once a second and the milliseconds are filled in by hand.
+         */
+        private final byte[] time   = new byte[12];
+        private       long   second = Long.MIN_VALUE;
+        
+        private boolean busy;
+        
+        /**
+         * Sets the prefix that is put in front of every line of the next
+         * message.
+         */
+        void prefix(long time, String thread, Level level, String name)
+        {
+            this.prefix.length = 0;
+            this.prefix.put((byte) '[').put(time(time)).put((byte) ']').put((byte) ' ');
+            this.prefix.put((byte) '[').put(thread).put((byte) '/').put(level.getName()).put((byte) ']');
+            if (!name.isEmpty()) this.prefix.put((byte) ' ').put((byte) '[').put(name).put((byte) ']');
+            this.prefix.put((byte) ':').put((byte) ' ');
+        }
+        
+        /**
+         * Appends the message to the console buffer, colored by level.
+         */
+        void console(Level level, String message)
+        {
+            byte[] color;
+            if (level.intValue() >= Level.SEVERE.intValue())
+            {
+                color = LineEncoder.RED;
+            }
+            else if (level.intValue() >= Level.WARNING.intValue())
+            {
+                color = LineEncoder.YELLOW;
+            }
+            else
+            {
+                color = null;
+            }
+            lines(this.console, color, message);
+        }
+        
+        /**
+         * Appends the message to the file buffer.
+         */
+        void file(String message)
+        {
+            lines(this.file, null, message);
+        }
+        
+        void writeConsole(OutputStream outputStream) throws IOException
+        {
+            outputStream.write(this.console.array, 0, this.console.length);
+        }
+        
+        void writeFile(OutputStream outputStream) throws IOException
+        {
+            outputStream.write(this.file.array, 0, this.file.length);
+        }
+        
+        void clear()
+        {
+            this.console.length = 0;
+            this.file.length    = 0;
+        }
+        
+        private byte[] time(long time)
+        {
+            long second = java.lang.Math.floorDiv(time, 1000L);
+            if (second != this.second)
+            {
+                String text = StringUtil.getTimeString(second * 1000L);
+                for (int i = 0; i < 9; i++) this.time[i] = (byte) text.charAt(i);
+                this.second = second;
+            }
+            int milli = (int) java.lang.Math.floorMod(time, 1000L);
+            this.time[9]  = (byte) ('0' + milli / 100);
+            this.time[10] = (byte) ('0' + milli / 10 % 10);
+            this.time[11] = (byte) ('0' + milli % 10);
+            return this.time;
+        }
+        
+        /**
+         * Splits the message the same way as {@link Logger#SPLIT_PATTERN}:
+         * on {@code \n} and {@code \r\n}, dropping trailing empty lines.
+         */
+        private void lines(Bytes out, byte[] color, String message)
+        {
+            int end = message.length();
+            if (message.indexOf('\n') >= 0)
+            {
+                while (end > 0 && message.charAt(end - 1) == '\n')
+                {
+                    end--;
+                    if (end > 0 && message.charAt(end - 1) == '\r') end--;
+                }
+            }
+            else
+            {
+                line(out, color, message, 0, end);
+                return;
+            }
+            
+            int start = 0;
+            while (start < end)
+            {
+                int index = message.indexOf('\n', start);
+                if (index < 0 || index >= end)
+                {
+                    line(out, color, message, start, end);
+                    return;
+                }
+                line(out, color, message, start, index > start && message.charAt(index - 1) == '\r' ? index - 1 : index);
+                start = index + 1;
+            }
+        }
+        
+        private void line(Bytes out, byte[] color, String message, int start, int end)
+        {
+            if (color != null) out.put(color);
+            out.put(this.prefix.array, 0, this.prefix.length);
+            out.put(message, start, end);
+            if (out == this.console) out.put(LineEncoder.RESET);
+            out.put(LineEncoder.NEW_LINE);
+        }
+    }
+    
+    /**
+     * A growable byte array that encodes text in the platform charset, the
+     * same as {@link String#getBytes()}. UTF-8 is encoded by hand so no
+     * array is made for each string.
+     */
+    private static final class Bytes
+    {
+        private static final Charset CHARSET = Charset.defaultCharset();
+        private static final boolean UTF_8   = Bytes.CHARSET.equals(StandardCharsets.UTF_8);
+        
+        private byte[] array;
+        private int    length;
+        
+        private Bytes(int capacity)
+        {
+            this.array = new byte[capacity];
+        }
+        
+        private void ensure(int count)
+        {
+            if (this.length + count > this.array.length)
+            {
+                this.array = Arrays.copyOf(this.array, Math.max(this.array.length << 1, this.length + count));
+            }
+        }
+        
+        private Bytes put(byte b)
+        {
+            ensure(1);
+            this.array[this.length++] = b;
+            return this;
+        }
+        
+        private Bytes put(byte[] bytes)
+        {
+            return put(bytes, 0, bytes.length);
+        }
+        
+        private Bytes put(byte[] bytes, int offset, int count)
+        {
+            ensure(count);
+            System.arraycopy(bytes, offset, this.array, this.length, count);
+            this.length += count;
+            return this;
+        }
+        
+        private Bytes put(String string)
+        {
+            return put(string, 0, string.length());
+        }
+        
+        private Bytes put(String string, int start, int end)
+        {
+            if (!Bytes.UTF_8) return put(string.substring(start, end).getBytes(Bytes.CHARSET));
+            
+            ensure((end - start) * 3);
+            byte[] array  = this.array;
+            int    length = this.length;
+            for (int i = start; i < end; i++)
+            {
+                char c = string.charAt(i);
+                if (c < 0x80)
+                {
+                    array[length++] = (byte) c;
+                }
+                else if (c < 0x800)
+                {
+                    array[length++] = (byte) (0xC0 | c >> 6);
+                    array[length++] = (byte) (0x80 | c & 0x3F);
+                }
+                else if (Character.isSurrogate(c))
+                {
+                    int codePoint = Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(string.charAt(i + 1)) ? Character.toCodePoint(c, string.charAt(++i)) : '?';
+                    if (codePoint == '?')
+                    {
+                        array[length++] = '?';
+                    }
+                    else
+                    {
+                        array[length++] = (byte) (0xF0 | codePoint >> 18);
+                        array[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                        array[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                        array[length++] = (byte) (0x80 | codePoint & 0x3F);
+                    }
+                }
+                else
+                {
+                    array[length++] = (byte) (0xE0 | c >> 12);
+                    array[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    array[length++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            this.length = length;
+            return this;
+        }
+    }
+    
     // Reset
     public static final String RESET = "\033[0m";
     
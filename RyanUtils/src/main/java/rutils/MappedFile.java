@@ -0,0 +1,199 @@
+package rutils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only file of any size that is mapped into memory, for files too
+ * large to map to one {@link MappedByteBuffer}.
+ * <p>
+ * The file is mapped as a number of segments of up to 1 GB, and is read with
+ * {@code long} positions. Reads that fall within one segment do not copy
+ * anything. The mapping is released when the file is {@link #close() closed},
+ * after which it must not be used.
+ */
+public class MappedFile implements AutoCloseable
+{
+    private static final Logger LOGGER = new Logger();
+    
+    static final long SEGMENT_SIZE = 1L << 30;
+    
+    private final Path path;
+    private final long size;
+    private final long segmentSize;
+    
+    private MappedByteBuffer[] segments;
+    
+    /**
+     * @param path        The path to the file.
+     * @param segmentSize The size of each segment in bytes.
+     */
+    MappedFile(@NotNull Path path, long segmentSize) throws IOException
+    {
+        this.path        = path;
+        this.segmentSize = segmentSize;
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            this.size     = channel.size();
+            this.segments = new MappedByteBuffer[(int) ((this.size + segmentSize - 1) / segmentSize)];
+            try
+            {
+                for (int i = 0, n = this.segments.length; i < n; i++)
+                {
+                    long position = i * segmentSize;
+                    this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, this.size - position));
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                close();
+                throw e;
+            }
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "MappedFile{" + "path=" + this.path + ", size=" + this.size + ", segments=" + (this.segments != null ? this.segments.length : 0) + '}';
+    }
+    
+    /**
+     * @return The path to the file.
+     */
+    public @NotNull Path path()
+    {
+        return this.path;
+    }
+    
+    /**
+     * @return The size of the file in bytes.
+     */
+    public long size()
+    {
+        return this.size;
+    }
+    
+    /**
+     * @return If the mapping has been released.
+     */
+    public boolean isClosed()
+    {
+        return this.segments == null;
+    }
+    
+    /**
+     * @return The number of segments the file is mapped in.
+     */
+    public int segmentCount()
+    {
+        return segments().length;
+    }
+    
+    /**
+     * Gets a read-only view of a segment, with its position at zero. The
+     * first byte of segment {@code i} is at position
+     * {@code i * segment(0).capacity()} in the file.
+     *
+     * @param index The index of the segment.
+     * @return The view of the segment.
+     */
+    public @NotNull ByteBuffer segment(int index)
+    {
+        return segments()[index].duplicate();
+    }
+    
+    /**
+     * @param position The position in the file.
+     * @return The byte at the position.
+     */
+    public byte get(long position)
+    {
+        checkRange(position, 1);
+        return segments()[(int) (position / this.segmentSize)].get((int) (position % this.segmentSize));
+    }
+    
+    /**
+     * Copies bytes from the file into a buffer, crossing segments if needed.
+     * The number of bytes copied is the buffer's remaining bytes, and its
+     * position is moved past them.
+     *
+     * @param position The position in the file to start at.
+     * @param dst      The buffer to copy into.
+     */
+    public void get(long position, @NotNull ByteBuffer dst)
+    {
+        checkRange(position, dst.remaining());
+        MappedByteBuffer[] segments = segments();
+        while (dst.hasRemaining())
+        {
+            MappedByteBuffer segment = segments[(int) (position / this.segmentSize)];
+            int              offset  = (int) (position % this.segmentSize);
+            int              length  = Math.min(dst.remaining(), segment.capacity() - offset);
+            dst.put(segment.slice(offset, length));
+            position += length;
+        }
+    }
+    
+    /**
+     * Gets a read-only view of part of the file. If the part is within one
+     * segment no bytes are copied, otherwise they are copied into a new heap
+     * buffer.
+     *
+     * @param position The position in the file to start at.
+     * @param length   The number of bytes.
+     * @return The view, with its position at zero.
+     */
+    public @NotNull ByteBuffer slice(long position, int length)
+    {
+        checkRange(position, length);
+        int index  = (int) (position / this.segmentSize);
+        int offset = (int) (position % this.segmentSize);
+        if (offset + (long) length <= this.segmentSize) return segments()[index].slice(offset, length);
+        
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        get(position, buffer);
+        return buffer.flip().asReadOnlyBuffer();
+    }
+    
+    /**
+     * Releases the mapping of every segment. Any view that was taken from the
+     * file must not be used after this.
+     */
+    @Override
+    public void close()
+    {
+        MappedByteBuffer[] segments = this.segments;
+        if (segments == null) return;
+        this.segments = null;
+        
+        MappedFile.LOGGER.finest("Unmapping", this.path);
+        
+        for (MappedByteBuffer segment : segments)
+        {
+            if (segment != null) IOUtil.unmap(segment);
+        }
+    }
+    
+    private MappedByteBuffer[] segments()
+    {
+        MappedByteBuffer[] segments = this.segments;
+        if (segments == null) throw new IllegalStateException("MappedFile is closed: " + this.path);
+        return segments;
+    }
+    
+    private void checkRange(long position, long length)
+    {
+        if (position < 0 || length < 0 || position + length > this.size)
+        {
+            throw new IndexOutOfBoundsException("Range [" + position + ", " + (position + length) + ") is out of bounds for size " + this.size);
+        }
+    }
+}
@@ -6,6 +6,31 @@ import java.nio.*;
 
 public class MemUtil
 {
+    /**
+     * Allocates a direct ByteBuffer with the {@link IOUtil#memAlloc(java.util.function.Function)
+     * allocation function}, which takes it from {@link BufferPool#DEFAULT} by
+     * default. Its contents are not cleared.
+     *
+     * @param size The size in bytes.
+     * @return The buffer, with its position at zero and its limit at the size.
+     */
+    public static @NotNull ByteBuffer memAlloc(int size)
+    {
+        return IOUtil.memAlloc().apply(size);
+    }
+    
+    /**
+     * Frees a buffer from {@link #memAlloc(int)} with the
+     * {@link IOUtil#memFree(java.util.function.Consumer) free function}. It
+     * must not be used after.
+     *
+     * @param buffer The buffer.
+     */
+    public static void memFree(@NotNull Buffer buffer)
+    {
+        IOUtil.free(buffer);
+    }
+    
     /**
      * Gets the size in bytes of an element of a {@link java.nio.Buffer Buffer}
      * object.
@@ -92,7 +117,7 @@ public class MemUtil
         if (srcPos + length > src.length) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.limit()) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest.put(destPos + i, src[srcPos + i]);
+        dest.put(destPos, src, srcPos, length);
     }
     
     /**
@@ -348,7 +373,7 @@ public class MemUtil
         if (srcPos + length > src.length) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.limit()) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest.put(destPos + i, src[srcPos + i]);
+        dest.put(destPos, src, srcPos, length);
     }
     
     /**
@@ -476,7 +501,7 @@ public class MemUtil
         if (srcPos + length > src.length) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.limit()) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest.put(destPos + i, src[srcPos + i]);
+        dest.put(destPos, src, srcPos, length);
     }
     
     /**
@@ -604,7 +629,7 @@ public class MemUtil
         if (srcPos + length > src.length) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.limit()) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest.put(destPos + i, src[srcPos + i]);
+        dest.put(destPos, src, srcPos, length);
     }
     
     /**
@@ -732,7 +757,7 @@ public class MemUtil
         if (srcPos + length > src.length) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.limit()) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest.put(destPos + i, src[srcPos + i]);
+        dest.put(destPos, src, srcPos, length);
     }
     
     /**
@@ -860,7 +885,7 @@ public class MemUtil
         if (srcPos + length > src.length) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.limit()) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest.put(destPos + i, src[srcPos + i]);
+        dest.put(destPos, src, srcPos, length);
     }
     
     /**
@@ -987,7 +1012,7 @@ public class MemUtil
         if (srcPos + length > src.limit()) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.length) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest[destPos + i] = src.get(srcPos + i);
+        src.get(srcPos, dest, destPos, length);
     }
     
     /**
@@ -1241,7 +1266,7 @@ public class MemUtil
         if (srcPos + length > src.limit()) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.length) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest[destPos + i] = src.get(srcPos + i);
+        src.get(srcPos, dest, destPos, length);
     }
     
     /**
@@ -1368,7 +1393,7 @@ public class MemUtil
         if (srcPos + length > src.limit()) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.length) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest[destPos + i] = src.get(srcPos + i);
+        src.get(srcPos, dest, destPos, length);
     }
     
     /**
@@ -1495,7 +1520,7 @@ public class MemUtil
         if (srcPos + length > src.limit()) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.length) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest[destPos + i] = src.get(srcPos + i);
+        src.get(srcPos, dest, destPos, length);
     }
     
     /**
@@ -1622,7 +1647,7 @@ public class MemUtil
         if (srcPos + length > src.limit()) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.length) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest[destPos + i] = src.get(srcPos + i);
+        src.get(srcPos, dest, destPos, length);
     }
     
     /**
@@ -1749,7 +1774,7 @@ public class MemUtil
         if (srcPos + length > src.limit()) throw new IndexOutOfBoundsException("index exceeded src size");
         if (destPos + length > dest.length) throw new IndexOutOfBoundsException("index exceeded dest size");
         
-        for (int i = 0; i < length; i++) dest[destPos + i] = src.get(srcPos + i);
+        src.get(srcPos, dest, destPos, length);
     }
     
     /**
@@ -1829,5 +1854,209 @@ public class MemUtil
         memCopy(src, src.position(), dest, 0, src.limit());
     }
     
+    /**
+     * Writes elements of an array as raw bytes into a ByteBuffer, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source array.
+     * @param srcPos  starting position in the source array.
+     * @param dest    the destination buffer.
+     * @param destPos starting byte offset in the destination buffer.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memWrite(short[] src, int srcPos, @NotNull ByteBuffer dest, int destPos, int length)
+    {
+        checkRange(srcPos, src.length, destPos, dest.limit(), length, Short.BYTES);
+        dest.slice(destPos, length * Short.BYTES).order(dest.order()).asShortBuffer().put(0, src, srcPos, length);
+    }
+    
+    /**
+     * Reads raw bytes from a ByteBuffer into elements of an array, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source buffer.
+     * @param srcPos  starting byte offset in the source buffer.
+     * @param dest    the destination array.
+     * @param destPos starting position in the destination array.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memRead(@NotNull ByteBuffer src, int srcPos, short[] dest, int destPos, int length)
+    {
+        checkRange(destPos, dest.length, srcPos, src.limit(), length, Short.BYTES);
+        src.slice(srcPos, length * Short.BYTES).order(src.order()).asShortBuffer().get(0, dest, destPos, length);
+    }
+    
+    /**
+     * Writes elements of an array as raw bytes into a ByteBuffer, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source array.
+     * @param srcPos  starting position in the source array.
+     * @param dest    the destination buffer.
+     * @param destPos starting byte offset in the destination buffer.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memWrite(int[] src, int srcPos, @NotNull ByteBuffer dest, int destPos, int length)
+    {
+        checkRange(srcPos, src.length, destPos, dest.limit(), length, Integer.BYTES);
+        dest.slice(destPos, length * Integer.BYTES).order(dest.order()).asIntBuffer().put(0, src, srcPos, length);
+    }
+    
+    /**
+     * Reads raw bytes from a ByteBuffer into elements of an array, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source buffer.
+     * @param srcPos  starting byte offset in the source buffer.
+     * @param dest    the destination array.
+     * @param destPos starting position in the destination array.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memRead(@NotNull ByteBuffer src, int srcPos, int[] dest, int destPos, int length)
+    {
+        checkRange(destPos, dest.length, srcPos, src.limit(), length, Integer.BYTES);
+        src.slice(srcPos, length * Integer.BYTES).order(src.order()).asIntBuffer().get(0, dest, destPos, length);
+    }
+    
+    /**
+     * Writes elements of an array as raw bytes into a ByteBuffer, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source array.
+     * @param srcPos  starting position in the source array.
+     * @param dest    the destination buffer.
+     * @param destPos starting byte offset in the destination buffer.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memWrite(long[] src, int srcPos, @NotNull ByteBuffer dest, int destPos, int length)
+    {
+        checkRange(srcPos, src.length, destPos, dest.limit(), length, Long.BYTES);
+        dest.slice(destPos, length * Long.BYTES).order(dest.order()).asLongBuffer().put(0, src, srcPos, length);
+    }
+    
+    /**
+     * Reads raw bytes from a ByteBuffer into elements of an array, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source buffer.
+     * @param srcPos  starting byte offset in the source buffer.
+     * @param dest    the destination array.
+     * @param destPos starting position in the destination array.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memRead(@NotNull ByteBuffer src, int srcPos, long[] dest, int destPos, int length)
+    {
+        checkRange(destPos, dest.length, srcPos, src.limit(), length, Long.BYTES);
+        src.slice(srcPos, length * Long.BYTES).order(src.order()).asLongBuffer().get(0, dest, destPos, length);
+    }
+    
+    /**
+     * Writes elements of an array as raw bytes into a ByteBuffer, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source array.
+     * @param srcPos  starting position in the source array.
+     * @param dest    the destination buffer.
+     * @param destPos starting byte offset in the destination buffer.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memWrite(float[] src, int srcPos, @NotNull ByteBuffer dest, int destPos, int length)
+    {
+        checkRange(srcPos, src.length, destPos, dest.limit(), length, Float.BYTES);
+        dest.slice(destPos, length * Float.BYTES).order(dest.order()).asFloatBuffer().put(0, src, srcPos, length);
+    }
+    
+    /**
+     * Reads raw bytes from a ByteBuffer into elements of an array, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source buffer.
+     * @param srcPos  starting byte offset in the source buffer.
+     * @param dest    the destination array.
+     * @param destPos starting position in the destination array.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memRead(@NotNull ByteBuffer src, int srcPos, float[] dest, int destPos, int length)
+    {
+        checkRange(destPos, dest.length, srcPos, src.limit(), length, Float.BYTES);
+        src.slice(srcPos, length * Float.BYTES).order(src.order()).asFloatBuffer().get(0, dest, destPos, length);
+    }
+    
+    /**
+     * Writes elements of an array as raw bytes into a ByteBuffer, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source array.
+     * @param srcPos  starting position in the source array.
+     * @param dest    the destination buffer.
+     * @param destPos starting byte offset in the destination buffer.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memWrite(double[] src, int srcPos, @NotNull ByteBuffer dest, int destPos, int length)
+    {
+        checkRange(srcPos, src.length, destPos, dest.limit(), length, Double.BYTES);
+        dest.slice(destPos, length * Double.BYTES).order(dest.order()).asDoubleBuffer().put(0, src, srcPos, length);
+    }
+    
+    /**
+     * Reads raw bytes from a ByteBuffer into elements of an array, in the
+     * buffer's {@link ByteOrder byte order}, with one bulk copy. The
+     * buffer's position is not moved.
+     *
+     * @param src     the source buffer.
+     * @param srcPos  starting byte offset in the source buffer.
+     * @param dest    the destination array.
+     * @param destPos starting position in the destination array.
+     * @param length  the number of array elements to be copied.
+     * @throws IndexOutOfBoundsException if copying would cause
+     *                                   access of data outside array bounds.
+     */
+    public static void memRead(@NotNull ByteBuffer src, int srcPos, double[] dest, int destPos, int length)
+    {
+        checkRange(destPos, dest.length, srcPos, src.limit(), length, Double.BYTES);
+        src.slice(srcPos, length * Double.BYTES).order(src.order()).asDoubleBuffer().get(0, dest, destPos, length);
+    }
+    
+    /**
+     * Checks a copy of {@code length} elements between an array and a
+     * ByteBuffer, where the buffer is indexed in bytes.
+     */
+    private static void checkRange(int arrayPos, int arrayLength, int bufferPos, int bufferLimit, int length, int elementSize)
+    {
+        if (arrayPos < 0) throw new IndexOutOfBoundsException("array position cannot be negative");
+        if (bufferPos < 0) throw new IndexOutOfBoundsException("buffer position cannot be negative");
+        if (length < 0) throw new IndexOutOfBoundsException("length cannot be negative");
+        
+        if ((long) arrayPos + length > arrayLength) throw new IndexOutOfBoundsException("index exceeded array size");
+        if (bufferPos + (long) length * elementSize > bufferLimit) throw new IndexOutOfBoundsException("index exceeded buffer size");
+    }
+    
     private MemUtil() { }
 }
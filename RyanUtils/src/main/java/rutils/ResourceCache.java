@@ -0,0 +1,369 @@
+package rutils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import rutils.profiler.Metric;
+import rutils.profiler.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the data of files that are loaded over and over, such as shaders and
+ * images, so that loading them again is a map lookup instead of resolving the
+ * path and reading the file.
+ * <p>
+ * Files are found with {@link IOUtil#getPath(String)} and read like
+ * {@link IOUtil#readFromFile(String)}. Each file is kept along with the time
+ * it was last modified and its size, and is read again when either changes.
+ * When the cache holds more bytes than its limit, the files that were used
+ * least recently are dropped.
+ * <p>
+ * By default, every lookup checks the file's attributes, which is much
+ * cheaper than reading it. If the cache is {@link #watch() watching}, files on
+ * the default file system are instead dropped when a change to them is seen,
+ * and lookups do not touch the disk at all. Files inside a jar cannot change
+ * and are never checked.
+ * <p>
+ * Buffers are allocated with {@link ByteBuffer#allocateDirect(int)} and are
+ * shared by every caller, so they must not be changed or freed. A buffer stays
+ * valid after its file is dropped from the cache.
+ */
+public class ResourceCache implements AutoCloseable
+{
+    private static final Logger LOGGER = new Logger();
+    
+    private final String name;
+    private final long   maxBytes;
+    
+    // Only accessed while holding the lock on entries.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private       long                         bytes   = 0L;
+    private       long                         changes = 0L;
+    
+    private final Metric.Counter hits;
+    private final Metric.Counter misses;
+    private final Metric.Counter evictions;
+    
+    private WatchService watcher;
+    
+    // Only accessed while holding the lock on entries.
+    private final HashSet<Path> watched = new HashSet<>();
+    
+    /**
+     * @param name     The name of the cache, used as the prefix of its {@link Metrics metrics}.
+     * @param maxBytes The most bytes of file data to keep.
+     */
+    public ResourceCache(@NotNull String name, long maxBytes)
+    {
+        this.name     = name;
+        this.maxBytes = maxBytes;
+        
+        this.hits      = Metrics.counter(name + ".hits");
+        this.misses    = Metrics.counter(name + ".misses");
+        this.evictions = Metrics.counter(name + ".evictions");
+        Metrics.gauge(name + ".bytes", this::bytes);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "ResourceCache{" + '\'' + this.name + '\'' + '}';
+    }
+    
+    /**
+     * @return The number of files in the cache.
+     */
+    public int size()
+    {
+        synchronized (this.entries)
+        {
+            return this.entries.size();
+        }
+    }
+    
+    /**
+     * @return The number of bytes of file data in the cache.
+     */
+    public long bytes()
+    {
+        synchronized (this.entries)
+        {
+            return this.bytes;
+        }
+    }
+    
+    /**
+     * @return If changes to files are being watched for.
+     */
+    public boolean isWatching()
+    {
+        synchronized (this.entries)
+        {
+            return this.watcher != null;
+        }
+    }
+    
+    /**
+     * Gets the data of a file, reading it if it is not in the cache or has
+     * changed since it was read.
+     *
+     * @param resource The path to the file.
+     * @return A view of the data, with a zero byte after it like {@link IOUtil#readFromFile(String)}, or null if the file could not be read.
+     */
+    public @Nullable ByteBuffer get(@NotNull String resource)
+    {
+        Entry entry;
+        long  changes;
+        synchronized (this.entries)
+        {
+            entry   = this.entries.get(resource);
+            changes = this.changes;
+        }
+        
+        Path path = entry != null ? entry.path : IOUtil.getPath(resource);
+        try
+        {
+            BasicFileAttributes attributes = null;
+            if (entry != null)
+            {
+                if (!entry.checked)
+                {
+                    this.hits.increment();
+                    return entry.buffer.duplicate();
+                }
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (entry.modified == attributes.lastModifiedTime().toMillis() && entry.size == attributes.size())
+                {
+                    this.hits.increment();
+                    return entry.buffer.duplicate();
+                }
+            }
+            this.misses.increment();
+            
+            if (attributes == null) attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            ByteBuffer buffer = IOUtil.read(path, new int[1], ByteBuffer::allocateDirect);
+            put(resource, new Entry(path, attributes.lastModifiedTime().toMillis(), attributes.size(), buffer), changes);
+            return buffer.duplicate();
+        }
+        catch (IOException e)
+        {
+            ResourceCache.LOGGER.warning("Could not load resource: \"%s\"\n%s", resource, e);
+            invalidate(resource);
+        }
+        return null;
+    }
+    
+    /**
+     * Drops a file from the cache, so it is read again the next time it is
+     * loaded.
+     *
+     * @param resource The path to the file.
+     */
+    public void invalidate(@NotNull String resource)
+    {
+        synchronized (this.entries)
+        {
+            Entry entry = this.entries.remove(resource);
+            if (entry != null) this.bytes -= entry.buffer.capacity();
+        }
+    }
+    
+    /**
+     * Drops every file from the cache.
+     */
+    public void clear()
+    {
+        synchronized (this.entries)
+        {
+            this.entries.clear();
+            this.bytes = 0L;
+        }
+    }
+    
+    /**
+     * Starts watching the directories of cached files on the default file
+     * system for changes, on a background thread. A file is dropped from the
+     * cache as soon as it is changed, so lookups no longer have to check it.
+     *
+     * @return {@code true} if changes are being watched for.
+     */
+    public boolean watch()
+    {
+        synchronized (this.entries)
+        {
+            if (this.watcher != null) return true;
+            try
+            {
+                this.watcher = FileSystems.getDefault().newWatchService();
+            }
+            catch (IOException | UnsupportedOperationException e)
+            {
+                ResourceCache.LOGGER.warning("%s could not watch for changes\n%s", this, e);
+                return false;
+            }
+            
+            WatchService watcher = this.watcher;
+            Thread thread = new Thread(() -> watchLoop(watcher), "ResourceCache-" + this.name);
+            thread.setDaemon(true);
+            thread.start();
+            
+            for (Entry entry : this.entries.values()) register(entry);
+            return true;
+        }
+    }
+    
+    /**
+     * Stops watching for changes. Every file is checked on each lookup again.
+     */
+    @Override
+    public void close()
+    {
+        WatchService watcher;
+        synchronized (this.entries)
+        {
+            watcher = this.watcher;
+            if (watcher == null) return;
+            this.watcher = null;
+            this.watched.clear();
+            for (Entry entry : this.entries.values()) entry.checked = true;
+        }
+        try
+        {
+            watcher.close();
+        }
+        catch (IOException e)
+        {
+            ResourceCache.LOGGER.warning("%s could not stop watching for changes\n%s", this, e);
+        }
+    }
+    
+    private void put(String resource, Entry entry, long changes)
+    {
+        long size = entry.buffer.capacity();
+        synchronized (this.entries)
+        {
+            Entry previous = this.entries.remove(resource);
+            if (previous != null) this.bytes -= previous.buffer.capacity();
+            if (size > this.maxBytes) return;
+            
+            register(entry);
+            
+            // A change seen while the file was being read may have been missed, so it is checked next time.
+            if (this.changes != changes) entry.checked = true;
+            this.entries.put(resource, entry);
+            this.bytes += size;
+            
+            Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+            while (this.bytes > this.maxBytes && iterator.hasNext())
+            {
+                Entry eldest = iterator.next().getValue();
+                iterator.remove();
+                this.bytes -= eldest.buffer.capacity();
+                this.evictions.increment();
+            }
+        }
+    }
+    
+    /**
+     * Stops checking a file's attributes if it is in a jar, or if its
+     * directory is being watched.
+     */
+    private void register(Entry entry)
+    {
+        if (entry.path.getFileSystem() != FileSystems.getDefault())
+        {
+            entry.checked = false;
+            return;
+        }
+        if (this.watcher == null) return;
+        
+        Path directory = entry.path.toAbsolutePath().getParent();
+        if (directory == null) return;
+        try
+        {
+            if (this.watched.add(directory))
+            {
+                directory.register(this.watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            entry.checked = false;
+        }
+        catch (IOException | ClosedWatchServiceException e)
+        {
+            this.watched.remove(directory);
+            ResourceCache.LOGGER.warning("%s could not watch directory: \"%s\"\n%s", this, directory, e);
+        }
+    }
+    
+    private void watchLoop(WatchService watcher)
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key       = watcher.take();
+                Path     directory = (Path) key.watchable();
+                
+                boolean overflow = false;
+                HashSet<Path> changed = new HashSet<>();
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                    {
+                        overflow = true;
+                    }
+                    else
+                    {
+                        changed.add(directory.resolve((Path) event.context()));
+                    }
+                }
+                
+                synchronized (this.entries)
+                {
+                    this.changes++;
+                    
+                    Iterator<Entry> iterator = this.entries.values().iterator();
+                    while (iterator.hasNext())
+                    {
+                        Entry entry    = iterator.next();
+                        Path  absolute = entry.path.toAbsolutePath();
+                        if (overflow ? directory.equals(absolute.getParent()) : changed.contains(absolute))
+                        {
+                            ResourceCache.LOGGER.finest("Changed", entry.path);
+                            
+                            iterator.remove();
+                            this.bytes -= entry.buffer.capacity();
+                        }
+                    }
+                    if (!key.reset()) this.watched.remove(directory);
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException ignored) { }
+    }
+    
+    private static final class Entry
+    {
+        private final Path       path;
+        private final long       modified;
+        private final long       size;
+        private final ByteBuffer buffer;
+        
+        // Only written while holding the lock on entries.
+        private volatile boolean checked = true;
+        
+        private Entry(Path path, long modified, long size, ByteBuffer buffer)
+        {
+            this.path     = path;
+            this.modified = modified;
+            this.size     = size;
+            this.buffer   = buffer;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package rutils;
+
+import org.jetbrains.annotations.NotNull;
+import rutils.profiler.Metric;
+import rutils.profiler.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads files on a fixed number of background threads, so that many files
+ * can be read at once instead of one after another.
+ * <p>
+ * Files are found with {@link IOUtil#getPath(String)} and read in the same
+ * way as {@link IOUtil#readFromFile(String)}. A file that is asked for again
+ * while it is still loading is only read once, and every caller gets its own
+ * view of the same buffer.
+ * <p>
+ * Buffers are allocated with {@link ByteBuffer#allocateDirect(int)} and are
+ * shared by every caller, so their contents must not be changed and they
+ * must not be freed.
+ * <p>
+ * A list of files can be {@link #prefetch(Collection) prefetched} ahead of
+ * time, such as every asset needed by the next level. Each prefetched file is
+ * kept until the first time it is {@link #load(String) loaded}.
+ */
+public class ResourceLoader implements AutoCloseable
+{
+    private static final Logger LOGGER = new Logger();
+    
+    private static final Metric.Counter DEDUPLICATED = Metrics.counter("ResourceLoader.deduplicated");
+    
+    private static final AtomicInteger LOADER_ID = new AtomicInteger(0);
+    
+    private final ExecutorService executor;
+    
+    // Only accessed while holding the lock on loads.
+    private final HashMap<String, CompletableFuture<ByteBuffer>> loads      = new HashMap<>();
+    private final HashSet<String>                                prefetched = new HashSet<>();
+    
+    /**
+     * @param threads The number of files that can be read at the same time.
+     */
+    public ResourceLoader(int threads)
+    {
+        int id = ResourceLoader.LOADER_ID.getAndIncrement();
+        
+        AtomicInteger threadId = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "ResourceLoader-" + id + "-" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Creates a loader with four threads.
+     */
+    public ResourceLoader()
+    {
+        this(4);
+    }
+    
+    /**
+     * Starts loading a file, or joins the load that is already running for
+     * it. If it fails, the future completes with an
+     * {@link UncheckedIOException}.
+     *
+     * @param resource The path to the file.
+     * @return The future of the data. Its buffer has a zero byte after the data, like {@link IOUtil#readFromFile(String)}, and is shared with every other load of the file.
+     */
+    public @NotNull CompletableFuture<ByteBuffer> load(@NotNull String resource)
+    {
+        CompletableFuture<ByteBuffer> future;
+        synchronized (this.loads)
+        {
+            future = this.loads.get(resource);
+            if (future == null)
+            {
+                future = start(resource);
+            }
+            else
+            {
+                ResourceLoader.DEDUPLICATED.increment();
+                
+                // The first load of a prefetched file takes it, so the next load reads it again.
+                if (this.prefetched.remove(resource) && future.isDone()) this.loads.remove(resource);
+            }
+        }
+        return future.thenApply(ByteBuffer::duplicate);
+    }
+    
+    /**
+     * Starts loading a number of files, and waits for all of them together.
+     *
+     * @param resources The paths to the files.
+     * @return The future of the data of each file by path, in the order they were given. It completes exceptionally if any of the files could not be loaded.
+     */
+    public @NotNull CompletableFuture<Map<String, ByteBuffer>> loadAll(@NotNull Collection<String> resources)
+    {
+        LinkedHashMap<String, CompletableFuture<ByteBuffer>> futures = new LinkedHashMap<>();
+        for (String resource : resources) futures.computeIfAbsent(resource, this::load);
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            LinkedHashMap<String, ByteBuffer> buffers = new LinkedHashMap<>();
+            futures.forEach((resource, future) -> buffers.put(resource, future.join()));
+            return buffers;
+        });
+    }
+    
+    /**
+     * Starts loading a number of files that will be needed later. They are
+     * kept until they are {@link #load(String) loaded}, so a later load does
+     * not have to wait for the file to be read.
+     *
+     * @param resources The paths to the files.
+     * @return A future that completes when every file has been read, whether or not it could be.
+     */
+    public @NotNull CompletableFuture<Void> prefetch(@NotNull Collection<String> resources)
+    {
+        ResourceLoader.LOGGER.finer("Prefetching %s resources", resources.size());
+        
+        ArrayList<CompletableFuture<ByteBuffer>> futures = new ArrayList<>();
+        synchronized (this.loads)
+        {
+            for (String resource : resources)
+            {
+                CompletableFuture<ByteBuffer> future = this.loads.get(resource);
+                if (future == null) future = start(resource);
+                this.prefetched.add(resource);
+                futures.add(future);
+            }
+        }
+        return CompletableFuture.allOf(futures.stream().map(future -> future.handle((buffer, throwable) -> null)).toArray(CompletableFuture[]::new));
+    }
+    
+    /**
+     * @return The number of files that are loading or have been prefetched and not loaded yet.
+     */
+    public int pending()
+    {
+        synchronized (this.loads)
+        {
+            return this.loads.size();
+        }
+    }
+    
+    /**
+     * Stops the threads once the files that have been asked for are loaded,
+     * and drops any prefetched files.
+     */
+    @Override
+    public void close()
+    {
+        this.executor.shutdown();
+        synchronized (this.loads)
+        {
+            for (String resource : this.prefetched)
+            {
+                CompletableFuture<ByteBuffer> future = this.loads.get(resource);
+                if (future != null && future.isDone()) this.loads.remove(resource);
+            }
+            this.prefetched.clear();
+        }
+    }
+    
+    private CompletableFuture<ByteBuffer> start(String resource)
+    {
+        ResourceLoader.LOGGER.finest("Loading", resource);
+        
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        this.loads.put(resource, future);
+        try
+        {
+            this.executor.execute(() -> read(resource, future));
+        }
+        catch (RejectedExecutionException e)
+        {
+            this.loads.remove(resource);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    private void read(String resource, CompletableFuture<ByteBuffer> future)
+    {
+        ByteBuffer buffer    = null;
+        Throwable  throwable = null;
+        try
+        {
+            buffer = IOUtil.read(IOUtil.getPath(resource), new int[1], ByteBuffer::allocateDirect);
+        }
+        catch (IOException e)
+        {
+            ResourceLoader.LOGGER.warning("Could not load resource: \"%s\"\n%s", resource, e);
+            throwable = new UncheckedIOException(e);
+        }
+        catch (RuntimeException | Error e)
+        {
+            throwable = e;
+        }
+        
+        synchronized (this.loads)
+        {
+            if (!this.prefetched.contains(resource)) this.loads.remove(resource);
+        }
+        
+        if (throwable == null)
+        {
+            future.complete(buffer);
+        }
+        else
+        {
+            future.completeExceptionally(throwable);
+        }
+    }
+}
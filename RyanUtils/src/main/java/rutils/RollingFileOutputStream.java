@@ -0,0 +1,314 @@
+package rutils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An output stream that writes to a log file through a memory-mapped region
+ * and rolls the file over when it gets too large or too old.
+ * <p>
+ * Writes are copies into the mapped region, so there is no system call per
+ * write and {@link #flush()} does nothing: the data is in the page cache as
+ * soon as it is written. The file is mapped in regions, and until the stream
+ * is closed or rolled the file ends in zeros up to the end of the current
+ * region.
+ * <p>
+ * When the file rolls, it is renamed to {@code <name>.<timestamp><extension>}
+ * in the same directory and a new file is started. Archives can optionally be
+ * gzipped on a background thread. Only the newest {@code maxBackups} archives
+ * are kept.
+ */
+public class RollingFileOutputStream extends OutputStream
+{
+    private static final Logger LOGGER = new Logger();
+    
+    private static final DateTimeFormatter ARCHIVE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd_HH-mm-ss-SSS");
+    
+    private static final long REGION_SIZE = 4L << 20;
+    
+    private final Path   path;
+    private final String prefix;
+    private final String extension;
+    
+    private final long    maxSize;
+    private final long    maxAge;
+    private final int     maxBackups;
+    private final boolean compress;
+    
+    private final ExecutorService archiver;
+    
+    private FileChannel      channel;
+    private MappedByteBuffer region;
+    private long             regionStart;
+    private long             size;
+    private long             opened;
+    
+    /**
+     * Creates a new rolling file. If the file already exists, it is archived
+     * first.
+     *
+     * @param path       The path to the log file.
+     * @param maxSize    The size in bytes at which the file is rolled, or zero or less to not roll by size.
+     * @param maxAge     The time in seconds after which the file is rolled, or zero or less to not roll by time.
+     * @param maxBackups The number of archives to keep.
+     * @param compress   If archives should be gzipped.
+     * @throws IOException If the file could not be opened.
+     */
+    public RollingFileOutputStream(@NotNull Path path, long maxSize, double maxAge, int maxBackups, boolean compress) throws IOException
+    {
+        this.path = path.toAbsolutePath();
+        
+        String name  = this.path.getFileName().toString();
+        int    index = name.lastIndexOf('.');
+        this.prefix    = (index > 0 ? name.substring(0, index) : name) + '.';
+        this.extension = index > 0 ? name.substring(index) : "";
+        
+        this.maxSize    = maxSize;
+        this.maxAge     = (long) (maxAge * 1_000_000_000L);
+        this.maxBackups = maxBackups;
+        this.compress   = compress;
+        
+        this.archiver = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RollingFile-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        Path parent = this.path.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        
+        if (Files.exists(this.path) && Files.size(this.path) > 0) archive();
+        open();
+    }
+    
+    /**
+     * @return The path to the current log file.
+     */
+    public @NotNull Path path()
+    {
+        return this.path;
+    }
+    
+    @Override
+    public synchronized void write(int b) throws IOException
+    {
+        ensureOpen();
+        if (shouldRoll(1)) roll();
+        if (!this.region.hasRemaining()) map(this.regionStart + this.region.capacity());
+        this.region.put((byte) b);
+        this.size++;
+    }
+    
+    @Override
+    public synchronized void write(byte @NotNull [] b, int off, int len) throws IOException
+    {
+        ensureOpen();
+        if (shouldRoll(len)) roll();
+        while (len > 0)
+        {
+            if (!this.region.hasRemaining()) map(this.regionStart + this.region.capacity());
+            
+            int count = Math.min(len, this.region.remaining());
+            this.region.put(b, off, count);
+            off += count;
+            len -= count;
+            this.size += count;
+        }
+    }
+    
+    /**
+     * Does nothing. Written data is already visible to other readers of the
+     * file.
+     */
+    @Override
+    public void flush() { }
+    
+    /**
+     * Rolls the file over now, even if it is not full or old enough.
+     *
+     * @throws IOException If the file could not be rolled.
+     */
+    public synchronized void roll() throws IOException
+    {
+        ensureOpen();
+        finish();
+        try
+        {
+            archive();
+        }
+        finally
+        {
+            open();
+        }
+    }
+    
+    /**
+     * Trims the file to the data written and waits for any archives to be
+     * compressed.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (this.channel == null) return;
+        finish();
+        this.archiver.shutdown();
+        try
+        {
+            if (!this.archiver.awaitTermination(1, TimeUnit.MINUTES))
+            {
+                RollingFileOutputStream.LOGGER.warning("Timed out waiting for archives of", this.path);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void ensureOpen() throws IOException
+    {
+        if (this.channel == null) throw new IOException("Stream Closed");
+    }
+    
+    private boolean shouldRoll(int length)
+    {
+        if (this.size == 0) return false;
+        if (this.maxSize > 0 && this.size + length > this.maxSize) return true;
+        return this.maxAge > 0 && System.nanoTime() - this.opened >= this.maxAge;
+    }
+    
+    private void open() throws IOException
+    {
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size    = 0;
+        this.opened  = System.nanoTime();
+        map(0);
+    }
+    
+    private void map(long position) throws IOException
+    {
+        if (this.region != null) IOUtil.unmap(this.region);
+        
+        long regionSize = this.maxSize > 0 ? Math.min(RollingFileOutputStream.REGION_SIZE, this.maxSize) : RollingFileOutputStream.REGION_SIZE;
+        
+        this.regionStart = position;
+        this.region      = this.channel.map(FileChannel.MapMode.READ_WRITE, position, regionSize);
+    }
+    
+    private void finish() throws IOException
+    {
+        if (this.region != null) IOUtil.unmap(this.region);
+        this.region = null;
+        
+        this.channel.truncate(this.size);
+        this.channel.close();
+        this.channel = null;
+    }
+    
+    private void archive() throws IOException
+    {
+        String timestamp = LocalDateTime.now().format(RollingFileOutputStream.ARCHIVE_FORMAT);
+        
+        Path archive = this.path.resolveSibling(this.prefix + timestamp + this.extension);
+        for (int i = 1; Files.exists(archive) || Files.exists(gzipPath(archive)); i++)
+        {
+            archive = this.path.resolveSibling(this.prefix + timestamp + String.format("_%03d", i) + this.extension);
+        }
+        
+        try
+        {
+            Files.move(this.path, archive, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(this.path, archive);
+        }
+        
+        final Path toArchive = archive;
+        this.archiver.execute(() -> {
+            if (this.compress) compress(toArchive);
+            prune();
+        });
+    }
+    
+    private void compress(Path archive)
+    {
+        Path gzip = gzipPath(archive);
+        try (InputStream in = Files.newInputStream(archive); OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip), 1 << 16))
+        {
+            in.transferTo(out);
+        }
+        catch (IOException e)
+        {
+            RollingFileOutputStream.LOGGER.warning("Could not compress %s%n%s", archive, e);
+            return;
+        }
+        try
+        {
+            Files.delete(archive);
+        }
+        catch (IOException e)
+        {
+            RollingFileOutputStream.LOGGER.warning("Could not delete %s%n%s", archive, e);
+        }
+    }
+    
+    private void prune()
+    {
+        Path directory = this.path.getParent();
+        
+        List<Path> archives = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory))
+        {
+            files.filter(this::isArchive).sorted().forEach(archives::add);
+        }
+        catch (IOException e)
+        {
+            RollingFileOutputStream.LOGGER.warning("Could not list archives in %s%n%s", directory, e);
+            return;
+        }
+        
+        for (int i = 0, n = archives.size() - Math.max(this.maxBackups, 0); i < n; i++)
+        {
+            try
+            {
+                Files.deleteIfExists(archives.get(i));
+            }
+            catch (IOException e)
+            {
+                RollingFileOutputStream.LOGGER.warning("Could not delete %s%n%s", archives.get(i), e);
+            }
+        }
+    }
+    
+    private boolean isArchive(Path file)
+    {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        if (!name.startsWith(this.prefix) || !name.endsWith(this.extension)) return false;
+        
+        // The timestamp always starts with a digit, which separates "latest.<time>.log" from "latest.log".
+        int start = this.prefix.length();
+        return name.length() > start + this.extension.length() && Character.isDigit(name.charAt(start));
+    }
+    
+    private static Path gzipPath(Path archive)
+    {
+        return archive.resolveSibling(archive.getFileName() + ".gz");
+    }
+}
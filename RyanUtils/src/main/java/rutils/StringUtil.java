@@ -6,7 +6,10 @@ import org.jetbrains.annotations.Nullable;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -82,6 +85,15 @@ public class StringUtil
         return LocalDateTime.now().toLocalTime().format(StringUtil.timeFormat);
     }
     
+    /**
+     * @param epochMilli The time in milliseconds since the epoch.
+     * @return The Time string of the time in the system time zone.
+     */
+    public static @NotNull String getTimeString(long epochMilli)
+    {
+        return LocalTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault()).format(StringUtil.timeFormat);
+    }
+    
     /**
      * @return The current Date string.
      */
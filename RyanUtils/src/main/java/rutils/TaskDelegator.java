@@ -2,30 +2,88 @@ package rutils;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import rutils.group.Pair;
+import rutils.concurrent.MPSCQueue;
+import rutils.concurrent.Signal;
+import rutils.profiler.Metric;
+import rutils.profiler.Metrics;
 
-import java.util.ArrayDeque;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
 /**
  * This class is used to make another thread preform a task instead of the one calling the function.
  * <p>
- * The calling thread can either wait for the worker thread to finish or not block.
+ * The calling thread can either wait for the worker thread to finish, not
+ * block, or {@link #submit submit} the task and wait on its future later.
+ * <p>
+ * Tasks may be passed in from any number of threads. They are queued in
+ * lock-free {@link MPSCQueue MPSCQueues} that are only drained by the
+ * TaskDelegator's thread.
+ * <p>
+ * By default {@link #runTasks()} drains every queued task. A task or time
+ * budget can be set to bound how long a single call may take. Any tasks left
+ * over are run on the next call.
+ * <p>
+ * Every task passed in from another thread raises the TaskDelegator's
+ * {@link Signal}, so the owning thread can {@link #waitForTasks wait} for work
+ * instead of spinning.
  */
 public class TaskDelegator
 {
     private static final Logger LOGGER = new Logger();
     
-    protected final ArrayDeque<Pair<Runnable, Boolean>> runTasks = new ArrayDeque<>();
+    private static final Metric.Counter QUEUED    = Metrics.counter("TaskDelegator.queued");
+    private static final Metric.Counter PROCESSED = Metrics.counter("TaskDelegator.processed");
+    private static final Metric.Timer   RUN_TASKS = Metrics.timer("TaskDelegator.runTasks");
+    
+    /**
+     * The queues that tasks are placed in.
+     */
+    public enum Lane
+    {
+        /**
+         * Tasks from {@link #runTask}. Nothing is waiting on these.
+         */
+        RUN,
+        /**
+         * Tasks from {@link #waitRunTask}, {@link #waitReturnTask} and {@link #submit}. A caller may be blocked on these.
+         */
+        WAIT
+    }
+    
+    protected final MPSCQueue<RunTask> runTasks = new MPSCQueue<>();
+    
+    protected final MPSCQueue<WaitTask<?>> waitTasks = new MPSCQueue<>();
     
-    protected final ArrayDeque<Runnable>                       waitRunTasks   = new ArrayDeque<>();
-    protected final SynchronousQueue<Pair<Integer, Exception>> waitRunResults = new SynchronousQueue<>();
+    protected final Signal signal;
     
-    protected final ArrayDeque<Supplier<Object>>              waitReturnTasks   = new ArrayDeque<>();
-    protected final SynchronousQueue<Pair<Object, Exception>> waitReturnResults = new SynchronousQueue<>();
+    protected volatile Thread thread = null;
     
-    protected Thread thread = null;
+    private volatile int  maxTasks = 0;
+    private volatile long maxTime  = 0L;
+    private volatile Lane priority = Lane.RUN;
+    
+    private final    LongAdder queued        = new LongAdder();
+    private volatile long      processed     = 0L;
+    private volatile long      deferred      = 0L;
+    private volatile long      deferredCalls = 0L;
+    
+    private int ran;
+    
+    public TaskDelegator()
+    {
+        this(new Signal());
+    }
+    
+    /**
+     * @param signal The signal that is raised whenever a task is passed in from another thread.
+     */
+    public TaskDelegator(@NotNull Signal signal)
+    {
+        this.signal = signal;
+    }
     
     public void setThread()
     {
@@ -33,6 +91,122 @@ public class TaskDelegator
         if (this.thread == null) this.thread = Thread.currentThread();
     }
     
+    /**
+     * @return The signal that is raised whenever a task is passed in from another thread.
+     */
+    public @NotNull Signal signal()
+    {
+        return this.signal;
+    }
+    
+    /**
+     * Blocks the TaskDelegator's thread until a task is passed in or the
+     * timeout passes. Returns immediately if tasks are already waiting.
+     *
+     * @param timeout The maximum time to wait in nanoseconds, or zero or less to wait without a timeout.
+     * @return {@code true} if a task was passed in.
+     */
+    public boolean waitForTasks(long timeout)
+    {
+        assert this.thread == Thread.currentThread();
+        
+        if (!this.runTasks.isEmpty() || !this.waitTasks.isEmpty()) return true;
+        return this.signal.await(timeout);
+    }
+    
+    /**
+     * @return The maximum number of tasks run per call to {@link #runTasks()}, or zero if there is no limit.
+     */
+    public int maxTasks()
+    {
+        return this.maxTasks;
+    }
+    
+    /**
+     * Sets the maximum number of tasks run per call to {@link #runTasks()}.
+     *
+     * @param maxTasks The number of tasks, or zero for no limit.
+     */
+    public void maxTasks(int maxTasks)
+    {
+        TaskDelegator.LOGGER.finest("Setting max tasks to", maxTasks);
+        
+        this.maxTasks = Math.max(maxTasks, 0);
+    }
+    
+    /**
+     * @return The time in seconds that a call to {@link #runTasks()} may spend running tasks, or zero if there is no limit.
+     */
+    public double maxTime()
+    {
+        return (double) this.maxTime / 1_000_000_000D;
+    }
+    
+    /**
+     * Sets the time in seconds that a call to {@link #runTasks()} may spend
+     * running tasks. The check is made between tasks, so a single long task
+     * will still run to completion.
+     *
+     * @param maxTime The time in seconds, or zero for no limit.
+     */
+    public void maxTime(double maxTime)
+    {
+        TaskDelegator.LOGGER.finest("Setting max time to", maxTime);
+        
+        this.maxTime = Math.max((long) (maxTime * 1_000_000_000D), 0L);
+    }
+    
+    /**
+     * @return The lane that is drained first.
+     */
+    public @NotNull Lane priority()
+    {
+        return this.priority;
+    }
+    
+    /**
+     * Sets the lane that is drained first when a budget is set.
+     * <p>
+     * {@link Lane#RUN} is the default, which keeps a task passed to
+     * {@link #runTask} ahead of a later blocking task from the same thread.
+     * {@link Lane#WAIT} gets blocked callers going sooner but gives up that
+     * ordering.
+     *
+     * @param priority The lane to drain first.
+     */
+    public void priority(@NotNull Lane priority)
+    {
+        TaskDelegator.LOGGER.finest("Setting priority lane to", priority);
+        
+        this.priority = priority;
+    }
+    
+    /**
+     * This is an estimate when called from a thread other than the TaskDelegator's thread.
+     *
+     * @return The number of tasks that have been passed in but not run yet.
+     */
+    public long pendingTasks()
+    {
+        return Math.max(this.queued.sum() - this.processed, 0L);
+    }
+    
+    /**
+     * @return The number of tasks that were left over for the next frame by the last call to {@link #runTasks()}.
+     */
+    public long deferredTasks()
+    {
+        return this.deferred;
+    }
+    
+    /**
+     * @return The number of calls to {@link #runTasks()} that ran out of budget before the queues were empty.
+     */
+    public long deferredCalls()
+    {
+        return this.deferredCalls;
+    }
+    
     /**
      * Runs a task on the TaskDelegator's thread. Non-blocking.
      *
@@ -49,7 +223,10 @@ public class TaskDelegator
             return;
         }
         
-        this.runTasks.offer(new Pair<>(task, passException));
+        this.queued.increment();
+        TaskDelegator.QUEUED.increment();
+        this.runTasks.offer(new RunTask(task, passException));
+        this.signal.signal();
     }
     
     /**
@@ -77,12 +254,13 @@ public class TaskDelegator
             return;
         }
         
-        this.waitRunTasks.offer(task);
-        
         try
         {
-            Pair<Integer, Exception> result = this.waitRunResults.take();
-            if (result.a != 0) throw new RuntimeException(result.b);
+            submit(task).get();
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
         }
         catch (InterruptedException e)
         {
@@ -97,20 +275,19 @@ public class TaskDelegator
      * @param <T>  The type of the supplier.
      * @return The supplied object or null if the thread was interrupted
      */
-    @SuppressWarnings("unchecked")
     public <T> @Nullable T waitReturnTask(@NotNull Supplier<T> task)
     {
         TaskDelegator.LOGGER.finest("Passing task to TaskDelegator and waiting for return");
         
         if (Thread.currentThread() == this.thread) return task.get();
         
-        this.waitReturnTasks.offer((Supplier<Object>) task);
-        
         try
         {
-            Pair<Object, Exception> result = this.waitReturnResults.take();
-            if (result.b != null) throw new RuntimeException(result.b);
-            return (T) result.a;
+            return submit(task).get();
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
         }
         catch (InterruptedException e)
         {
@@ -119,8 +296,58 @@ public class TaskDelegator
         return null;
     }
     
+    /**
+     * Runs a task on the TaskDelegator's thread. Non-blocking.
+     * <p>
+     * Each call gets its own future, so any number of threads can wait on
+     * their tasks at the same time.
+     *
+     * @param task The task to complete.
+     * @return A future that is completed once the task has run, or completed exceptionally with what the task threw.
+     */
+    public @NotNull CompletableFuture<Void> submit(@NotNull Runnable task)
+    {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Runs a supplier on the TaskDelegator's thread. Non-blocking.
+     * <p>
+     * Each call gets its own future, so any number of threads can wait on
+     * their results at the same time.
+     *
+     * @param task The supplier to run.
+     * @param <T>  The type of the supplier.
+     * @return A future that is completed with the supplied object, or completed exceptionally with what the supplier threw.
+     */
+    public <T> @NotNull CompletableFuture<T> submit(@NotNull Supplier<T> task)
+    {
+        TaskDelegator.LOGGER.finest("Submitting task to TaskDelegator");
+        
+        WaitTask<T> waitTask = new WaitTask<>(task);
+        
+        if (Thread.currentThread() == this.thread)
+        {
+            waitTask.run();
+        }
+        else
+        {
+            this.queued.increment();
+            TaskDelegator.QUEUED.increment();
+            this.waitTasks.offer(waitTask);
+            this.signal.signal();
+        }
+        return waitTask.future;
+    }
+    
     /**
      * This method is called once per "frame" on the desired thread.
+     * <p>
+     * Tasks are run until both lanes are empty or the budget set with
+     * {@link #maxTasks(int)} and {@link #maxTime(double)} is used up.
      */
     public void runTasks()
     {
@@ -128,16 +355,60 @@ public class TaskDelegator
         
         assert this.thread == Thread.currentThread();
         
-        while (!this.runTasks.isEmpty())
+        int  maxTasks = this.maxTasks;
+        long maxTime  = this.maxTime;
+        
+        int  tasks = maxTasks > 0 ? maxTasks : Integer.MAX_VALUE;
+        long end   = maxTime > 0L ? System.nanoTime() + maxTime : Long.MAX_VALUE;
+        
+        long start = TaskDelegator.RUN_TASKS.start();
+        
+        this.ran = 0;
+        try
         {
-            Pair<Runnable, Boolean> task = this.runTasks.poll();
+            if (this.priority == Lane.RUN)
+            {
+                runLane(tasks, end);
+                waitLane(tasks, end);
+            }
+            else
+            {
+                waitLane(tasks, end);
+                runLane(tasks, end);
+            }
+        }
+        finally
+        {
+            this.processed += this.ran;
+            TaskDelegator.PROCESSED.add(this.ran);
+            
+            boolean empty = this.runTasks.isEmpty() && this.waitTasks.isEmpty();
+            
+            this.deferred = empty ? 0L : pendingTasks();
+            if (!empty && (maxTasks > 0 || maxTime > 0L)) this.deferredCalls++;
+            
+            TaskDelegator.RUN_TASKS.stop(start);
+        }
+    }
+    
+    private boolean hasBudget(int tasks, long end)
+    {
+        return this.ran < tasks && (end == Long.MAX_VALUE || end - System.nanoTime() > 0L);
+    }
+    
+    private void runLane(int tasks, long end)
+    {
+        RunTask runTask;
+        while (hasBudget(tasks, end) && (runTask = this.runTasks.poll()) != null)
+        {
+            this.ran++;
             try
             {
-                task.a.run();
+                runTask.task.run();
             }
             catch (Exception e)
             {
-                if (task.b)
+                if (runTask.passException)
                 {
                     throw new RuntimeException(e);
                 }
@@ -148,40 +419,50 @@ public class TaskDelegator
                 }
             }
         }
+    }
+    
+    private void waitLane(int tasks, long end)
+    {
+        WaitTask<?> waitTask;
+        while (hasBudget(tasks, end) && (waitTask = this.waitTasks.poll()) != null)
+        {
+            this.ran++;
+            waitTask.run();
+        }
+    }
+    
+    protected static final class RunTask extends MPSCQueue.Node
+    {
+        protected final Runnable task;
+        protected final boolean  passException;
         
-        while (!this.waitRunTasks.isEmpty())
+        private RunTask(Runnable task, boolean passException)
         {
-            Runnable task = this.waitRunTasks.poll();
-            
-            int       result = 0;
-            Exception except = null;
-            try
-            {
-                task.run();
-            }
-            catch (Exception e)
-            {
-                result = 1;
-                except = e;
-            }
-            this.waitRunResults.offer(new Pair<>(result, except));
+            this.task          = task;
+            this.passException = passException;
         }
+    }
+    
+    protected static final class WaitTask<T> extends MPSCQueue.Node
+    {
+        protected final Supplier<T>          task;
+        protected final CompletableFuture<T> future = new CompletableFuture<>();
         
-        while (!this.waitReturnTasks.isEmpty())
+        private WaitTask(Supplier<T> task)
+        {
+            this.task = task;
+        }
+        
+        private void run()
         {
-            Supplier<Object> task = waitReturnTasks.poll();
-            
-            Object    result = null;
-            Exception except = null;
             try
             {
-                result = task.get();
+                this.future.complete(this.task.get());
             }
-            catch (Exception e)
+            catch (Throwable t)
             {
-                except = e;
+                this.future.completeExceptionally(t);
             }
-            this.waitReturnResults.offer(new Pair<>(result, except));
         }
     }
 }
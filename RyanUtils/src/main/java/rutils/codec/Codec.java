@@ -0,0 +1,52 @@
+package rutils.codec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A compression format that works on ByteBuffers, so direct buffers can be
+ * compressed without copying them to the heap.
+ * <p>
+ * Codecs are found by name through {@link Codecs}. Other formats can be added
+ * by {@link Codecs#register(Codec) registering} them, or by listing them in a
+ * {@code META-INF/services/rutils.codec.Codec} file to be found with a
+ * {@link java.util.ServiceLoader ServiceLoader}. A codec must be safe to use
+ * from many threads at once.
+ */
+public interface Codec
+{
+    /**
+     * @return The name the codec is found by.
+     */
+    @NotNull String name();
+    
+    /**
+     * @param length The number of bytes to compress.
+     * @return The most bytes that compressing them can take.
+     */
+    int maxCompressedLength(int length);
+    
+    /**
+     * Compresses the remaining bytes of a buffer into another. The position
+     * of the source is moved to its limit, and the position of the
+     * destination is moved past the compressed bytes.
+     *
+     * @param src The bytes to compress.
+     * @param dst The buffer to compress into, with at least {@link #maxCompressedLength(int)} bytes remaining.
+     * @throws IOException If the bytes could not be compressed.
+     */
+    void compress(@NotNull ByteBuffer src, @NotNull ByteBuffer dst) throws IOException;
+    
+    /**
+     * Decompresses the remaining bytes of a buffer into another. The position
+     * of the source is moved past the compressed bytes, and the position of
+     * the destination is moved past the decompressed bytes.
+     *
+     * @param src The bytes to decompress.
+     * @param dst The buffer to decompress into, with enough bytes remaining to hold all of them.
+     * @throws IOException If the bytes are not valid, or do not fit in the destination.
+     */
+    void decompress(@NotNull ByteBuffer src, @NotNull ByteBuffer dst) throws IOException;
+}
@@ -0,0 +1,79 @@
+package rutils.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import rutils.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+
+/**
+ * A registry of {@link Codec codecs} by name.
+ * <p>
+ * The deflate codecs are always registered. Codecs listed in a
+ * {@code META-INF/services/rutils.codec.Codec} file are found with a
+ * {@link ServiceLoader} the first time this class is used, and more can be
+ * {@link #register(Codec) registered} at any time.
+ */
+public final class Codecs
+{
+    private static final Logger LOGGER = new Logger();
+    
+    private static final ConcurrentHashMap<String, Codec> CODECS = new ConcurrentHashMap<>();
+    
+    /**
+     * Deflate at the default compression level, named {@code "deflate"}.
+     */
+    public static final Codec DEFLATE = register(new DeflateCodec("deflate", Deflater.DEFAULT_COMPRESSION));
+    
+    /**
+     * Deflate at the fastest compression level, named {@code "deflate-fast"}.
+     */
+    public static final Codec DEFLATE_FAST = register(new DeflateCodec("deflate-fast", Deflater.BEST_SPEED));
+    
+    static
+    {
+        try
+        {
+            for (Codec codec : ServiceLoader.load(Codec.class)) register(codec);
+        }
+        catch (ServiceConfigurationError e)
+        {
+            Codecs.LOGGER.warning("Could not load codecs\n%s", e);
+        }
+    }
+    
+    /**
+     * Adds a codec, replacing any codec with the same name.
+     *
+     * @param codec The codec.
+     * @return The codec.
+     */
+    public static <T extends Codec> @NotNull T register(@NotNull T codec)
+    {
+        Codecs.LOGGER.finer("Registering", codec);
+        
+        Codecs.CODECS.put(codec.name(), codec);
+        return codec;
+    }
+    
+    /**
+     * @param name The name of the codec.
+     * @return The codec, or null if there is none with the name.
+     */
+    public static @Nullable Codec get(@NotNull String name)
+    {
+        return Codecs.CODECS.get(name);
+    }
+    
+    /**
+     * @return The names of every codec, in no particular order.
+     */
+    public static @NotNull Set<String> names()
+    {
+        return Collections.unmodifiableSet(Codecs.CODECS.keySet());
+    }
+    
+    private Codecs() {}
+}
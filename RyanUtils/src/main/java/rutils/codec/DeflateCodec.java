@@ -0,0 +1,109 @@
+package rutils.codec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * The zlib format, with {@link Deflater} and {@link Inflater}. They read and
+ * write direct buffers in place, without copying them to the heap.
+ * <p>
+ * Each thread keeps its own deflater and inflater, which are reset between
+ * uses instead of being created each time.
+ */
+public class DeflateCodec implements Codec
+{
+    private final String name;
+    private final int    level;
+    
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+    
+    /**
+     * @param name  The name the codec is found by.
+     * @param level The compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public DeflateCodec(@NotNull String name, int level)
+    {
+        this.name  = name;
+        this.level = level;
+        
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DeflateCodec{" + "name='" + this.name + '\'' + ", level=" + this.level + '}';
+    }
+    
+    @Override
+    public @NotNull String name()
+    {
+        return this.name;
+    }
+    
+    /**
+     * @return The compression level.
+     */
+    public int level()
+    {
+        return this.level;
+    }
+    
+    /**
+     * The same bound as zlib's {@code compressBound}.
+     */
+    @Override
+    public int maxCompressedLength(int length)
+    {
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13;
+    }
+    
+    @Override
+    public void compress(@NotNull ByteBuffer src, @NotNull ByteBuffer dst) throws IOException
+    {
+        Deflater deflater = this.deflaters.get();
+        deflater.reset();
+        deflater.setInput(src);
+        deflater.finish();
+        while (!deflater.finished())
+        {
+            if (deflater.deflate(dst) == 0 && !dst.hasRemaining())
+            {
+                throw new IOException("Destination is too small to compress " + src.remaining() + " more bytes into");
+            }
+        }
+    }
+    
+    @Override
+    public void decompress(@NotNull ByteBuffer src, @NotNull ByteBuffer dst) throws IOException
+    {
+        Inflater inflater = this.inflaters.get();
+        inflater.reset();
+        inflater.setInput(src);
+        try
+        {
+            while (true)
+            {
+                int inflated = inflater.inflate(dst);
+                if (inflater.finished()) break;
+                if (inflated == 0)
+                {
+                    if (inflater.needsDictionary()) throw new ZipException("A preset dictionary is needed");
+                    if (inflater.needsInput()) throw new ZipException("Compressed data ended early");
+                    if (!dst.hasRemaining()) throw new ZipException("Destination is too small for the decompressed data");
+                }
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new ZipException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package rutils.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * An unbounded, lock-free, multi-producer/single-consumer queue.
+ * <p>
+ * The queue is intrusive: elements extend {@link Node} and are linked
+ * directly, so offering an element does not allocate. Any number of threads
+ * may call {@link #offer}, but only one thread at a time may call
+ * {@link #poll}, {@link #peek} or {@link #isEmpty}.
+ * <p>
+ * An element may only be in one queue at a time and must not be offered again
+ * until it has been polled.
+ *
+ * @param <E> The type of the elements.
+ */
+public class MPSCQueue<E extends MPSCQueue.Node>
+{
+    private static final VarHandle TAIL;
+    private static final VarHandle NEXT;
+    
+    static
+    {
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(MPSCQueue.class, "tail", Node.class);
+            NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private final Node stub = new Node();
+    
+    private volatile Node tail = this.stub;
+    
+    private Node head = this.stub;
+    
+    /**
+     * Inserts the element at the tail of the queue. Safe to call from any thread.
+     *
+     * @param element The element to add.
+     */
+    public void offer(@NotNull E element)
+    {
+        push(element);
+    }
+    
+    /**
+     * Retrieves and removes the head of the queue. Must only be called from
+     * the consumer thread.
+     * <p>
+     * This may return {@code null} while a producer is part way through an
+     * {@link #offer}. The element will be visible on a later call.
+     *
+     * @return The head of the queue, or {@code null} if the queue is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable E poll()
+    {
+        Node head = this.head;
+        Node next = (Node) MPSCQueue.NEXT.getAcquire(head);
+        
+        if (head == this.stub)
+        {
+            if (next == null) return null;
+            this.head = head = next;
+            next      = (Node) MPSCQueue.NEXT.getAcquire(next);
+        }
+        
+        if (next != null)
+        {
+            this.head = next;
+            MPSCQueue.NEXT.setRelease(head, null);
+            return (E) head;
+        }
+        
+        // A producer has swapped the tail but not yet linked it.
+        if (head != this.tail) return null;
+        
+        push(this.stub);
+        
+        next = (Node) MPSCQueue.NEXT.getAcquire(head);
+        if (next != null)
+        {
+            this.head = next;
+            MPSCQueue.NEXT.setRelease(head, null);
+            return (E) head;
+        }
+        return null;
+    }
+    
+    /**
+     * Retrieves, but does not remove, the head of the queue. Must only be
+     * called from the consumer thread.
+     *
+     * @return The head of the queue, or {@code null} if the queue is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable E peek()
+    {
+        Node head = this.head;
+        if (head == this.stub)
+        {
+            head = (Node) MPSCQueue.NEXT.getAcquire(head);
+        }
+        return (E) head;
+    }
+    
+    /**
+     * Must only be called from the consumer thread.
+     *
+     * @return {@code true} if there are no elements visible to the consumer.
+     */
+    public boolean isEmpty()
+    {
+        return peek() == null;
+    }
+    
+    private void push(Node node)
+    {
+        MPSCQueue.NEXT.set(node, null);
+        Node prev = (Node) MPSCQueue.TAIL.getAndSet(this, node);
+        MPSCQueue.NEXT.setRelease(prev, node);
+    }
+    
+    /**
+     * The link that every queue element carries.
+     */
+    public static class Node
+    {
+        private volatile Node next;
+    }
+}
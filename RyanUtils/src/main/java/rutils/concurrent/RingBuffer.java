@@ -0,0 +1,165 @@
+package rutils.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free, multi-producer/single-consumer queue backed by an
+ * array.
+ * <p>
+ * Each slot carries a sequence number that tells producers and the consumer
+ * whose turn it is to use it, so offering only costs one CAS on the tail and
+ * nothing is allocated once the buffer has been created. Any number of
+ * threads may call {@link #offer}, but only one thread at a time may call
+ * {@link #poll} or {@link #drain}.
+ *
+ * @param <E> The type of the elements.
+ */
+public class RingBuffer<E>
+{
+    private static final VarHandle TAIL;
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+    
+    static
+    {
+        try
+        {
+            TAIL = MethodHandles.lookup().findVarHandle(RingBuffer.class, "tail", long.class);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private final Object[] elements;
+    private final long[]   sequences;
+    private final int      mask;
+    
+    private volatile long tail;
+    private volatile long head;
+    
+    /**
+     * Creates a new ring buffer.
+     *
+     * @param capacity The minimum number of elements the buffer can hold. This is rounded up to the next power of two.
+     */
+    public RingBuffer(int capacity)
+    {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        
+        capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        if (capacity <= 0) throw new IllegalArgumentException("capacity is too large");
+        
+        this.elements  = new Object[capacity];
+        this.sequences = new long[capacity];
+        this.mask      = capacity - 1;
+        
+        for (int i = 0; i < capacity; i++) this.sequences[i] = i;
+    }
+    
+    /**
+     * @return The number of elements the buffer can hold.
+     */
+    public int capacity()
+    {
+        return this.elements.length;
+    }
+    
+    /**
+     * @return An estimate of the number of elements in the buffer.
+     */
+    public int size()
+    {
+        long size = this.tail - this.head;
+        return (int) Math.max(0, Math.min(size, this.elements.length));
+    }
+    
+    /**
+     * @return {@code true} if the buffer looked empty at the time of the call.
+     */
+    public boolean isEmpty()
+    {
+        return this.tail == this.head;
+    }
+    
+    /**
+     * Inserts the element at the tail of the buffer if there is room. Safe to
+     * call from any thread.
+     *
+     * @param element The element to add.
+     * @return {@code false} if the buffer was full.
+     */
+    public boolean offer(@NotNull E element)
+    {
+        long position = this.tail;
+        int  index;
+        while (true)
+        {
+            index = (int) position & this.mask;
+            
+            long difference = (long) RingBuffer.SEQUENCE.getAcquire(this.sequences, index) - position;
+            if (difference == 0)
+            {
+                if (RingBuffer.TAIL.weakCompareAndSet(this, position, position + 1)) break;
+                position = this.tail;
+            }
+            else if (difference < 0)
+            {
+                return false;
+            }
+            else
+            {
+                position = this.tail;
+            }
+        }
+        this.elements[index] = element;
+        RingBuffer.SEQUENCE.setRelease(this.sequences, index, position + 1);
+        return true;
+    }
+    
+    /**
+     * Retrieves and removes the head of the buffer. Must only be called from
+     * the consumer thread.
+     *
+     * @return The head of the buffer, or {@code null} if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable E poll()
+    {
+        long position = this.head;
+        int  index    = (int) position & this.mask;
+        
+        if ((long) RingBuffer.SEQUENCE.getAcquire(this.sequences, index) != position + 1) return null;
+        
+        E element = (E) this.elements[index];
+        this.elements[index] = null;
+        RingBuffer.SEQUENCE.setRelease(this.sequences, index, position + this.elements.length);
+        this.head = position + 1;
+        return element;
+    }
+    
+    /**
+     * Removes up to {@code limit} elements from the buffer and passes them to
+     * the consumer in order. Must only be called from the consumer thread.
+     *
+     * @param consumer The consumer of the elements.
+     * @param limit    The maximum number of elements to remove.
+     * @return The number of elements removed.
+     */
+    public int drain(@NotNull Consumer<? super E> consumer, int limit)
+    {
+        int count = 0;
+        E   element;
+        while (count < limit && (element = poll()) != null)
+        {
+            consumer.accept(element);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,119 @@
+package rutils.concurrent;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wakes a worker thread that is waiting for work.
+ * <p>
+ * Producers call {@link #signal()} after they have published work, and the
+ * worker calls {@link #await()} when it has nothing left to do. A signal that
+ * arrives before the worker waits is remembered, so no wakeup is lost. Only
+ * one thread may wait on a signal at a time.
+ * <p>
+ * The first signal after the flag was cleared is the only one that has to
+ * wake the worker, so a burst of signals costs one atomic exchange each.
+ */
+public class Signal
+{
+    private static final VarHandle SIGNALLED;
+    
+    static
+    {
+        try
+        {
+            SIGNALLED = MethodHandles.lookup().findVarHandle(Signal.class, "signalled", boolean.class);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private volatile boolean signalled;
+    private volatile Thread  waiter;
+    
+    /**
+     * Marks that there is work to do and wakes the waiting thread. Safe to
+     * call from any thread.
+     */
+    public void signal()
+    {
+        if (!(boolean) Signal.SIGNALLED.getAndSet(this, true)) wake(this.waiter);
+    }
+    
+    /**
+     * Clears the signal without waiting.
+     *
+     * @return {@code true} if the signal was set.
+     */
+    public boolean clear()
+    {
+        return (boolean) Signal.SIGNALLED.getAndSet(this, false);
+    }
+    
+    /**
+     * Blocks until the signal is set or the thread is interrupted, then
+     * clears it.
+     *
+     * @return {@code true} if the signal was set.
+     */
+    public boolean await()
+    {
+        return await(0L);
+    }
+    
+    /**
+     * Blocks until the signal is set, the timeout passes or the thread is
+     * interrupted, then clears it.
+     *
+     * @param timeout The maximum time to wait in nanoseconds, or zero or less to wait without a timeout.
+     * @return {@code true} if the signal was set.
+     */
+    public boolean await(long timeout)
+    {
+        if (clear()) return true;
+        
+        Thread thread   = Thread.currentThread();
+        long   deadline = System.nanoTime() + timeout;
+        
+        this.waiter = thread;
+        try
+        {
+            // A park can return early for no reason, so it is repeated until something happens.
+            while (!this.signalled && !thread.isInterrupted())
+            {
+                if (timeout > 0L)
+                {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) break;
+                    LockSupport.parkNanos(this, remaining);
+                }
+                else
+                {
+                    LockSupport.park(this);
+                }
+            }
+        }
+        finally
+        {
+            this.waiter = null;
+        }
+        return clear();
+    }
+    
+    /**
+     * Called by the first {@link #signal()} after the signal was cleared.
+     * Override this if the worker waits on something other than this object,
+     * such as a native event queue.
+     *
+     * @param waiter The thread that is waiting, or {@code null} if none is.
+     */
+    protected void wake(@Nullable Thread waiter)
+    {
+        if (waiter != null) LockSupport.unpark(waiter);
+    }
+}
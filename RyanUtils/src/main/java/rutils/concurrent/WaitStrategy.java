@@ -0,0 +1,245 @@
+package rutils.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides how a worker thread waits on a {@link Signal} when it has nothing
+ * to do, trading wakeup latency against CPU use.
+ * <ul>
+ *     <li>{@link #BUSY_SPIN} has the lowest latency but keeps a core busy.</li>
+ *     <li>{@link #YIELDING} spins briefly then yields to other threads.</li>
+ *     <li>{@link #SLEEPING} spins, yields, then polls with short sleeps.</li>
+ *     <li>{@link #BLOCKING} parks until signalled and uses no CPU while idle.</li>
+ *     <li>{@link #phasedBackoff} spins, then yields, then falls back to another strategy.</li>
+ * </ul>
+ * The spinning strategies never park on the signal, so producers that call
+ * {@link Signal#signal()} never have to unpark the worker.
+ */
+@FunctionalInterface
+public interface WaitStrategy
+{
+    WaitStrategy BUSY_SPIN = new BusySpin();
+    WaitStrategy YIELDING  = new Yielding(100);
+    WaitStrategy SLEEPING  = new Sleeping(200, 100_000L);
+    WaitStrategy BLOCKING  = new Blocking();
+    
+    /**
+     * Waits until the signal is set, the timeout passes or the thread is
+     * interrupted, then clears the signal.
+     *
+     * @param signal  The signal to wait on.
+     * @param timeout The maximum time to wait in nanoseconds, or zero or less to wait without a timeout.
+     * @return {@code true} if the signal was set.
+     */
+    boolean await(@NotNull Signal signal, long timeout);
+    
+    /**
+     * Waits until the signal is set or the thread is interrupted, then clears
+     * the signal.
+     *
+     * @param signal The signal to wait on.
+     * @return {@code true} if the signal was set.
+     */
+    default boolean await(@NotNull Signal signal)
+    {
+        return await(signal, 0L);
+    }
+    
+    /**
+     * Creates a strategy that spins for {@code spinTimeout}, yields until
+     * {@code yieldTimeout} has passed, then waits with {@code fallback}.
+     *
+     * @param spinTimeout  The time to spin in nanoseconds.
+     * @param yieldTimeout The time to spin and yield in nanoseconds.
+     * @param fallback     The strategy to use once the yield phase is over.
+     * @return The new strategy.
+     */
+    static @NotNull WaitStrategy phasedBackoff(long spinTimeout, long yieldTimeout, @NotNull WaitStrategy fallback)
+    {
+        return new PhasedBackoff(spinTimeout, yieldTimeout, fallback);
+    }
+    
+    /**
+     * @param sleepTime The time to sleep between polls in nanoseconds.
+     * @return A {@link #SLEEPING} strategy that sleeps for {@code sleepTime} between polls.
+     */
+    static @NotNull WaitStrategy sleeping(long sleepTime)
+    {
+        return new Sleeping(200, sleepTime);
+    }
+    
+    private static boolean expired(long start, long timeout)
+    {
+        return Thread.currentThread().isInterrupted() || timeout > 0L && System.nanoTime() - start >= timeout;
+    }
+    
+    final class BusySpin implements WaitStrategy
+    {
+        private BusySpin() { }
+        
+        @Override
+        public boolean await(@NotNull Signal signal, long timeout)
+        {
+            long start = System.nanoTime();
+            while (!signal.clear())
+            {
+                if (WaitStrategy.expired(start, timeout)) return false;
+                Thread.onSpinWait();
+            }
+            return true;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "BusySpin";
+        }
+    }
+    
+    final class Yielding implements WaitStrategy
+    {
+        private final int spinTries;
+        
+        private Yielding(int spinTries)
+        {
+            this.spinTries = spinTries;
+        }
+        
+        @Override
+        public boolean await(@NotNull Signal signal, long timeout)
+        {
+            long start   = System.nanoTime();
+            int  counter = this.spinTries;
+            while (!signal.clear())
+            {
+                if (WaitStrategy.expired(start, timeout)) return false;
+                if (counter > 0)
+                {
+                    counter--;
+                    Thread.onSpinWait();
+                }
+                else
+                {
+                    Thread.yield();
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "Yielding{spinTries=" + this.spinTries + '}';
+        }
+    }
+    
+    final class Sleeping implements WaitStrategy
+    {
+        private final int  retries;
+        private final long sleepTime;
+        
+        private Sleeping(int retries, long sleepTime)
+        {
+            this.retries   = retries;
+            this.sleepTime = sleepTime;
+        }
+        
+        @Override
+        public boolean await(@NotNull Signal signal, long timeout)
+        {
+            long start   = System.nanoTime();
+            int  counter = this.retries;
+            while (!signal.clear())
+            {
+                if (WaitStrategy.expired(start, timeout)) return false;
+                if (counter > 100)
+                {
+                    counter--;
+                    Thread.onSpinWait();
+                }
+                else if (counter > 0)
+                {
+                    counter--;
+                    Thread.yield();
+                }
+                else
+                {
+                    LockSupport.parkNanos(this.sleepTime);
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "Sleeping{retries=" + this.retries + ", sleepTime=" + this.sleepTime + '}';
+        }
+    }
+    
+    final class Blocking implements WaitStrategy
+    {
+        private Blocking() { }
+        
+        @Override
+        public boolean await(@NotNull Signal signal, long timeout)
+        {
+            return signal.await(timeout);
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "Blocking";
+        }
+    }
+    
+    final class PhasedBackoff implements WaitStrategy
+    {
+        private final long         spinTimeout;
+        private final long         yieldTimeout;
+        private final WaitStrategy fallback;
+        
+        private PhasedBackoff(long spinTimeout, long yieldTimeout, WaitStrategy fallback)
+        {
+            this.spinTimeout  = spinTimeout;
+            this.yieldTimeout = yieldTimeout;
+            this.fallback     = fallback;
+        }
+        
+        @Override
+        public boolean await(@NotNull Signal signal, long timeout)
+        {
+            long start = System.nanoTime();
+            long elapsed;
+            while (!signal.clear())
+            {
+                if (Thread.currentThread().isInterrupted()) return false;
+                
+                elapsed = System.nanoTime() - start;
+                if (timeout > 0L && elapsed >= timeout) return false;
+                if (elapsed >= this.yieldTimeout)
+                {
+                    return this.fallback.await(signal, timeout > 0L ? timeout - elapsed : 0L);
+                }
+                if (elapsed >= this.spinTimeout)
+                {
+                    Thread.yield();
+                }
+                else
+                {
+                    Thread.onSpinWait();
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "PhasedBackoff{spinTimeout=" + this.spinTimeout + ", yieldTimeout=" + this.yieldTimeout + ", fallback=" + this.fallback + '}';
+        }
+    }
+}
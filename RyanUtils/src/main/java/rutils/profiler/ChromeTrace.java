@@ -0,0 +1,261 @@
+package rutils.profiler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Streams profiler frames and sections to a file in the Chrome Trace Event
+ * format, which can be opened with {@code chrome://tracing} or
+ * <a href="https://ui.perfetto.dev">Perfetto</a>.
+ * <p>
+ * Every frame and section is written as a complete ({@code "X"}) event with
+ * its thread id, start time and duration in microseconds since the trace was
+ * started. Events are written to a fixed size buffer as they are merged, so a
+ * capture can run for any length of time. The file uses the JSON array form,
+ * so it can still be opened if the program exits before it is closed.
+ */
+final class ChromeTrace implements Closeable
+{
+    private static final byte[] COMPLETE = ",\n{\"ph\":\"X\",\"pid\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] METADATA = ",\n{\"ph\":\"M\",\"pid\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CAT      = ",\"cat\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NAME     = ",\"name\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TID      = ",\"tid\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TS       = ",\"ts\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DUR      = ",\"dur\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ARGS     = ",\"args\":{\"name\":".getBytes(StandardCharsets.UTF_8);
+    
+    private final Path        path;
+    private final FileChannel channel;
+    private final ByteBuffer  buffer = ByteBuffer.allocate(1 << 16);
+    private final long        origin;
+    private final long        pid;
+    private final byte[]      category;
+    
+    private       byte[][]              names   = new byte[0][];
+    private final HashMap<Thread, Long> threads = new HashMap<>();
+    
+    /**
+     * Creates a new trace file, replacing the file if it exists.
+     *
+     * @param path     The path to the file.
+     * @param category The name of the profiler, used as the process name and event category.
+     * @throws IOException If the file could not be opened.
+     */
+    ChromeTrace(@NotNull Path path, @NotNull String category) throws IOException
+    {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        
+        this.path     = path;
+        this.channel  = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.origin   = System.nanoTime();
+        this.pid      = ProcessHandle.current().pid();
+        this.category = string(category);
+        
+        this.buffer.put((byte) '[');
+        this.buffer.put(ChromeTrace.METADATA, 1, ChromeTrace.METADATA.length - 1); // The first event has no leading comma.
+        putLong(this.pid);
+        this.buffer.put(ChromeTrace.TID);
+        putLong(0L);
+        this.buffer.put(ChromeTrace.NAME);
+        this.buffer.put(string("process_name"));
+        this.buffer.put(ChromeTrace.ARGS);
+        this.buffer.put(this.category);
+        this.buffer.put((byte) '}').put((byte) '}');
+    }
+    
+    /**
+     * @return The path to the file.
+     */
+    Path path()
+    {
+        return this.path;
+    }
+    
+    /**
+     * Writes a frame or section.
+     *
+     * @param thread  The thread it ran on.
+     * @param section The section, or the root section for a frame.
+     * @param start   The start time from {@link System#nanoTime()}.
+     * @param end     The end time from {@link System#nanoTime()}.
+     * @throws IOException If the buffer could not be written out.
+     */
+    void write(@NotNull Thread thread, @NotNull Section section, long start, long end) throws IOException
+    {
+        long   tid  = tid(thread);
+        byte[] name = name(section);
+        
+        ensure(ChromeTrace.COMPLETE.length + ChromeTrace.CAT.length + this.category.length + ChromeTrace.NAME.length + name.length + ChromeTrace.TID.length + ChromeTrace.TS.length + ChromeTrace.DUR.length + 4 * 21 + 2);
+        this.buffer.put(ChromeTrace.COMPLETE);
+        putLong(this.pid);
+        this.buffer.put(ChromeTrace.CAT);
+        this.buffer.put(this.category);
+        this.buffer.put(ChromeTrace.NAME);
+        this.buffer.put(name);
+        this.buffer.put(ChromeTrace.TID);
+        putLong(tid);
+        this.buffer.put(ChromeTrace.TS);
+        putMicros(start - this.origin);
+        this.buffer.put(ChromeTrace.DUR);
+        putMicros(end - start);
+        this.buffer.put((byte) '}');
+    }
+    
+    /**
+     * Writes everything that is buffered to the file.
+     *
+     * @throws IOException If the buffer could not be written out.
+     */
+    void flush() throws IOException
+    {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) this.channel.write(this.buffer);
+        this.buffer.clear();
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            ensure(3);
+            this.buffer.put((byte) '\n').put((byte) ']').put((byte) '\n');
+            flush();
+        }
+        finally
+        {
+            this.channel.close();
+        }
+    }
+    
+    /**
+     * Gets the id of the thread, writing its name the first time it is seen.
+     */
+    private long tid(Thread thread) throws IOException
+    {
+        Long tid = this.threads.get(thread);
+        if (tid == null)
+        {
+            tid = thread.getId();
+            this.threads.put(thread, tid);
+            
+            byte[] name = string(thread.getName());
+            ensure(ChromeTrace.METADATA.length + ChromeTrace.TID.length + ChromeTrace.NAME.length + ChromeTrace.ARGS.length + name.length + 2 * 21 + 16);
+            this.buffer.put(ChromeTrace.METADATA);
+            putLong(this.pid);
+            this.buffer.put(ChromeTrace.TID);
+            putLong(tid);
+            this.buffer.put(ChromeTrace.NAME);
+            this.buffer.put(string("thread_name"));
+            this.buffer.put(ChromeTrace.ARGS);
+            this.buffer.put(name);
+            this.buffer.put((byte) '}').put((byte) '}');
+        }
+        return tid;
+    }
+    
+    /**
+     * Gets the quoted name of the section, which is only encoded once.
+     */
+    private byte[] name(Section section)
+    {
+        int id = section.id();
+        if (id >= this.names.length) this.names = Arrays.copyOf(this.names, Math.max(id + 1, this.names.length << 1));
+        byte[] name = this.names[id];
+        if (name == null) this.names[id] = name = string(section.name());
+        return name;
+    }
+    
+    private void ensure(int bytes) throws IOException
+    {
+        if (this.buffer.remaining() < bytes) flush();
+        if (this.buffer.remaining() < bytes) throw new IOException("Trace event is larger than the buffer");
+    }
+    
+    private void putLong(long value)
+    {
+        if (value < 0)
+        {
+            this.buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = this.buffer.position();
+        do
+        {
+            this.buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        }
+        while (value > 0);
+        for (int i = start, j = this.buffer.position() - 1; i < j; i++, j--)
+        {
+            byte b = this.buffer.get(i);
+            this.buffer.put(i, this.buffer.get(j));
+            this.buffer.put(j, b);
+        }
+    }
+    
+    /**
+     * Writes nanoseconds as microseconds with three decimal places.
+     */
+    private void putMicros(long nanos)
+    {
+        if (nanos < 0)
+        {
+            this.buffer.put((byte) '-');
+            nanos = -nanos;
+        }
+        putLong(nanos / 1000);
+        long fraction = nanos % 1000;
+        this.buffer.put((byte) '.');
+        this.buffer.put((byte) ('0' + fraction / 100));
+        this.buffer.put((byte) ('0' + fraction / 10 % 10));
+        this.buffer.put((byte) ('0' + fraction % 10));
+    }
+    
+    /**
+     * @return The string as a quoted and escaped JSON string.
+     */
+    private static byte[] string(String string)
+    {
+        return ChromeTrace.quote(new StringBuilder(string.length() + 2), string).toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Appends the string as a quoted and escaped JSON string.
+     *
+     * @return The builder.
+     */
+    static StringBuilder quote(StringBuilder builder, String string)
+    {
+        builder.append('"');
+        for (int i = 0, n = string.length(); i < n; i++)
+        {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                builder.append('\\').append(c);
+            }
+            else if (c < 0x20)
+            {
+                builder.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                builder.append(c);
+            }
+        }
+        return builder.append('"');
+    }
+}
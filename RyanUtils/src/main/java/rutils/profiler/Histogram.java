@@ -0,0 +1,139 @@
+package rutils.profiler;
+
+import java.util.Arrays;
+
+/**
+ * A High Dynamic Range histogram of non-negative {@code long} values, such as
+ * times in nanoseconds.
+ * <p>
+ * Values below 256 are counted exactly. Above that, every power of two is
+ * split into 128 equal buckets, so any value is known to within 0.8% no matter
+ * how large it is. Recording is a couple of bit operations, and queries only
+ * look at the buckets, so their cost does not depend on how many values have
+ * been recorded.
+ */
+public class Histogram
+{
+    private static final int SUB_BUCKET_BITS  = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << Histogram.SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF  = Histogram.SUB_BUCKET_COUNT >> 1;
+    
+    private long[] counts = new long[Histogram.SUB_BUCKET_COUNT];
+    private long   count;
+    
+    /**
+     * @return The number of values recorded.
+     */
+    public long count()
+    {
+        return this.count;
+    }
+    
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value The value.
+     */
+    public void record(long value)
+    {
+        add(value, 1);
+    }
+    
+    /**
+     * Removes a value that was recorded before.
+     *
+     * @param value The value.
+     */
+    void remove(long value)
+    {
+        add(value, -1);
+    }
+    
+    /**
+     * Removes every value.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.counts, 0L);
+        this.count = 0;
+    }
+    
+    /**
+     * @return The lowest value recorded, or zero if there are none.
+     */
+    public long min()
+    {
+        for (int i = 0, n = this.counts.length; i < n; i++) if (this.counts[i] > 0) return lowestValue(i);
+        return 0L;
+    }
+    
+    /**
+     * @return The highest value recorded, or zero if there are none.
+     */
+    public long max()
+    {
+        for (int i = this.counts.length - 1; i >= 0; i--) if (this.counts[i] > 0) return highestValue(i);
+        return 0L;
+    }
+    
+    /**
+     * @return The mean of the values recorded, or zero if there are none.
+     */
+    public double mean()
+    {
+        if (this.count == 0) return 0D;
+        double total = 0D;
+        for (int i = 0, n = this.counts.length; i < n; i++)
+        {
+            if (this.counts[i] > 0) total += (double) this.counts[i] * ((lowestValue(i) + highestValue(i)) / 2D);
+        }
+        return total / this.count;
+    }
+    
+    /**
+     * Gets the value that the percentage of recorded values are less than or
+     * equal to.
+     *
+     * @param percentile The percentile between 0 and 100.
+     * @return The value, or zero if there are none.
+     */
+    public long valueAtPercentile(double percentile)
+    {
+        if (this.count == 0) return 0L;
+        long target = Math.max(1L, (long) Math.ceil(Math.min(Math.max(percentile, 0D), 100D) / 100D * this.count));
+        long total  = 0L;
+        for (int i = 0, n = this.counts.length; i < n; i++)
+        {
+            total += this.counts[i];
+            if (total >= target) return highestValue(i);
+        }
+        return max();
+    }
+    
+    private void add(long value, long count)
+    {
+        int index = index(Math.max(value, 0L));
+        if (index >= this.counts.length) this.counts = Arrays.copyOf(this.counts, (index / Histogram.SUB_BUCKET_HALF + 1) * Histogram.SUB_BUCKET_HALF);
+        this.counts[index] += count;
+        this.count += count;
+    }
+    
+    static int index(long value)
+    {
+        if (value < Histogram.SUB_BUCKET_COUNT) return (int) value;
+        int shift = 64 - Long.numberOfLeadingZeros(value) - Histogram.SUB_BUCKET_BITS;
+        return shift * Histogram.SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+    
+    static long lowestValue(int index)
+    {
+        if (index < Histogram.SUB_BUCKET_COUNT) return index;
+        int shift = index / Histogram.SUB_BUCKET_HALF - 1;
+        return (long) (index - shift * Histogram.SUB_BUCKET_HALF) << shift;
+    }
+    
+    static long highestValue(int index)
+    {
+        return lowestValue(index + 1) - 1;
+    }
+}
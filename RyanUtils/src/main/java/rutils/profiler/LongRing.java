@@ -0,0 +1,73 @@
+package rutils.profiler;
+
+/**
+ * A fixed size history of {@code long} values. Once it is full, adding a
+ * value overwrites the oldest one.
+ */
+final class LongRing
+{
+    private final long[] values;
+    
+    private int start;
+    private int size;
+    
+    LongRing(int capacity)
+    {
+        this.values = new long[Math.max(capacity, 1)];
+    }
+    
+    /**
+     * @return The number of values held.
+     */
+    int size()
+    {
+        return this.size;
+    }
+    
+    boolean isFull()
+    {
+        return this.size == this.values.length;
+    }
+    
+    void add(long value)
+    {
+        if (isFull())
+        {
+            this.start = (this.start + 1) % this.values.length;
+            this.size--;
+        }
+        this.values[(this.start + this.size++) % this.values.length] = value;
+    }
+    
+    /**
+     * @param index The index of the value, where zero is the oldest.
+     * @return The value.
+     */
+    long get(int index)
+    {
+        return this.values[(this.start + index) % this.values.length];
+    }
+    
+    /**
+     * @param age The number of values added after the one to get.
+     * @return The value, or zero if it is no longer held.
+     */
+    long getFromEnd(int age)
+    {
+        if (age < 0 || age >= this.size) return 0L;
+        return get(this.size - 1 - age);
+    }
+    
+    /**
+     * Removes the oldest value. The ring must not be empty.
+     *
+     * @return The value that was removed.
+     */
+    long removeFirst()
+    {
+        long value = this.values[this.start];
+        this.start = (this.start + 1) % this.values.length;
+        this.size--;
+        return value;
+    }
+}
@@ -0,0 +1,67 @@
+package rutils.profiler;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the bytes allocated by the current thread and the total time the JVM
+ * has been paused for garbage collection, so the difference between two reads
+ * can be given to the section that ran between them.
+ * <p>
+ * Pause times are read from the collectors' own totals, which are updated as
+ * each pause ends, so a pause is counted in the sections it ended in with
+ * millisecond accuracy. Collectors that report concurrent cycles instead of
+ * pauses are left out.
+ */
+final class MemoryTracker
+{
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN;
+    
+    private static final GarbageCollectorMXBean[] COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans()
+                                                                                .stream()
+                                                                                .filter(bean -> !bean.getName().contains("Cycles") && !bean.getName().contains("Concurrent"))
+                                                                                .toArray(GarbageCollectorMXBean[]::new);
+    
+    static
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported())
+        {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            THREAD_BEAN = sunBean;
+        }
+        else
+        {
+            THREAD_BEAN = null;
+        }
+    }
+    
+    /**
+     * @return If the bytes allocated by a thread can be read.
+     */
+    static boolean supported()
+    {
+        return MemoryTracker.THREAD_BEAN != null;
+    }
+    
+    /**
+     * @return The total number of bytes the current thread has allocated, or -1 if it cannot be read.
+     */
+    static long allocatedBytes()
+    {
+        return MemoryTracker.THREAD_BEAN != null ? MemoryTracker.THREAD_BEAN.getCurrentThreadAllocatedBytes() : -1L;
+    }
+    
+    /**
+     * @return The total time in nanoseconds that the JVM has been paused for garbage collection.
+     */
+    static long gcTime()
+    {
+        long time = 0L;
+        for (GarbageCollectorMXBean collector : MemoryTracker.COLLECTORS) time += Math.max(collector.getCollectionTime(), 0L);
+        return time * 1_000_000L;
+    }
+    
+    private MemoryTracker() {}
+}
@@ -0,0 +1,230 @@
+package rutils.profiler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A named value that is kept in the {@link Metrics} registry.
+ * <p>
+ * Counters and timers are built on striped {@link LongAdder LongAdders}, so
+ * any number of threads can update them without locking or contending on a
+ * single field.
+ */
+public abstract class Metric
+{
+    public final String name;
+    
+    private Metric(String name)
+    {
+        this.name = name;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "{" + this.name + '}';
+    }
+    
+    /**
+     * Puts the current values of this metric into a snapshot.
+     */
+    abstract void snapshot(Metrics.Snapshot snapshot);
+    
+    /**
+     * A count that only goes up, such as the number of events posted.
+     */
+    public static final class Counter extends Metric
+    {
+        private final LongAdder count = new LongAdder();
+        
+        Counter(String name)
+        {
+            super(name);
+        }
+        
+        /**
+         * Adds one to the count.
+         */
+        public void increment()
+        {
+            this.count.increment();
+        }
+        
+        /**
+         * Adds to the count.
+         *
+         * @param amount The amount to add.
+         */
+        public void add(long amount)
+        {
+            this.count.add(amount);
+        }
+        
+        /**
+         * @return The count. This is an estimate while other threads are adding to it.
+         */
+        public long count()
+        {
+            return this.count.sum();
+        }
+        
+        @Override
+        void snapshot(Metrics.Snapshot snapshot)
+        {
+            snapshot.putCount(this.name, this.count.sum());
+        }
+    }
+    
+    /**
+     * A value that is read when a snapshot is taken, such as the size of a
+     * queue.
+     */
+    public static final class Gauge extends Metric
+    {
+        private final DoubleSupplier supplier;
+        
+        Gauge(String name, DoubleSupplier supplier)
+        {
+            super(name);
+            this.supplier = supplier;
+        }
+        
+        /**
+         * @return The current value.
+         */
+        public double value()
+        {
+            return this.supplier.getAsDouble();
+        }
+        
+        @Override
+        void snapshot(Metrics.Snapshot snapshot)
+        {
+            snapshot.put(this.name, this.supplier.getAsDouble());
+        }
+    }
+    
+    /**
+     * The number of times something happened and how long it took. In a
+     * snapshot it is stored as {@code name.count}, and {@code name.mean},
+     * {@code name.max} and {@code name.total} in microseconds.
+     */
+    public static final class Timer extends Metric
+    {
+        private final LongAdder       count = new LongAdder();
+        private final LongAdder       total = new LongAdder();
+        private final LongAccumulator max   = new LongAccumulator(Math::max, 0L);
+        
+        Timer(String name)
+        {
+            super(name);
+        }
+        
+        /**
+         * @return The start time to pass to {@link #stop(long)}.
+         */
+        public long start()
+        {
+            return System.nanoTime();
+        }
+        
+        /**
+         * Records the time since {@link #start()} was called.
+         *
+         * @param start The time that {@link #start()} returned.
+         */
+        public void stop(long start)
+        {
+            record(System.nanoTime() - start);
+        }
+        
+        /**
+         * Records a time.
+         *
+         * @param nanos The time in nanoseconds.
+         */
+        public void record(long nanos)
+        {
+            this.count.increment();
+            this.total.add(nanos);
+            this.max.accumulate(nanos);
+        }
+        
+        /**
+         * Runs a task and records how long it took.
+         *
+         * @param task The task.
+         */
+        public void time(@NotNull Runnable task)
+        {
+            long start = System.nanoTime();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                stop(start);
+            }
+        }
+        
+        /**
+         * Runs a supplier and records how long it took.
+         *
+         * @param task The supplier.
+         * @param <T>  The type of the supplier.
+         * @return The supplied object.
+         */
+        public <T> T time(@NotNull Supplier<T> task)
+        {
+            long start = System.nanoTime();
+            try
+            {
+                return task.get();
+            }
+            finally
+            {
+                stop(start);
+            }
+        }
+        
+        /**
+         * @return The number of times recorded.
+         */
+        public long count()
+        {
+            return this.count.sum();
+        }
+        
+        /**
+         * @return The sum of the times recorded in nanoseconds.
+         */
+        public long total()
+        {
+            return this.total.sum();
+        }
+        
+        /**
+         * @return The longest time recorded in nanoseconds.
+         */
+        public long max()
+        {
+            return this.max.get();
+        }
+        
+        @Override
+        void snapshot(Metrics.Snapshot snapshot)
+        {
+            long count = this.count.sum();
+            long total = this.total.sum();
+            snapshot.putCount(this.name + ".count", count);
+            snapshot.put(this.name + ".mean", count > 0 ? total / (count * 1_000D) : 0D);
+            snapshot.put(this.name + ".max", this.max.get() / 1_000D);
+            snapshot.put(this.name + ".total", total / 1_000D);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package rutils.profiler;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import rutils.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * A registry of named {@link Metric.Counter counters},
+ * {@link Metric.Gauge gauges} and {@link Metric.Timer timers}, for throughput
+ * numbers that section timings do not show, such as how many events were
+ * posted or how many bytes were read.
+ * <p>
+ * Metrics are created the first time they are asked for, so a class can keep
+ * them in static fields. A {@link #snapshot()} reads every metric at once, and
+ * a {@link #report(double, String) reporter} can write snapshots through the
+ * {@link Logger} or to a CSV file at a fixed rate.
+ */
+public final class Metrics
+{
+    private static final Logger LOGGER = new Logger();
+    
+    private static final ConcurrentHashMap<String, Metric> METRICS = new ConcurrentHashMap<>();
+    
+    private static Reporter reporter;
+    
+    /**
+     * Gets the counter with the name, creating it if needed.
+     *
+     * @param name The name of the counter.
+     * @return The counter.
+     * @throws IllegalArgumentException If a different kind of metric has the name.
+     */
+    public static @NotNull Metric.Counter counter(@NotNull String name)
+    {
+        return get(name, Metric.Counter.class, Metric.Counter::new);
+    }
+    
+    /**
+     * Gets the timer with the name, creating it if needed.
+     *
+     * @param name The name of the timer.
+     * @return The timer.
+     * @throws IllegalArgumentException If a different kind of metric has the name.
+     */
+    public static @NotNull Metric.Timer timer(@NotNull String name)
+    {
+        return get(name, Metric.Timer.class, Metric.Timer::new);
+    }
+    
+    /**
+     * Creates a gauge, replacing any gauge with the same name.
+     *
+     * @param name     The name of the gauge.
+     * @param supplier Reads the value of the gauge.
+     * @return The gauge.
+     * @throws IllegalArgumentException If a different kind of metric has the name.
+     */
+    public static @NotNull Metric.Gauge gauge(@NotNull String name, @NotNull DoubleSupplier supplier)
+    {
+        Metric.Gauge gauge = new Metric.Gauge(name, supplier);
+        Metric       other = Metrics.METRICS.merge(name, gauge, (previous, g) -> previous instanceof Metric.Gauge ? g : previous);
+        if (other != gauge) throw new IllegalArgumentException("Metric '" + name + "' is not a Gauge: " + other);
+        return gauge;
+    }
+    
+    /**
+     * @param name The name of the metric.
+     * @return The metric, or null if there is none with the name.
+     */
+    public static @Nullable Metric get(@NotNull String name)
+    {
+        return Metrics.METRICS.get(name);
+    }
+    
+    /**
+     * Removes a metric from the registry. Anything that kept it can still
+     * update it, but it is no longer in snapshots.
+     *
+     * @param name The name of the metric.
+     */
+    public static void remove(@NotNull String name)
+    {
+        Metrics.METRICS.remove(name);
+    }
+    
+    /**
+     * Reads every metric.
+     *
+     * @return The snapshot.
+     */
+    public static @NotNull Snapshot snapshot()
+    {
+        Snapshot snapshot = new Snapshot();
+        for (Metric metric : Metrics.METRICS.values()) metric.snapshot(snapshot);
+        return snapshot;
+    }
+    
+    /**
+     * Starts writing a snapshot at a fixed rate on a background thread. Any
+     * reporter that was already started is stopped.
+     * <p>
+     * Through the {@link Logger}, each report is one message with a line per
+     * value. To a file, each value is a CSV row of the time in milliseconds
+     * since the epoch, the name, the value and, for counts, the change per
+     * second since the last report.
+     *
+     * @param interval The time between reports in seconds, or zero to only stop reporting.
+     * @param file     The file to append the reports to, or null to write them through the {@link Logger}.
+     */
+    public static synchronized void report(double interval, @Nullable String file)
+    {
+        Metrics.LOGGER.finest("Reporting metrics every %s seconds to %s", interval, file);
+        
+        if (Metrics.reporter != null)
+        {
+            Metrics.reporter.stop();
+            Metrics.reporter = null;
+        }
+        
+        long nanos = (long) (interval * 1_000_000_000D);
+        if (nanos <= 0) return;
+        
+        BufferedWriter writer = null;
+        if (file != null)
+        {
+            try
+            {
+                Path path   = Path.of(file);
+                Path parent = path.toAbsolutePath().getParent();
+                if (parent != null) Files.createDirectories(parent);
+                
+                boolean header = !Files.exists(path) || Files.size(path) == 0;
+                
+                writer = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                if (header) writer.write("timestamp,name,value,rate\n");
+            }
+            catch (IOException e)
+            {
+                Metrics.LOGGER.warning("Could not open metrics file: \"%s\"\n%s", file, e);
+                return;
+            }
+        }
+        Metrics.reporter = new Reporter(nanos, writer);
+        Metrics.reporter.thread.start();
+    }
+    
+    private static <T extends Metric> T get(String name, Class<T> type, Function<String, T> factory)
+    {
+        Metric metric = Metrics.METRICS.computeIfAbsent(name, factory);
+        if (!type.isInstance(metric)) throw new IllegalArgumentException("Metric '" + name + "' is not a " + type.getSimpleName() + ": " + metric);
+        return type.cast(metric);
+    }
+    
+    /**
+     * The values of every metric at one point in time, by name.
+     */
+    public static final class Snapshot
+    {
+        /**
+         * The time the snapshot was taken from {@link System#nanoTime()}.
+         */
+        public final long time = System.nanoTime();
+        
+        /**
+         * The time the snapshot was taken in milliseconds since the epoch.
+         */
+        public final long timestamp = System.currentTimeMillis();
+        
+        private final TreeMap<String, Double> values = new TreeMap<>();
+        private final HashSet<String>         counts = new HashSet<>();
+        
+        private Snapshot() {}
+        
+        void put(String name, double value)
+        {
+            this.values.put(name, value);
+        }
+        
+        void putCount(String name, long count)
+        {
+            this.values.put(name, (double) count);
+            this.counts.add(name);
+        }
+        
+        /**
+         * @return The values by name, in name order.
+         */
+        public @NotNull Map<String, Double> values()
+        {
+            return Collections.unmodifiableMap(this.values);
+        }
+        
+        /**
+         * @param name The name of the value.
+         * @return The value, or zero if there is none with the name.
+         */
+        public double get(@NotNull String name)
+        {
+            return this.values.getOrDefault(name, 0D);
+        }
+        
+        /**
+         * @param name The name of the value.
+         * @return If the value is a count that only goes up, so has a {@link #rate rate}.
+         */
+        public boolean isCount(@NotNull String name)
+        {
+            return this.counts.contains(name);
+        }
+        
+        /**
+         * @param previous An earlier snapshot.
+         * @param name     The name of the value.
+         * @return How much the value changed per second since the earlier snapshot.
+         */
+        public double rate(@NotNull Snapshot previous, @NotNull String name)
+        {
+            long time = this.time - previous.time;
+            return time > 0 ? (get(name) - previous.get(name)) * 1_000_000_000D / time : 0D;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return text(null);
+        }
+        
+        /**
+         * @param previous An earlier snapshot to show the rate of each count since, or null.
+         * @return A line for each value.
+         */
+        String text(@Nullable Snapshot previous)
+        {
+            StringBuilder builder = new StringBuilder("Metrics");
+            this.values.forEach((name, value) -> {
+                builder.append(System.lineSeparator()).append("    ").append(name).append(" = ").append(format(value));
+                if (previous != null && this.counts.contains(name)) builder.append(" (").append(format(rate(previous, name))).append("/s)");
+            });
+            return builder.toString();
+        }
+        
+        private static String format(double value)
+        {
+            return value == (long) value ? Long.toString((long) value) : String.format(Locale.ROOT, "%.3f", value);
+        }
+    }
+    
+    private static final class Reporter implements Runnable
+    {
+        private final long           interval;
+        private final BufferedWriter writer;
+        private final Thread         thread;
+        
+        private volatile boolean running = true;
+        
+        private Snapshot previous = snapshot();
+        
+        private Reporter(long interval, @Nullable BufferedWriter writer)
+        {
+            this.interval = interval;
+            this.writer   = writer;
+            
+            this.thread = new Thread(this, "Metrics Reporter");
+            this.thread.setDaemon(true);
+        }
+        
+        private void stop()
+        {
+            this.running = false;
+            LockSupport.unpark(this.thread);
+            try
+            {
+                this.thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        @Override
+        public void run()
+        {
+            long next = System.nanoTime() + this.interval;
+            while (this.running)
+            {
+                long wait = next - System.nanoTime();
+                if (wait > 0)
+                {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+                next += this.interval;
+                
+                report();
+            }
+            report();
+            
+            if (this.writer != null)
+            {
+                try
+                {
+                    this.writer.close();
+                }
+                catch (IOException e)
+                {
+                    Metrics.LOGGER.warning("Could not close metrics file\n%s", e);
+                }
+            }
+        }
+        
+        private void report()
+        {
+            Snapshot snapshot = snapshot();
+            Snapshot previous = this.previous;
+            this.previous = snapshot;
+            
+            if (this.writer == null)
+            {
+                Metrics.LOGGER.info(snapshot.text(previous));
+                return;
+            }
+            try
+            {
+                for (Map.Entry<String, Double> entry : snapshot.values.entrySet())
+                {
+                    String name = entry.getKey();
+                    this.writer.write(Long.toString(snapshot.timestamp));
+                    this.writer.write(',');
+                    this.writer.write(name.indexOf(',') >= 0 ? '"' + name.replace("\"", "\"\"") + '"' : name);
+                    this.writer.write(',');
+                    this.writer.write(Snapshot.format(entry.getValue()));
+                    this.writer.write(',');
+                    if (snapshot.isCount(name)) this.writer.write(Snapshot.format(snapshot.rate(previous, name)));
+                    this.writer.write('\n');
+                }
+                this.writer.flush();
+            }
+            catch (IOException e)
+            {
+                Metrics.LOGGER.warning("Could not write metrics file\n%s", e);
+            }
+        }
+    }
+    
+    private Metrics() {}
+}
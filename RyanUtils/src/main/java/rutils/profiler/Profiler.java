@@ -3,18 +3,96 @@ package rutils.profiler;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import rutils.Logger;
-import rutils.group.Pair;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static rutils.Math.round;
 
+/**
+ * Times named sections of code over a number of frames.
+ * <p>
+ * Sections form a tree. Each section is created the first time it is used and
+ * is given an integer id, and a handle to it can be kept with
+ * {@link #section(String)}. Starting and ending a section only pushes and pops
+ * ids on the calling thread's stack and writes the times to that thread's
+ * sample buffer, so nothing is allocated or locked.
+ * <p>
+ * The sample buffers are merged into the profiler's data at
+ * {@link #endFrame()}, or whenever {@link #merge()} is called. Only a rolling
+ * window of the last {@link #historySize() historySize} frames and samples per
+ * section is kept, optionally limited to the last
+ * {@link #historyTime() historyTime} seconds. Each window keeps a
+ * {@link Histogram} up to date, so averages and percentiles do not need to
+ * look at every sample.
+ * <p>
+ * By default only the thread that calls {@link #startFrame()} is profiled.
+ * In {@link #concurrent(boolean) concurrent} mode every thread is, and the
+ * data for each thread can be viewed with {@link #getThreadDataString()}.
+ * <p>
+ * Every frame and section can also be streamed to a trace file with
+ * {@link #traceFile(String)} to see the timeline of each frame.
+ * <p>
+ * For code where timing every section costs too much, a
+ * {@link #samplingInterval(double) sampling interval} can be set. Sections
+ * are then no longer timed when they end. Instead a background thread looks
+ * at the current section of every thread at that rate, and the time in each
+ * section is estimated from how often it was seen. The results use the same
+ * section names as the timed data, and can be viewed with
+ * {@link #getSampledDataString(String)} or exported for flame graphs with
+ * {@link #getFoldedStacks()}.
+ * <p>
+ * With {@link #memoryTracking(boolean) memory tracking} on, each frame and
+ * section also records the bytes allocated by its thread while it ran, and
+ * the time the JVM was paused for garbage collection during it. The average
+ * and percentile reports then show both next to the section times, to find
+ * the sections that allocate in the hot path and the frames that were slow
+ * because of a collection.
+ */
 public class Profiler
 {
     private static final Logger LOGGER = new Logger();
     
-    private static final HashMap<String, Profiler> CACHE = new HashMap<>();
+    private static final ConcurrentHashMap<String, Profiler> CACHE = new ConcurrentHashMap<>();
+    
+    /**
+     * The id of the section that every top level section is a child of.
+     */
+    static final int ROOT = 0;
+    
+    /**
+     * The number of ended sections each thread can hold before they are
+     * merged. Any more are dropped.
+     */
+    private static final int SAMPLE_BUFFER_SIZE = 4096;
+    
+    /**
+     * The start time of a section that was started while sampling, so is not timed.
+     */
+    private static final long UNTIMED = Long.MIN_VALUE;
+    
+    private static final VarHandle DEPTH;
+    private static final VarHandle STACK;
+    private static final VarHandle STACK_ELEMENT = MethodHandles.arrayElementVarHandle(int[].class);
+    
+    static
+    {
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            DEPTH = lookup.findVarHandle(ThreadData.class, "depth", int.class);
+            STACK = lookup.findVarHandle(ThreadData.class, "stack", int[].class);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
     
     /**
      * Gets a profiler associated with the inputted name.
@@ -29,21 +107,51 @@ public class Profiler
     
     private final String name;
     
-    private boolean enabled, newEnabled;
+    private volatile boolean enabled, newEnabled;
+    
+    private volatile boolean concurrent;
+    
+    private volatile long warningThreshold = 100_000_000L;
+    
+    private volatile int  historySize = 1024;
+    private volatile long historyTime = 0L;
     
-    private long warningThreshold = 100_000_000L;
+    private volatile Sampler sampler;
+    private volatile boolean sampling;
     
-    private boolean inFrame;
+    private volatile boolean memoryTracking;
     
-    private final Stack<Pair<String, Long>>        sections         = new Stack<>();
-    private final ArrayList<Long>                  frameTimeList    = new ArrayList<>();
-    private final HashMap<String, ArrayList<Long>> sectionsTimeList = new HashMap<>();
+    private volatile boolean inFrame;
+    private volatile Thread  frameThread;
+    
+    private final    Section   root;
+    private volatile Section[] sections;
+    
+    private final ThreadLocal<ThreadData>          threadData = ThreadLocal.withInitial(this::register);
+    private final CopyOnWriteArrayList<ThreadData> threads    = new CopyOnWriteArrayList<>();
+    
+    // The merged data. Only accessed while holding the lock on this profiler.
+    private       long                               frameStart;
+    private       Window                             frameTimes;
+    private       Window                             frameAllocations;
+    private       Window                             frameGcTimes;
+    private       LongRing[]                         frameSectionTimes = new LongRing[0];
+    private       long[]                             frameAccumulator  = new long[0];
+    private final LinkedHashMap<String, ThreadTimes> threadTimes       = new LinkedHashMap<>();
+    private       ChromeTrace                        trace;
     
     protected final Section nullSection = new Section.NullSection(this);
     
     private Profiler(String name)
     {
         this.name = name;
+        
+        this.root     = new Section(this, name, Profiler.ROOT, null);
+        this.sections = new Section[] {this.root};
+        
+        this.frameTimes       = newWindow();
+        this.frameAllocations = newWindow();
+        this.frameGcTimes     = newWindow();
     }
     
     @Override
@@ -118,6 +226,28 @@ public class Profiler
         enabled(false);
     }
     
+    /**
+     * @return If sections are recorded on every thread instead of only the frame thread.
+     */
+    public boolean concurrent()
+    {
+        return this.concurrent;
+    }
+    
+    /**
+     * Sets if sections are recorded on every thread. When disabled, sections
+     * started on any thread other than the one that calls
+     * {@link #startFrame()} are ignored.
+     *
+     * @param concurrent The new concurrent state.
+     */
+    public void concurrent(boolean concurrent)
+    {
+        Profiler.LOGGER.finest("Setting concurrent flag for %s to %s", this, concurrent);
+        
+        this.concurrent = concurrent;
+    }
+    
     /**
      * @return Return this time in seconds before the profiler will log a warning message.
      */
@@ -138,21 +268,179 @@ public class Profiler
         this.warningThreshold = (long) (warningThreshold * 1_000_000_000D);
     }
     
+    /**
+     * @return The number of frames, and samples per section, that are kept.
+     */
+    public int historySize()
+    {
+        return this.historySize;
+    }
+    
+    /**
+     * Sets the number of frames, and samples per section, that are kept. Takes
+     * effect the next time the data is {@link #clear() cleared}.
+     *
+     * @param historySize The number of frames.
+     */
+    public void historySize(int historySize)
+    {
+        Profiler.LOGGER.finest("Setting history size for %s to %s", this, historySize);
+        
+        this.historySize = Math.max(historySize, 1);
+    }
+    
+    /**
+     * @return The time in seconds that frames and samples are kept for, or zero if they are kept until there are {@link #historySize()} newer ones.
+     */
+    public double historyTime()
+    {
+        return (double) this.historyTime / 1_000_000_000D;
+    }
+    
+    /**
+     * Sets the time in seconds that frames and samples are kept for. Takes
+     * effect the next time the data is {@link #clear() cleared}.
+     *
+     * @param historyTime The time in seconds, or zero to only limit the number of frames.
+     */
+    public void historyTime(double historyTime)
+    {
+        Profiler.LOGGER.finest("Setting history time for %s to %s", this, historyTime);
+        
+        this.historyTime = (long) (Math.max(historyTime, 0D) * 1_000_000_000D);
+    }
+    
+    /**
+     * @return The time in seconds between samples, or zero if sections are timed instead.
+     */
+    public double samplingInterval()
+    {
+        Sampler sampler = this.sampler;
+        return this.sampling && sampler != null ? (double) sampler.interval() / 1_000_000_000D : 0D;
+    }
+    
+    /**
+     * Sets the time in seconds between samples. While it is set, sections are
+     * no longer timed when they end, and the current section of each thread is
+     * sampled at this rate instead. Setting it again discards the previous
+     * samples.
+     *
+     * @param samplingInterval The time in seconds, or zero to stop sampling and time sections again.
+     */
+    public synchronized void samplingInterval(double samplingInterval)
+    {
+        Profiler.LOGGER.finest("Setting sampling interval for %s to %s", this, samplingInterval);
+        
+        if (this.sampling) this.sampler.stop();
+        
+        long interval = (long) (samplingInterval * 1_000_000_000D);
+        if (interval > 0)
+        {
+            this.sampler = new Sampler(this, interval);
+            this.sampler.start();
+        }
+        this.sampling = interval > 0;
+    }
+    
+    /**
+     * @return If the bytes allocated by each section and the garbage collection pauses in each frame are recorded.
+     */
+    public boolean memoryTracking()
+    {
+        return this.memoryTracking;
+    }
+    
+    /**
+     * Sets if the bytes allocated by each section and the garbage collection
+     * pauses in each frame and section are recorded. Allocations are read
+     * from the {@code com.sun.management} thread bean, so this does nothing
+     * on a JVM that does not support it.
+     *
+     * @param memoryTracking The new memory tracking state.
+     */
+    public void memoryTracking(boolean memoryTracking)
+    {
+        Profiler.LOGGER.finest("Setting memory tracking flag for %s to %s", this, memoryTracking);
+        
+        if (memoryTracking && !MemoryTracker.supported())
+        {
+            Profiler.LOGGER.warning("Cannot track memory for %s because thread allocations cannot be read", this);
+            return;
+        }
+        this.memoryTracking = memoryTracking;
+    }
+    
+    /**
+     * @return The path of the file that frames and sections are being traced to, or null if they are not.
+     */
+    public synchronized @Nullable String traceFile()
+    {
+        return this.trace != null ? this.trace.path().toString() : null;
+    }
+    
+    /**
+     * Starts streaming every frame and section to a file in the Chrome Trace
+     * Event format, which can be opened with {@code chrome://tracing} or
+     * Perfetto. Events are written as they are merged, so the trace is not
+     * held in memory. Any trace that was already started is closed.
+     *
+     * @param file The path to the file, or null to only stop tracing.
+     */
+    public synchronized void traceFile(@Nullable String file)
+    {
+        merge();
+        
+        ChromeTrace previous = this.trace;
+        this.trace = null;
+        if (previous != null)
+        {
+            try
+            {
+                previous.close();
+            }
+            catch (IOException e)
+            {
+                Profiler.LOGGER.warning("Could not close trace for %s\n%s", this, e);
+            }
+        }
+        if (file == null) return;
+        
+        Profiler.LOGGER.finest("Tracing %s to %s", this, file);
+        
+        try
+        {
+            this.trace = new ChromeTrace(Path.of(file), this.name);
+        }
+        catch (IOException e)
+        {
+            Profiler.LOGGER.warning(e);
+        }
+    }
+    
     /**
      * Clears the frame data.
      */
-    public void clear()
+    public synchronized void clear()
     {
         Profiler.LOGGER.finest("Clearing frame data for", this);
         
-        this.frameTimeList.clear();
-        this.sectionsTimeList.clear();
+        merge();
+        
+        this.frameTimes        = newWindow();
+        this.frameAllocations  = newWindow();
+        this.frameGcTimes      = newWindow();
+        this.frameSectionTimes = new LongRing[0];
+        this.threadTimes.clear();
+        Arrays.fill(this.frameAccumulator, 0L);
+        
+        Sampler sampler = this.sampler;
+        if (sampler != null) sampler.clear();
     }
     
     /**
      * Starts the profiler frame. The profiler must be enabled and the frame must be stopped.
      */
-    public void startFrame()
+    public synchronized void startFrame()
     {
         this.enabled = this.newEnabled;
         
@@ -171,9 +459,14 @@ public class Profiler
             {
                 Profiler.LOGGER.finest("Starting Frame for", this);
                 
-                this.sections.clear();
+                ThreadData data = this.threadData.get();
                 
-                this.frameTimeList.add(System.nanoTime());
+                this.frameThread = Thread.currentThread();
+                data.depth       = 0;
+                
+                data.frameAllocated = this.memoryTracking ? MemoryTracker.allocatedBytes() : -1L;
+                data.frameGcTime    = this.memoryTracking ? MemoryTracker.gcTime() : 0L;
+                this.frameStart     = System.nanoTime();
             }
         }
     }
@@ -181,7 +474,7 @@ public class Profiler
     /**
      * Ends the profiler frame. The profiler must be enabled and the frame must have been started.
      */
-    public void endFrame()
+    public synchronized void endFrame()
     {
         if (!this.inFrame)
         {
@@ -198,13 +491,51 @@ public class Profiler
             {
                 Profiler.LOGGER.finest("Ending Frame for", this);
                 
-                this.frameTimeList.add(System.nanoTime() - this.frameTimeList.remove(this.frameTimeList.size() - 1));
+                long frameEnd  = System.nanoTime();
+                long frameTime = frameEnd - this.frameStart;
+                
+                ThreadData data = this.threadData.get();
+                if (data.frameAllocated >= 0)
+                {
+                    this.frameAllocations.add(MemoryTracker.allocatedBytes() - data.frameAllocated, frameEnd);
+                    this.frameGcTimes.add(MemoryTracker.gcTime() - data.frameGcTime, frameEnd);
+                }
+                if (data.depth > 0) Profiler.LOGGER.warning("Frame for %s ended before all sections were ended (remainder: '%s')", this, this.sections[data.stack[data.depth - 1]].name());
+                
+                merge();
+                trace(Thread.currentThread(), this.root, this.frameStart, frameEnd);
                 
-                if (!this.sections.isEmpty()) Profiler.LOGGER.warning("Frame for %s ended before all sections were ended (remainder: '%s')", this, this.sections.peek());
+                this.frameTimes.add(frameTime, frameEnd);
+                for (int id = 0, n = this.frameSectionTimes.length; id < n; id++)
+                {
+                    if (this.frameSectionTimes[id] != null) this.frameSectionTimes[id].add(this.frameAccumulator[id]);
+                    this.frameAccumulator[id] = 0L;
+                }
             }
         }
     }
     
+    /**
+     * Gets the section at the path, creating it and its parents if needed.
+     * The section can be kept and started with {@link Section#start()}
+     * without looking it up again.
+     *
+     * @param path The full name of the section, with child names separated by {@code '.'}.
+     * @return The section.
+     */
+    public @NotNull Section section(@NotNull String path)
+    {
+        Section section = this.root;
+        int     start   = 0;
+        while (true)
+        {
+            int index = path.indexOf('.', start);
+            section = child(section, index < 0 ? path.substring(start) : path.substring(start, index));
+            if (index < 0) return section;
+            start = index + 1;
+        }
+    }
+    
     /**
      * Begins a section to start timing it. Must be paired with {@link #endSection()}. You can call again with a unique name to start a sub section.
      *
@@ -215,25 +546,29 @@ public class Profiler
     {
         if (this.enabled)
         {
-            if (!this.inFrame)
-            {
-                Profiler.LOGGER.warning("Cannot start section '%s' in %s because not in frame.", name, this);
-            }
-            else
+            ThreadData data = startableThreadData(name);
+            if (data != null)
             {
-                String parent  = currentSection();
-                String section = parent != null ? parent + '.' + name : name;
-                
-                Profiler.LOGGER.finest("Starting %s in", section, this);
-                
-                this.sections.push(new Pair<>(section, System.nanoTime()));
-                
-                return new Section(this, section);
+                Section section = child(data.depth > 0 ? this.sections[data.stack[data.depth - 1]] : this.root, name);
+                push(data, section);
+                return section;
             }
         }
         return this.nullSection;
     }
     
+    /**
+     * Begins a section that was looked up with {@link #section(String)}.
+     */
+    void startSection(@NotNull Section section)
+    {
+        if (this.enabled)
+        {
+            ThreadData data = startableThreadData(section.name());
+            if (data != null) push(data, section);
+        }
+    }
+    
     /**
      * Ends a section and records the time since {@link #startSection} was called. Must be paired with {@link #startSection}.
      */
@@ -241,271 +576,943 @@ public class Profiler
     {
         if (this.enabled)
         {
-            if (!this.inFrame)
+            Thread  thread      = this.frameThread;
+            boolean frameThread = thread == null || thread == Thread.currentThread();
+            if (!frameThread && !this.concurrent)
+            {
+                return;
+            }
+            ThreadData data = this.threadData.get();
+            if (frameThread && !this.inFrame)
             {
                 Profiler.LOGGER.warning("Cannot stop section in %s because not in frame.", this);
             }
-            else if (this.sections.isEmpty())
+            else if (data.depth == 0)
             {
                 Profiler.LOGGER.warning("No section was started.");
             }
             else
             {
-                Pair<String, Long> data = this.sections.pop();
+                int  id    = data.stack[--data.depth];
+                long start = data.starts[data.depth];
+                if (start == Profiler.UNTIMED) return;
+                
+                long allocated = data.allocated[data.depth];
+                long gcTime    = 0L;
+                if (allocated >= 0)
+                {
+                    allocated = MemoryTracker.allocatedBytes() - allocated;
+                    gcTime    = MemoryTracker.gcTime() - data.gcTimes[data.depth];
+                }
                 
-                Profiler.LOGGER.finest("Ending ", data.a);
+                long end = System.nanoTime();
+                data.record(id, start, end, allocated, gcTime);
                 
-                long sectionTime = System.nanoTime() - data.b;
-                this.sectionsTimeList.computeIfAbsent(data.a, s -> new ArrayList<>()).add(sectionTime);
+                Section section = this.sections[id];
                 
-                if (sectionTime > this.warningThreshold) Profiler.LOGGER.warning("'%s' took approx %.3f us", data.a, sectionTime / 1_000D);
+                long sectionTime = end - start;
+                if (sectionTime > this.warningThreshold) Profiler.LOGGER.warning("'%s' took approx %.3f us", section.name(), sectionTime / 1_000D);
             }
         }
     }
     
     /**
-     * @return The current section or null if one hasn't been created.
+     * @return The current section on this thread or null if one hasn't been created.
      */
     public @Nullable String currentSection()
     {
-        return !this.sections.isEmpty() ? this.sections.peek().a : null;
+        ThreadData data = this.threadData.get();
+        return data.depth > 0 ? this.sections[data.stack[data.depth - 1]].name() : null;
     }
     
     /**
-     * Gets a multiline string that shows the average, minimum, and maximum for each section over the number of frames profiled.
-     * <p>
-     * All child sections will be included in the string.
-     *
-     * @param parent The parent section to collect or null for the entire data set.
-     * @return The multiline string or null if disabled.
+     * Moves the sections that have ended on every thread into the profiler's
+     * data. This is done at the end of every frame, but can be called at any
+     * time to see data from other threads straight away.
      */
-    public @Nullable String getAvgDataString(@Nullable String parent)
+    public synchronized void merge()
     {
-        if (this.enabled)
+        Thread frameThread = this.frameThread;
+        for (ThreadData data : this.threads)
         {
-            StringBuilder sb = new StringBuilder(this.name).append(" - Average Frame Data - ");
-            format(0, parent, sb, true, this::getAverageData);
-            sb.setLength(sb.length() - 1);
-            return sb.toString();
+            long read    = data.read;
+            long written = data.written;
+            if (read < written)
+            {
+                ThreadTimes times = this.threadTimes.computeIfAbsent(data.thread.getName(), t -> new ThreadTimes());
+                boolean     frame = data.thread == frameThread;
+                for (; read < written; read++)
+                {
+                    int  index     = (int) (read % Profiler.SAMPLE_BUFFER_SIZE) * ThreadData.SAMPLE_SIZE;
+                    int  id        = (int) data.samples[index];
+                    long start     = data.samples[index + 1];
+                    long end       = data.samples[index + 2];
+                    long allocated = data.samples[index + 3];
+                    long gcTime    = data.samples[index + 4];
+                    long time      = end - start;
+                    
+                    times.get(ThreadTimes.TIME, id, this).add(time, end);
+                    if (allocated >= 0)
+                    {
+                        times.get(ThreadTimes.ALLOCATED, id, this).add(allocated, end);
+                        times.get(ThreadTimes.GC_TIME, id, this).add(gcTime, end);
+                    }
+                    if (frame) accumulate(id, time);
+                    if (this.trace != null) trace(data.thread, this.sections[id], start, end);
+                }
+                data.read = written;
+            }
+            
+            long dropped = data.dropped;
+            if (dropped != data.droppedReported)
+            {
+                Profiler.LOGGER.warning("%s dropped %s sections on %s because they were not merged in time", this, dropped - data.droppedReported, data.thread.getName());
+                data.droppedReported = dropped;
+            }
+            
+            if (!data.thread.isAlive() && data.read == data.written) this.threads.remove(data);
         }
-        return null;
     }
     
     /**
-     * Gets a multiline string that shows the frame that took the minimum amount of time.
-     * <p>
-     * All child sections will be included in the string with the percentage that the child took in the parent
-     * as well as the percentage of the frame time taken.
-     *
-     * @param parent The parent section to collect or null for the entire data set.
-     * @return The multiline string or null if disabled.
+     * @return The names of the threads that sections have been recorded on, in the order they were first seen.
      */
-    public @Nullable String getMinDataString(@Nullable String parent)
+    public synchronized @NotNull List<String> threads()
     {
-        if (this.enabled)
+        merge();
+        return new ArrayList<>(this.threadTimes.keySet());
+    }
+    
+    private Section child(Section parent, String name)
+    {
+        Section child = parent.childrenByName.get(name);
+        if (child != null) return child;
+        synchronized (this.root)
         {
-            StringBuilder sb = new StringBuilder(this.name).append(" - Minimum Frame Data - ");
-            format(0, parent, sb, true, this::getMinData);
-            sb.setLength(sb.length() - 1);
-            return sb.toString();
+            child = parent.childrenByName.get(name);
+            if (child == null)
+            {
+                Section[] sections = this.sections;
+                
+                child = new Section(this, parent == this.root ? name : parent.name() + '.' + name, sections.length, parent);
+                
+                sections             = Arrays.copyOf(sections, sections.length + 1);
+                sections[child.id()] = child;
+                this.sections        = sections;
+                parent.addChild(name, child);
+            }
+            return child;
         }
-        return null;
     }
     
     /**
-     * Gets a multiline string that shows the frame that took the maximum amount of time.
-     * <p>
-     * All child sections will be included in the string with the percentage that the child took in the parent
-     * as well as the percentage of the frame time taken.
-     *
-     * @param parent The parent section to collect or null for the entire data set.
-     * @return The multiline string or null if disabled.
+     * Gets the section at the path without creating it.
      */
-    public @Nullable String getMaxDataString(@Nullable String parent)
+    private @Nullable Section find(@Nullable String path)
     {
-        if (this.enabled)
+        if (path == null) return this.root;
+        Section section = this.root;
+        for (String name : path.split("\\."))
         {
-            StringBuilder sb = new StringBuilder(this.name).append(" - Maximum Frame Data - ");
-            format(0, parent, sb, true, this::getMaxData);
-            sb.setLength(sb.length() - 1);
-            return sb.toString();
+            section = section.childrenByName.get(name);
+            if (section == null) return null;
         }
-        return null;
+        return section;
     }
     
-    private void format(int level, String parent, StringBuilder builder, boolean header, Function<String, List<? extends SectionData>> points)
+    /**
+     * @return The calling thread's data, or null if sections cannot be started on it right now.
+     */
+    private @Nullable ThreadData startableThreadData(String name)
     {
-        List<? extends SectionData> apply = points.apply(parent);
-        for (int i = header ? 0 : 1, n = apply.size(); i < n; i++)
+        Thread thread = this.frameThread;
+        if (thread != null && thread != Thread.currentThread())
         {
-            SectionData point = apply.get(i);
-            // builder.append(String.format("[%02d] ", level));
-            builder.append("|   ".repeat(Math.max(0, level)));
-            if (!point.name.equals(this.name)) builder.append(point.name.contains(".") ? point.name.substring(point.name.lastIndexOf(".") + 1) : point.name).append(" - ");
-            builder.append(point.valueString()).append(System.lineSeparator());
-            if (point.name.equals(parent) || point.name.equals(this.name))
-            {
-                level += 1;
-            }
-            else if (!point.name.contains("Unspecified"))
-            {
-                try
-                {
-                    format(level + 1, point.name, builder, false, points);
-                }
-                catch (Exception e)
-                {
-                    builder.append("[[ EXCEPTION ").append(e).append(" ]]");
-                }
-            }
+            if (this.concurrent) return this.threadData.get();
+            Profiler.LOGGER.finest("Ignoring section '%s' in %s because it is not concurrent.", name, this);
+            return null;
+        }
+        if (!this.inFrame)
+        {
+            Profiler.LOGGER.warning("Cannot start section '%s' in %s because not in frame.", name, this);
+            return null;
         }
+        return this.threadData.get();
     }
     
-    /**
-     * Gets a ArrayList of data points that shows the average, minimum, and maximum for each section in the parent over the number of frames profiled.
-     *
-     * @param parent The parent section to collect or null for the top level.
-     * @return The ArrayList of data points.
-     */
-    public @NotNull List<SectionData> getAverageData(@Nullable String parent)
+    private void push(ThreadData data, Section section)
     {
-        if (!this.enabled) return new ArrayList<>();
-        
-        Function<String, Boolean> check = s -> (parent == null && !s.contains(".")) || (s.startsWith(parent + '.') && !s.replaceFirst(parent + '.', "").contains("."));
-        
-        ArrayList<SectionData> data = new ArrayList<>();
-        for (String section : this.sectionsTimeList.keySet())
+        if (data.depth == data.stack.length)
         {
-            if (check.apply(section))
-            {
-                ArrayList<Long> times = this.sectionsTimeList.get(section);
-                
-                long minTime   = Long.MAX_VALUE;
-                long maxTime   = Long.MIN_VALUE;
-                long totalTime = 0;
-                
-                for (long time : times)
-                {
-                    minTime = Math.min(minTime, time);
-                    maxTime = Math.max(maxTime, time);
-                    totalTime += time;
-                }
-                
-                data.add(new SectionData.Average(section, totalTime / times.size(), minTime, maxTime));
-            }
+            data.stack     = Arrays.copyOf(data.stack, data.depth << 1);
+            data.starts    = Arrays.copyOf(data.starts, data.depth << 1);
+            data.allocated = Arrays.copyOf(data.allocated, data.depth << 1);
+            data.gcTimes   = Arrays.copyOf(data.gcTimes, data.depth << 1);
         }
-        
-        long minTime   = Long.MAX_VALUE;
-        long maxTime   = Long.MIN_VALUE;
-        long totalTime = 0;
-        
-        for (long time : this.frameTimeList)
+        data.stack[data.depth] = section.id();
+        if (this.memoryTracking)
         {
-            minTime = Math.min(minTime, time);
-            maxTime = Math.max(maxTime, time);
-            totalTime += time;
+            data.allocated[data.depth] = MemoryTracker.allocatedBytes();
+            data.gcTimes[data.depth]   = MemoryTracker.gcTime();
         }
-        data.sort(Collections.reverseOrder());
-        data.add(0, new SectionData.Average(parent == null ? this.name : parent, totalTime / this.frameTimeList.size(), minTime, maxTime));
-        return data;
+        else
+        {
+            data.allocated[data.depth] = -1L;
+        }
+        data.starts[data.depth++] = this.sampling ? Profiler.UNTIMED : System.nanoTime();
     }
     
-    /**
-     * Gets a ArrayList of data points that shows the frame that the parent took the minimum amount of time to execute.
-     * <p>
-     * The child sections will be included in the string with the percentage that the child took in the parent
-     * as well as the percentage of the frame time taken.
-     *
-     * @param parent The parent section to collect or null for the top level.
-     * @return The ArrayList of data points.
-     */
-    public @NotNull List<SectionData> getMinData(@Nullable String parent)
+    private void accumulate(int id, long time)
     {
-        if (!this.enabled) return new ArrayList<>();
-        
-        ArrayList<Long> data = parent != null ? this.sectionsTimeList.get(parent) : this.frameTimeList;
-        
-        if (data == null) return new ArrayList<>();
-        
-        long min = Long.MAX_VALUE;
-        int  idx = 0;
-        for (int i = 0, n = data.size(); i < n; i++)
+        if (id >= this.frameSectionTimes.length)
+        {
+            int length = this.sections.length;
+            this.frameSectionTimes = Arrays.copyOf(this.frameSectionTimes, length);
+            this.frameAccumulator  = Arrays.copyOf(this.frameAccumulator, length);
+        }
+        if (this.frameSectionTimes[id] == null) this.frameSectionTimes[id] = new LongRing(this.historySize);
+        this.frameAccumulator[id] += time;
+    }
+    
+    private void trace(Thread thread, Section section, long start, long end)
+    {
+        ChromeTrace trace = this.trace;
+        if (trace == null) return;
+        try
+        {
+            trace.write(thread, section, start, end);
+        }
+        catch (IOException e)
         {
-            long value = data.get(i);
-            if (value < min)
+            this.trace = null;
+            Profiler.LOGGER.warning("Could not write to trace for %s, it has been closed\n%s", this, e);
+            try
             {
-                min = value;
-                idx = i;
+                trace.close();
             }
+            catch (IOException ignored) { }
         }
-        return getFrameData(idx, parent);
     }
     
     /**
-     * Gets a ArrayList of data points that shows the frame that the parent took the maximum amount of time to execute.
-     * <p>
-     * The child sections will be included in the string with the percentage that the child took in the parent
-     * as well as the percentage of the frame time taken.
+     * Records the current section of every thread. Only called by the
+     * sampler's thread. The stacks are read without any locking, so a thread
+     * that is starting or ending a section may be seen in the section before
+     * or after.
+     */
+    void sample(Sampler sampler)
+    {
+        if (!this.enabled) return;
+        
+        Thread  frameThread = this.frameThread;
+        boolean inFrame     = this.inFrame;
+        for (ThreadData data : this.threads)
+        {
+            int   depth = (int) Profiler.DEPTH.getOpaque(data);
+            int[] stack = (int[]) Profiler.STACK.getOpaque(data);
+            if (depth > 0 && depth <= stack.length)
+            {
+                sampler.record(data.thread, (int) Profiler.STACK_ELEMENT.getOpaque(stack, depth - 1));
+            }
+            else if (depth == 0 && inFrame && data.thread == frameThread)
+            {
+                sampler.record(data.thread, Profiler.ROOT);
+            }
+        }
+    }
+    
+    private Window newWindow()
+    {
+        return new Window(this.historySize, this.historyTime);
+    }
+    
+    private ThreadData register()
+    {
+        ThreadData data = new ThreadData(Thread.currentThread());
+        this.threads.add(data);
+        return data;
+    }
+    
+    /**
+     * The section times of the thread that runs the frames.
+     */
+    private ThreadTimes frameThreadTimes()
+    {
+        Thread thread = this.frameThread;
+        if (thread == null) return new ThreadTimes();
+        return this.threadTimes.getOrDefault(thread.getName(), new ThreadTimes());
+    }
+    
+    /**
+     * Gets a multiline string that shows the average, minimum, and maximum for each section over the number of frames profiled.
+     * <p>
+     * All child sections will be included in the string.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The multiline string or null if disabled.
+     */
+    public synchronized @Nullable String getAvgDataString(@Nullable String parent)
+    {
+        return this.enabled ? text(" - Average Frame Data - ", this.name, getAvgDataTree(parent)) : null;
+    }
+    
+    /**
+     * Gets a multiline string that shows the frame that took the minimum amount of time.
+     * <p>
+     * All child sections will be included in the string with the percentage that the child took in the parent
+     * as well as the percentage of the frame time taken.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The multiline string or null if disabled.
+     */
+    public synchronized @Nullable String getMinDataString(@Nullable String parent)
+    {
+        return this.enabled ? text(" - Minimum Frame Data - ", this.name, getMinDataTree(parent)) : null;
+    }
+    
+    /**
+     * Gets a multiline string that shows the frame that took the maximum amount of time.
+     * <p>
+     * All child sections will be included in the string with the percentage that the child took in the parent
+     * as well as the percentage of the frame time taken.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The multiline string or null if disabled.
+     */
+    public synchronized @Nullable String getMaxDataString(@Nullable String parent)
+    {
+        return this.enabled ? text(" - Maximum Frame Data - ", this.name, getMaxDataTree(parent)) : null;
+    }
+    
+    /**
+     * Gets a multiline string that shows the average and percentiles for each section in the current window.
+     * <p>
+     * All child sections will be included in the string.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The multiline string or null if disabled.
+     */
+    public synchronized @Nullable String getPercentileDataString(@Nullable String parent)
+    {
+        return this.enabled ? text(" - Percentile Frame Data - ", this.name, getPercentileDataTree(parent)) : null;
+    }
+    
+    /**
+     * Gets a multiline string that shows the estimated time and percentage of each section from the samples taken on the frame thread.
+     * <p>
+     * All child sections will be included in the string.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The multiline string or null if nothing has been sampled.
+     */
+    public synchronized @Nullable String getSampledDataString(@Nullable String parent)
+    {
+        return this.sampler != null && this.frameThread != null ? text(" - Sampled Frame Data - ", this.name, getSampledDataTree(parent)) : null;
+    }
+    
+    /**
+     * Gets a multiline string that shows the average, minimum, and maximum for each section on each thread that
+     * sections were recorded on.
+     *
+     * @return The multiline string or null if disabled.
+     */
+    public synchronized @Nullable String getThreadDataString()
+    {
+        if (this.enabled)
+        {
+            StringBuilder sb = new StringBuilder(this.name).append(" - Average Thread Data").append(System.lineSeparator());
+            for (String thread : threads())
+            {
+                sb.append(thread).append(" - ");
+                SectionNode node = tree(this.root, thread, getAverageData(this.threadTimes.get(thread)));
+                if (node != null) node.appendText(sb, thread, 0);
+            }
+            sb.setLength(sb.length() - 1);
+            return sb.toString();
+        }
+        return null;
+    }
+    
+    private String text(String title, String root, @Nullable SectionNode node)
+    {
+        StringBuilder sb = new StringBuilder(this.name).append(title);
+        if (node != null) node.appendText(sb, root, 0);
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+    
+    /**
+     * Gets the average, minimum, and maximum for the parent and every section below it over the number of frames
+     * profiled. The data of the parent is the frame time.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The tree, or null if disabled or the parent does not exist.
+     */
+    public synchronized @Nullable SectionNode getAvgDataTree(@Nullable String parent)
+    {
+        if (!this.enabled) return null;
+        
+        merge();
+        
+        Section section = find(parent);
+        return section != null ? tree(section, this.name, getAverageData(frameThreadTimes())) : null;
+    }
+    
+    /**
+     * Gets the frame that the parent took the minimum amount of time to execute, with the percentage that each
+     * section below it took in its parent as well as the percentage of the frame time taken.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The tree, or null if disabled or the parent does not exist.
+     */
+    public synchronized @Nullable SectionNode getMinDataTree(@Nullable String parent)
+    {
+        return frameTree(parent, false);
+    }
+    
+    /**
+     * Gets the frame that the parent took the maximum amount of time to execute, with the percentage that each
+     * section below it took in its parent as well as the percentage of the frame time taken.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The tree, or null if disabled or the parent does not exist.
+     */
+    public synchronized @Nullable SectionNode getMaxDataTree(@Nullable String parent)
+    {
+        return frameTree(parent, true);
+    }
+    
+    /**
+     * Gets the average, minimum, maximum and percentiles for the parent and every section below it in the current
+     * window. The data of the parent is the frame time.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The tree, or null if disabled or the parent does not exist.
+     */
+    public synchronized @Nullable SectionNode getPercentileDataTree(@Nullable String parent)
+    {
+        if (!this.enabled) return null;
+        
+        merge();
+        
+        Section section = find(parent);
+        return section != null ? tree(section, this.name, getPercentileData(frameThreadTimes())) : null;
+    }
+    
+    /**
+     * Gets the estimated time and percentage of the parent and every section below it from the samples taken on
+     * the frame thread.
+     *
+     * @param parent The parent section to collect or null for the entire data set.
+     * @return The tree, or null if nothing has been sampled or the parent does not exist.
+     */
+    public synchronized @Nullable SectionNode getSampledDataTree(@Nullable String parent)
+    {
+        Sampler sampler = this.sampler;
+        Thread  thread  = this.frameThread;
+        Section section = find(parent);
+        if (sampler == null || thread == null || section == null) return null;
+        
+        return tree(section, this.name, getSampledData(sampler.interval(), inclusive(sampler.counts().get(thread.getName()))));
+    }
+    
+    /**
+     * Builds the tree below a section with one walk down the section tree.
+     *
+     * @param parent   The section at the top of the tree.
+     * @param root     The name to give the top of the tree if it is the root section.
+     * @param function Gets the data of a section and its child sections, in the order to show them.
+     * @return The tree, or null if there is no data for the parent.
+     */
+    private @Nullable SectionNode tree(Section parent, String root, Data function)
+    {
+        List<SectionData> data = function.apply(parent, parent == this.root ? root : parent.name());
+        return data.isEmpty() ? null : node(data.get(0), data.subList(1, data.size()), function);
+    }
+    
+    private SectionNode node(SectionData data, List<SectionData> children, Data function)
+    {
+        SectionNode[] nodes = new SectionNode[children.size()];
+        for (int i = 0, n = nodes.length; i < n; i++)
+        {
+            SectionData child = children.get(i);
+            if (child.section != null)
+            {
+                List<SectionData> points = function.apply(child.section, child.name);
+                nodes[i] = node(child, points.subList(1, points.size()), function);
+            }
+            else
+            {
+                nodes[i] = new SectionNode(child, SectionNode.EMPTY);
+            }
+        }
+        return new SectionNode(data, nodes);
+    }
+    
+    /**
+     * Gets the data of a section, followed by the data of its child sections.
+     */
+    @FunctionalInterface
+    private interface Data
+    {
+        /**
+         * @param section The section.
+         * @param name    The name to give the data of the section.
+         * @return The data, with the data of the section first, or an empty list if there is none.
+         */
+        List<SectionData> apply(Section section, String name);
+    }
+    
+    /**
+     * Gets a ArrayList of data points that shows the estimated time and percentage of each section in the parent
+     * from the samples taken on the frame thread. The first point is the parent.
      *
      * @param parent The parent section to collect or null for the top level.
      * @return The ArrayList of data points.
      */
-    public @NotNull List<SectionData> getMaxData(@Nullable String parent)
+    public synchronized @NotNull List<SectionData> getSampledData(@Nullable String parent)
+    {
+        Thread thread = this.frameThread;
+        return thread != null ? getSampledData(thread.getName(), parent) : new ArrayList<>();
+    }
+    
+    /**
+     * Gets a ArrayList of data points that shows the estimated time and percentage of each section in the parent
+     * from the samples taken on a thread. The first point is the parent.
+     *
+     * @param thread The name of the thread.
+     * @param parent The parent section to collect or null for the top level.
+     * @return The ArrayList of data points.
+     */
+    public synchronized @NotNull List<SectionData> getSampledData(@NotNull String thread, @Nullable String parent)
+    {
+        Sampler sampler = this.sampler;
+        Section section = find(parent);
+        if (sampler == null || section == null) return new ArrayList<>();
+        return getSampledData(sampler.interval(), inclusive(sampler.counts().get(thread))).apply(section, section.name());
+    }
+    
+    /**
+     * Gets the samples of every thread in the folded stack format used by
+     * flame graph tools: one line per stack, with the thread name, the
+     * profiler name and each section name separated by {@code ';'}, followed
+     * by the number of times it was sampled.
+     *
+     * @return The folded stacks, or an empty string if nothing has been sampled.
+     */
+    public synchronized @NotNull String getFoldedStacks()
+    {
+        Sampler sampler = this.sampler;
+        if (sampler == null) return "";
+        
+        Section[]     sections = this.sections;
+        StringBuilder builder  = new StringBuilder();
+        sampler.counts().forEach((thread, counts) -> {
+            for (int id = 0, n = counts.length; id < n; id++)
+            {
+                if (counts[id] == 0) continue;
+                builder.append(thread).append(';').append(this.name);
+                if (id != Profiler.ROOT) builder.append(';').append(sections[id].name().replace('.', ';'));
+                builder.append(' ').append(counts[id]).append('\n');
+            }
+        });
+        return builder.toString();
+    }
+    
+    /**
+     * @return The counts with the counts of every section added to its parents, indexed by section id.
+     */
+    private long[] inclusive(@Nullable long[] counts)
+    {
+        Section[] sections  = this.sections;
+        long[]    inclusive = new long[sections.length];
+        if (counts == null) return inclusive;
+        System.arraycopy(counts, 0, inclusive, 0, Math.min(counts.length, inclusive.length));
+        
+        // A section is always created after its parent, so has a larger id.
+        for (int id = sections.length - 1; id > Profiler.ROOT; id--)
+        {
+            Section parent = sections[id].parent();
+            inclusive[parent != null ? parent.id() : Profiler.ROOT] += inclusive[id];
+        }
+        return inclusive;
+    }
+    
+    private Data getSampledData(long interval, long[] inclusive)
+    {
+        long globalTotal = Math.max(inclusive[Profiler.ROOT], 1);
+        return (parent, name) -> {
+            if (parent.id() >= inclusive.length) return new ArrayList<>();
+            
+            long parentTotal = inclusive[parent.id()];
+            long total       = Math.max(parentTotal, 1);
+            long actualTotal = 0;
+            
+            ArrayList<SectionData> data = new ArrayList<>();
+            for (Section section : parent.children)
+            {
+                long count = section.id() < inclusive.length ? inclusive[section.id()] : 0;
+                if (count == 0) continue;
+                actualTotal += count;
+                data.add(new SectionData.Percent(section, section.name(), count * interval, round(count * 100D / total, 3), round(count * 100D / globalTotal, 3)));
+            }
+            
+            long self = parentTotal - actualTotal;
+            if (self > 0 && !data.isEmpty())
+            {
+                String unspecified = parent != this.root ? parent.name() + ".Unspecified" : "Unspecified";
+                data.add(new SectionData.Percent(null, unspecified, self * interval, round(self * 100D / total, 3), round(self * 100D / globalTotal, 3)));
+            }
+            
+            data.sort(Collections.reverseOrder());
+            data.add(0, new SectionData.Percent(parent, name, parentTotal * interval, 100, round(parentTotal * 100D / globalTotal, 3)));
+            return data;
+        };
+    }
+    
+    /**
+     * Gets a ArrayList of data points that shows the average, minimum, and maximum for each section in the parent over the number of frames profiled.
+     *
+     * @param parent The parent section to collect or null for the top level.
+     * @return The ArrayList of data points.
+     */
+    public synchronized @NotNull List<SectionData> getAverageData(@Nullable String parent)
     {
         if (!this.enabled) return new ArrayList<>();
         
-        ArrayList<Long> data = parent != null ? this.sectionsTimeList.get(parent) : this.frameTimeList;
+        merge();
         
-        if (data == null) return new ArrayList<>();
+        Section section = find(parent);
+        return section != null ? getAverageData(frameThreadTimes()).apply(section, parent == null ? this.name : parent) : new ArrayList<>();
+    }
+    
+    /**
+     * Gets a ArrayList of data points that shows the average, minimum, and maximum for each section in the parent
+     * that was recorded on a thread. The first point is the frame time.
+     *
+     * @param thread The name of the thread.
+     * @param parent The parent section to collect or null for the top level.
+     * @return The ArrayList of data points.
+     */
+    public synchronized @NotNull List<SectionData> getAverageData(@NotNull String thread, @Nullable String parent)
+    {
+        if (!this.enabled) return new ArrayList<>();
         
-        long max = Long.MIN_VALUE;
-        int  idx = 0;
-        for (int i = 0, n = data.size(); i < n; i++)
-        {
-            long value = data.get(i);
-            if (value > max)
+        merge();
+        
+        Section section = find(parent);
+        return section != null ? getAverageData(this.threadTimes.get(thread)).apply(section, parent == null ? thread : parent) : new ArrayList<>();
+    }
+    
+    private Data getAverageData(@Nullable ThreadTimes sectionTimes)
+    {
+        return collect(sectionTimes, (section, name, window) -> new SectionData.Average(section, name, window.mean(), window.histogram().min(), window.histogram().max()));
+    }
+    
+    /**
+     * Gets a ArrayList of data points that shows the average, minimum, maximum and percentiles for each section
+     * in the parent in the current window. The first point is the frame time.
+     *
+     * @param parent The parent section to collect or null for the top level.
+     * @return The ArrayList of data points.
+     */
+    public synchronized @NotNull List<SectionData> getPercentileData(@Nullable String parent)
+    {
+        if (!this.enabled) return new ArrayList<>();
+        
+        merge();
+        
+        Section section = find(parent);
+        return section != null ? getPercentileData(frameThreadTimes()).apply(section, parent == null ? this.name : parent) : new ArrayList<>();
+    }
+    
+    /**
+     * Gets a ArrayList of data points that shows the average, minimum, maximum and percentiles for each section
+     * in the parent that was recorded on a thread. The first point is the frame time.
+     *
+     * @param thread The name of the thread.
+     * @param parent The parent section to collect or null for the top level.
+     * @return The ArrayList of data points.
+     */
+    public synchronized @NotNull List<SectionData> getPercentileData(@NotNull String thread, @Nullable String parent)
+    {
+        if (!this.enabled) return new ArrayList<>();
+        
+        merge();
+        
+        Section section = find(parent);
+        return section != null ? getPercentileData(this.threadTimes.get(thread)).apply(section, parent == null ? thread : parent) : new ArrayList<>();
+    }
+    
+    private Data getPercentileData(@Nullable ThreadTimes sectionTimes)
+    {
+        return collect(sectionTimes, (section, name, window) -> new SectionData.Percentile(section, name, window.size(), window.mean(), window.histogram()));
+    }
+    
+    /**
+     * Makes the data of a section from its window of times.
+     */
+    @FunctionalInterface
+    private interface WindowData
+    {
+        SectionData apply(@Nullable Section section, String name, Window window);
+    }
+    
+    /**
+     * The first point of each list is made from the frame times, and the rest
+     * from the windows of the child sections that have any times. If any
+     * memory has been tracked, the averages of the allocations and pauses are
+     * added to every point.
+     */
+    private Data collect(@Nullable ThreadTimes sectionTimes, WindowData function)
+    {
+        long now = System.nanoTime();
+        this.frameTimes.trim(now);
+        this.frameAllocations.trim(now);
+        this.frameGcTimes.trim(now);
+        boolean memory = this.memoryTracking || this.frameAllocations.size() > 0;
+        return (parent, name) -> {
+            ArrayList<SectionData> data = new ArrayList<>();
+            if (sectionTimes != null)
             {
-                max = value;
-                idx = i;
+                for (Section section : parent.children)
+                {
+                    Window window = sectionTimes.get(ThreadTimes.TIME, section.id());
+                    if (window == null) continue;
+                    window.trim(now);
+                    if (window.size() == 0) continue;
+                    SectionData point = function.apply(section, section.name(), window);
+                    if (memory)
+                    {
+                        Window allocations = sectionTimes.get(ThreadTimes.ALLOCATED, section.id());
+                        Window gcTimes     = sectionTimes.get(ThreadTimes.GC_TIME, section.id());
+                        if (allocations != null) allocations.trim(now);
+                        if (gcTimes != null) gcTimes.trim(now);
+                        point.memory(allocations != null ? allocations.mean() : 0L, gcTimes != null ? gcTimes.mean() : 0L);
+                    }
+                    data.add(point);
+                }
             }
-        }
-        return getFrameData(idx, parent);
+            data.sort(Collections.reverseOrder());
+            SectionData point = function.apply(parent, name, this.frameTimes);
+            if (memory) point.memory(this.frameAllocations.mean(), this.frameGcTimes.mean());
+            data.add(0, point);
+            return data;
+        };
     }
     
-    private List<SectionData> getFrameData(int frame, String parent)
+    /**
+     * Gets a ArrayList of data points that shows the frame that the parent took the minimum amount of time to execute.
+     * <p>
+     * The child sections will be included in the string with the percentage that the child took in the parent
+     * as well as the percentage of the frame time taken.
+     *
+     * @param parent The parent section to collect or null for the top level.
+     * @return The ArrayList of data points.
+     */
+    public synchronized @NotNull List<SectionData> getMinData(@Nullable String parent)
+    {
+        return frameData(parent, false);
+    }
+    
+    /**
+     * Gets a ArrayList of data points that shows the frame that the parent took the maximum amount of time to execute.
+     * <p>
+     * The child sections will be included in the string with the percentage that the child took in the parent
+     * as well as the percentage of the frame time taken.
+     *
+     * @param parent The parent section to collect or null for the top level.
+     * @return The ArrayList of data points.
+     */
+    public synchronized @NotNull List<SectionData> getMaxData(@Nullable String parent)
     {
-        Function<String, Boolean> check = s -> (parent == null && !s.contains(".")) || (s.startsWith(parent + '.') && !s.replaceAll(parent + '.', "").contains("."));
+        return frameData(parent, true);
+    }
+    
+    private List<SectionData> frameData(@Nullable String parent, boolean max)
+    {
+        if (!this.enabled) return new ArrayList<>();
         
-        long actualTotal = 0;
-        for (String section : this.sectionsTimeList.keySet()) if (check.apply(section)) actualTotal += this.sectionsTimeList.get(section).get(frame);
+        merge();
         
-        long parentTotal = (parent != null ? this.sectionsTimeList.get(parent) : this.frameTimeList).get(frame);
-        long globalTotal = Math.max(this.frameTimeList.get(frame), parentTotal);
+        Section section = find(parent);
+        int     age     = section != null ? frameAge(section, max) : -1;
+        return age >= 0 ? getFrameData(age).apply(section, section.name()) : new ArrayList<>();
+    }
+    
+    private @Nullable SectionNode frameTree(@Nullable String parent, boolean max)
+    {
+        if (!this.enabled) return null;
         
-        long total = Math.max(actualTotal, parentTotal);
+        merge();
         
-        ArrayList<SectionData> data = new ArrayList<>();
-        for (String section : this.sectionsTimeList.keySet())
+        Section section = find(parent);
+        int     age     = section != null ? frameAge(section, max) : -1;
+        return age >= 0 ? tree(section, this.name, getFrameData(age)) : null;
+    }
+    
+    /**
+     * @return The number of frames ago that the section took the least or most time, or -1 if it has no times.
+     */
+    private int frameAge(Section section, boolean max)
+    {
+        int frames = frames();
+        if (frames == 0 || (section != this.root && frameSectionTimes(section) == null)) return -1;
+        
+        long best = max ? Long.MIN_VALUE : Long.MAX_VALUE;
+        int  age  = 0;
+        for (int i = 0; i < frames; i++)
         {
-            if (check.apply(section))
+            long value = frameTime(section, i);
+            if (max ? value > best : value < best)
             {
-                long   time     = this.sectionsTimeList.get(section).get(frame);
+                best = value;
+                age  = i;
+            }
+        }
+        return age;
+    }
+    
+    /**
+     * @return The number of frames in the window.
+     */
+    private int frames()
+    {
+        this.frameTimes.trim(System.nanoTime());
+        return this.frameTimes.size();
+    }
+    
+    /**
+     * @return The time the section took in the frame, or the frame time for the root.
+     */
+    private long frameTime(Section section, int age)
+    {
+        if (section == this.root) return this.frameTimes.getFromEnd(age);
+        LongRing times = frameSectionTimes(section);
+        return times != null ? times.getFromEnd(age) : 0L;
+    }
+    
+    private @Nullable LongRing frameSectionTimes(@Nullable Section section)
+    {
+        if (section == null || section.id() >= this.frameSectionTimes.length) return null;
+        return this.frameSectionTimes[section.id()];
+    }
+    
+    /**
+     * @param age    The number of frames that have ended since the frame to get.
+     * @param parent The parent section.
+     */
+    private Data getFrameData(int age)
+    {
+        long frameTotal = this.frameTimes.getFromEnd(age);
+        return (parent, name) -> {
+            long actualTotal = 0;
+            for (Section section : parent.children) actualTotal += frameTime(section, age);
+            
+            long parentTotal = frameTime(parent, age);
+            long globalTotal = Math.max(frameTotal, parentTotal);
+            
+            long total = Math.max(actualTotal, parentTotal);
+            
+            ArrayList<SectionData> data = new ArrayList<>();
+            for (Section section : parent.children)
+            {
+                if (frameSectionTimes(section) == null) continue;
+                long   time     = frameTime(section, age);
                 double percent  = round(((double) time / (double) total) * 100D, 3);
                 double gPercent = round(((double) time / (double) globalTotal) * 100D, 3);
-                data.add(new SectionData.Percent(section, time, percent, gPercent));
+                data.add(new SectionData.Percent(section, section.name(), time, percent, gPercent));
+            }
+            
+            if (parentTotal > actualTotal && !data.isEmpty())
+            {
+                long   time     = parentTotal - actualTotal;
+                double percent  = round(((double) time / (double) total) * 100D, 3);
+                double gPercent = round(((double) time / (double) globalTotal) * 100D, 3);
+                data.add(new SectionData.Percent(null, parent != this.root ? parent.name() + ".Unspecified" : "Unspecified", time, percent, gPercent));
+            }
+            
+            data.sort(Collections.reverseOrder());
+            data.add(0, new SectionData.Percent(parent, name, parentTotal, 100, round(parentTotal / (double) globalTotal * 100D, 3)));
+            return data;
+        };
+    }
+    
+    /**
+     * The state of one thread. The section stack is only touched by its own
+     * thread. Ended sections are written to a ring of
+     * {@code (id, start, end, allocated, gcTime)} entries that the merging
+     * thread reads from, where {@code allocated} is -1 if memory was not
+     * tracked.
+     */
+    private static final class ThreadData
+    {
+        private static final int SAMPLE_SIZE = 5;
+        
+        private final Thread thread;
+        
+        private int[]  stack     = new int[16];
+        private long[] starts    = new long[16];
+        private long[] allocated = new long[16];
+        private long[] gcTimes   = new long[16];
+        private int    depth;
+        
+        private long frameAllocated = -1L;
+        private long frameGcTime;
+        
+        private final    long[] samples = new long[Profiler.SAMPLE_BUFFER_SIZE * ThreadData.SAMPLE_SIZE];
+        private volatile long   written;
+        private volatile long   read;
+        private volatile long   dropped;
+        private          long   droppedReported;
+        
+        private ThreadData(Thread thread)
+        {
+            this.thread = thread;
+        }
+        
+        private void record(int id, long start, long end, long allocated, long gcTime)
+        {
+            long written = this.written;
+            if (written - this.read >= Profiler.SAMPLE_BUFFER_SIZE)
+            {
+                this.dropped++; // Only written by this thread.
+                return;
             }
+            int index = (int) (written % Profiler.SAMPLE_BUFFER_SIZE) * ThreadData.SAMPLE_SIZE;
+            this.samples[index]     = id;
+            this.samples[index + 1] = start;
+            this.samples[index + 2] = end;
+            this.samples[index + 3] = allocated;
+            this.samples[index + 4] = gcTime;
+            this.written            = written + 1;
         }
+    }
+    
+    /**
+     * The merged section times of one thread, and the allocations and pauses
+     * of the sections that were memory tracked, indexed by section id.
+     */
+    private static final class ThreadTimes
+    {
+        private static final int TIME      = 0;
+        private static final int ALLOCATED = 1;
+        private static final int GC_TIME   = 2;
+        
+        private final Window[][] windows = {new Window[0], new Window[0], new Window[0]};
         
-        if (parentTotal > actualTotal && !data.isEmpty())
+        private @Nullable Window get(int kind, int id)
         {
-            long   time     = parentTotal - actualTotal;
-            double percent  = round(((double) time / (double) total) * 100D, 3);
-            double gPercent = round(((double) time / (double) globalTotal) * 100D, 3);
-            data.add(new SectionData.Percent(parent != null ? parent + ".Unspecified" : "Unspecified", time, percent, gPercent));
+            Window[] windows = this.windows[kind];
+            return id < windows.length ? windows[id] : null;
         }
         
-        data.sort(Collections.reverseOrder());
-        data.add(0, new SectionData.Percent(parent == null ? this.name : parent, parentTotal, 100, round(parentTotal / (double) globalTotal * 100D, 3)));
-        return data;
+        private Window get(int kind, int id, Profiler profiler)
+        {
+            Window[] windows = this.windows[kind];
+            if (id >= windows.length) this.windows[kind] = windows = Arrays.copyOf(windows, id + 1);
+            if (windows[id] == null) windows[id] = profiler.newWindow();
+            return windows[id];
+        }
     }
 }
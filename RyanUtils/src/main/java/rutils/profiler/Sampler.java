@@ -0,0 +1,131 @@
+package rutils.profiler;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A background thread that looks at the current section of every thread a
+ * {@link Profiler} knows about at a fixed rate, and counts how many times
+ * each section was seen.
+ * <p>
+ * Only the innermost section of each thread is counted. The time spent in a
+ * section and the sections below it can be estimated by adding up their
+ * counts and multiplying by the interval.
+ */
+final class Sampler implements Runnable
+{
+    private final Profiler profiler;
+    private final long     interval;
+    private final Thread   thread;
+    
+    private volatile boolean running = true;
+    
+    // Only accessed while holding the lock on this sampler.
+    private final LinkedHashMap<String, long[]> counts = new LinkedHashMap<>();
+    private       long                          samples;
+    
+    /**
+     * @param profiler The profiler to sample.
+     * @param interval The time between samples in nanoseconds.
+     */
+    Sampler(Profiler profiler, long interval)
+    {
+        this.profiler = profiler;
+        this.interval = interval;
+        
+        this.thread = new Thread(this, profiler.name() + " Sampler");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MAX_PRIORITY);
+    }
+    
+    /**
+     * @return The time between samples in nanoseconds.
+     */
+    long interval()
+    {
+        return this.interval;
+    }
+    
+    void start()
+    {
+        this.thread.start();
+    }
+    
+    void stop()
+    {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+        try
+        {
+            this.thread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public void run()
+    {
+        long next = System.nanoTime() + this.interval;
+        while (this.running)
+        {
+            long wait = next - System.nanoTime();
+            if (wait > 0)
+            {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            next = Math.max(next + this.interval, System.nanoTime());
+            
+            synchronized (this)
+            {
+                this.profiler.sample(this);
+                this.samples++;
+            }
+        }
+    }
+    
+    /**
+     * Counts a section that a thread was in when it was sampled.
+     *
+     * @param thread The thread.
+     * @param id     The id of the section.
+     */
+    void record(Thread thread, int id)
+    {
+        long[] counts = this.counts.get(thread.getName());
+        if (counts == null || id >= counts.length)
+        {
+            counts = counts == null ? new long[id + 1] : Arrays.copyOf(counts, Math.max(id + 1, counts.length << 1));
+            this.counts.put(thread.getName(), counts);
+        }
+        counts[id]++;
+    }
+    
+    /**
+     * @return The number of times the threads have been sampled.
+     */
+    synchronized long samples()
+    {
+        return this.samples;
+    }
+    
+    /**
+     * @return A copy of the number of times each section was the current section on each thread, indexed by section id.
+     */
+    synchronized LinkedHashMap<String, long[]> counts()
+    {
+        LinkedHashMap<String, long[]> counts = new LinkedHashMap<>();
+        this.counts.forEach((thread, values) -> counts.put(thread, values.clone()));
+        return counts;
+    }
+    
+    synchronized void clear()
+    {
+        this.counts.clear();
+        this.samples = 0;
+    }
+}
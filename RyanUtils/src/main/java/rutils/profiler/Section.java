@@ -1,16 +1,40 @@
 package rutils.profiler;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A section in a {@link Profiler Profiler's} section tree.
+ * <p>
+ * Each section is created once and given an id, so it can be kept as a handle
+ * with {@link Profiler#section(String)} and started with {@link #start()}
+ * without looking anything up or allocating.
+ */
 public class Section implements AutoCloseable
 {
     private final Profiler profiler;
     private final String   name;
+    private final int      id;
+    private final Section  parent;
+    
+    final ConcurrentHashMap<String, Section> childrenByName = new ConcurrentHashMap<>();
+    
+    /**
+     * The child sections in the order they were created. Replaced, not
+     * changed, when a child is added, so it can be walked without locking.
+     */
+    volatile Section[] children = new Section[0];
     
-    Section(Profiler profiler, String name)
+    Section(Profiler profiler, String name, int id, Section parent)
     {
         this.profiler = profiler;
         this.name     = name;
+        this.id       = id;
+        this.parent   = parent;
     }
     
     @Override
@@ -43,17 +67,67 @@ public class Section implements AutoCloseable
         return this.name;
     }
     
+    /**
+     * @return The id of the section in its profiler.
+     */
+    public int id()
+    {
+        return this.id;
+    }
+    
+    /**
+     * @return The parent section or null if this is a top level section.
+     */
+    public @Nullable Section parent()
+    {
+        return this.parent != null && this.parent.id != Profiler.ROOT ? this.parent : null;
+    }
+    
+    /**
+     * Starts timing this section. It is recorded under its own name,
+     * whatever section is currently started. Must be paired with
+     * {@link #close()}.
+     *
+     * @return This section.
+     */
+    public @NotNull Section start()
+    {
+        this.profiler.startSection(this);
+        return this;
+    }
+    
     @Override
     public void close()
     {
         this.profiler.endSection();
     }
     
+    /**
+     * Adds a child section. Must be called while holding the lock on the profiler's root section.
+     *
+     * @param name  The name of the child within this section.
+     * @param child The child section.
+     */
+    void addChild(String name, Section child)
+    {
+        Section[] children = Arrays.copyOf(this.children, this.children.length + 1);
+        children[children.length - 1] = child;
+        
+        this.childrenByName.put(name, child);
+        this.children = children;
+    }
+    
     static final class NullSection extends Section
     {
         NullSection(Profiler profiler)
         {
-            super(profiler, "null");
+            super(profiler, "null", -1, null);
+        }
+        
+        @Override
+        public @NotNull Section start()
+        {
+            return this;
         }
         
         @Override
@@ -1,30 +1,109 @@
 package rutils.profiler;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
 public abstract class SectionData implements Comparable<SectionData>
 {
     public final String name;
     
-    private SectionData(String name)
+    /**
+     * The section the data is for, or null if it is the time not spent in any child section.
+     */
+    final @Nullable Section section;
+    
+    private long allocatedBytes = -1L;
+    private long gcTime         = -1L;
+    
+    private SectionData(@Nullable Section section, String name)
+    {
+        this.section = section;
+        this.name    = name;
+    }
+    
+    /**
+     * @return The average number of bytes allocated by the section, or -1 if {@link Profiler#memoryTracking() memory tracking} was off.
+     */
+    public long allocatedBytes()
+    {
+        return this.allocatedBytes;
+    }
+    
+    /**
+     * @return The average time in microseconds that garbage collection paused the section, or -1 if {@link Profiler#memoryTracking() memory tracking} was off.
+     */
+    public long gcTime()
     {
-        this.name = name;
+        return this.gcTime;
+    }
+    
+    /**
+     * Adds the memory values to the data.
+     *
+     * @param allocatedBytes The average number of bytes allocated.
+     * @param gcTime         The average time in nanoseconds of the garbage collection pauses.
+     * @return This data.
+     */
+    SectionData memory(long allocatedBytes, long gcTime)
+    {
+        this.allocatedBytes = allocatedBytes;
+        this.gcTime         = gcTime / 1000;
+        return this;
     }
     
     public abstract long value();
     
     public abstract String valueString();
     
+    /**
+     * @return The names of the {@link #values()}, used as the JSON keys and CSV columns.
+     */
+    public abstract String[] keys();
+    
+    /**
+     * @return The values, with times in microseconds.
+     */
+    public abstract Number[] values();
+    
     public int compareTo(SectionData o)
     {
         return value() < o.value() ? -1 : value() > o.value() ? 1 : this.name.compareTo(o.name);
     }
     
+    String memoryString(String valueString)
+    {
+        if (this.allocatedBytes < 0) return valueString;
+        return valueString + String.format(" Alloc: %8d B GC: %6d us", this.allocatedBytes, this.gcTime);
+    }
+    
+    String[] memoryKeys(String[] keys)
+    {
+        if (this.allocatedBytes < 0) return keys;
+        String[] memoryKeys = Arrays.copyOf(keys, keys.length + 2);
+        memoryKeys[keys.length]     = "allocatedBytes";
+        memoryKeys[keys.length + 1] = "gcTime";
+        return memoryKeys;
+    }
+    
+    Number[] memoryValues(Number[] values)
+    {
+        if (this.allocatedBytes < 0) return values;
+        Number[] memoryValues = Arrays.copyOf(values, values.length + 2);
+        memoryValues[values.length]     = this.allocatedBytes;
+        memoryValues[values.length + 1] = this.gcTime;
+        return memoryValues;
+    }
+    
     public static class Average extends SectionData
     {
+        private static final String[] KEYS = {"avgTime", "minTime", "maxTime"};
+        
         public final long avgTime, minTime, maxTime;
         
-        Average(String name, long avgTime, long minTime, long maxTime)
+        Average(Section section, String name, long avgTime, long minTime, long maxTime)
         {
-            super(name);
+            super(section, name);
             this.avgTime = avgTime / 1000;
             this.minTime = minTime / 1000;
             this.maxTime = maxTime / 1000;
@@ -39,18 +118,32 @@ public abstract class SectionData implements Comparable<SectionData>
         @Override
         public String valueString()
         {
-            return String.format("Avg: %6d us Min: %6d us Max: %6d us", this.avgTime, this.minTime, this.maxTime);
+            return memoryString(String.format("Avg: %6d us Min: %6d us Max: %6d us", this.avgTime, this.minTime, this.maxTime));
+        }
+        
+        @Override
+        public String[] keys()
+        {
+            return memoryKeys(Average.KEYS);
+        }
+        
+        @Override
+        public Number[] values()
+        {
+            return memoryValues(new Number[] {this.avgTime, this.minTime, this.maxTime});
         }
     }
     
     public static class Percent extends SectionData
     {
+        private static final String[] KEYS = {"time", "percentage", "globalPercentage"};
+        
         public final long   time;
         public final double percentage, globalPercentage;
         
-        Percent(String name, long time, double percentage, double globalPercentage)
+        Percent(Section section, String name, long time, double percentage, double globalPercentage)
         {
-            super(name);
+            super(section, name);
             this.time             = time / 1000;
             this.percentage       = percentage;
             this.globalPercentage = globalPercentage;
@@ -67,5 +160,64 @@ public abstract class SectionData implements Comparable<SectionData>
         {
             return String.format("%6d us (Sec: %7.3f%% / Gbl: %7.3f%%)", this.time, this.percentage, this.globalPercentage);
         }
+        
+        @Override
+        public String[] keys()
+        {
+            return Percent.KEYS;
+        }
+        
+        @Override
+        public Number[] values()
+        {
+            return new Number[] {this.time, this.percentage, this.globalPercentage};
+        }
+    }
+    
+    public static class Percentile extends SectionData
+    {
+        private static final String[] KEYS = {"count", "avgTime", "minTime", "maxTime", "p50Time", "p90Time", "p99Time", "p999Time"};
+        
+        public final long count;
+        public final long avgTime, minTime, maxTime;
+        public final long p50Time, p90Time, p99Time, p999Time;
+        
+        Percentile(Section section, String name, long count, long avgTime, Histogram histogram)
+        {
+            super(section, name);
+            this.count    = count;
+            this.avgTime  = avgTime / 1000;
+            this.minTime  = histogram.min() / 1000;
+            this.maxTime  = histogram.max() / 1000;
+            this.p50Time  = histogram.valueAtPercentile(50) / 1000;
+            this.p90Time  = histogram.valueAtPercentile(90) / 1000;
+            this.p99Time  = histogram.valueAtPercentile(99) / 1000;
+            this.p999Time = histogram.valueAtPercentile(99.9) / 1000;
+        }
+        
+        @Override
+        public long value()
+        {
+            return this.avgTime;
+        }
+        
+        @Override
+        public String valueString()
+        {
+            return memoryString(String.format("Avg: %6d us p50: %6d us p90: %6d us p99: %6d us p99.9: %6d us Min: %6d us Max: %6d us (%d)",
+                                              this.avgTime, this.p50Time, this.p90Time, this.p99Time, this.p999Time, this.minTime, this.maxTime, this.count));
+        }
+        
+        @Override
+        public String[] keys()
+        {
+            return memoryKeys(Percentile.KEYS);
+        }
+        
+        @Override
+        public Number[] values()
+        {
+            return memoryValues(new Number[] {this.count, this.avgTime, this.minTime, this.maxTime, this.p50Time, this.p90Time, this.p99Time, this.p999Time});
+        }
     }
 }
@@ -0,0 +1,150 @@
+package rutils.profiler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A section in a profiler report, with its data and the data of its child
+ * sections, largest first. A report is built with one walk down the section
+ * tree, and can then be written as text, JSON or CSV.
+ */
+public class SectionNode
+{
+    static final SectionNode[] EMPTY = new SectionNode[0];
+    
+    public final SectionData data;
+    
+    private final SectionNode[] children;
+    
+    SectionNode(SectionData data, SectionNode[] children)
+    {
+        this.data     = data;
+        this.children = children.length > 0 ? children : SectionNode.EMPTY;
+    }
+    
+    /**
+     * @return The full name of the section.
+     */
+    public String name()
+    {
+        return this.data.name;
+    }
+    
+    /**
+     * @return The child sections, largest first.
+     */
+    public @NotNull List<SectionNode> children()
+    {
+        return List.of(this.children);
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        appendText(builder, this.data.name, 0);
+        builder.setLength(builder.length() - System.lineSeparator().length());
+        return builder.toString();
+    }
+    
+    /**
+     * Writes the node and its children as a JSON object. Each object has the
+     * full name of the section, the {@link SectionData#keys() values} of its
+     * data and an array of its children.
+     *
+     * @return The JSON string.
+     */
+    public @NotNull String toJson()
+    {
+        StringBuilder builder = new StringBuilder();
+        appendJson(builder);
+        return builder.toString();
+    }
+    
+    /**
+     * Writes the node and its children as CSV, one row per section in the
+     * order they appear in the tree. The columns are the full name of the
+     * section, its depth below this node, and the
+     * {@link SectionData#keys() values} of its data.
+     *
+     * @return The CSV string, with a header row.
+     */
+    public @NotNull String toCsv()
+    {
+        StringBuilder builder = new StringBuilder("name,depth");
+        for (String key : this.data.keys()) builder.append(',').append(key);
+        builder.append('\n');
+        appendCsv(builder, 0);
+        return builder.toString();
+    }
+    
+    /**
+     * Writes the node as indented lines, in the format of
+     * {@link Profiler#getAvgDataString(String)}.
+     *
+     * @param root  The name that is left off the first line.
+     * @param level The indentation of the first line.
+     */
+    void appendText(StringBuilder builder, String root, int level)
+    {
+        builder.append("|   ".repeat(level));
+        String name = this.data.name;
+        if (!name.equals(root)) builder.append(name.substring(name.lastIndexOf('.') + 1)).append(" - ");
+        builder.append(this.data.valueString()).append(System.lineSeparator());
+        for (SectionNode child : this.children) child.appendText(builder, root, level + 1);
+    }
+    
+    private void appendJson(StringBuilder builder)
+    {
+        builder.append("{\"name\":");
+        ChromeTrace.quote(builder, this.data.name);
+        String[] keys   = this.data.keys();
+        Number[] values = this.data.values();
+        for (int i = 0; i < keys.length; i++)
+        {
+            builder.append(",\"").append(keys[i]).append("\":");
+            appendNumber(builder, values[i], "null");
+        }
+        builder.append(",\"children\":[");
+        for (int i = 0; i < this.children.length; i++)
+        {
+            if (i > 0) builder.append(',');
+            this.children[i].appendJson(builder);
+        }
+        builder.append("]}");
+    }
+    
+    private void appendCsv(StringBuilder builder, int depth)
+    {
+        String name = this.data.name;
+        if (name.indexOf(',') >= 0 || name.indexOf('"') >= 0 || name.indexOf('\n') >= 0)
+        {
+            builder.append('"').append(name.replace("\"", "\"\"")).append('"');
+        }
+        else
+        {
+            builder.append(name);
+        }
+        builder.append(',').append(depth);
+        for (Number value : this.data.values())
+        {
+            builder.append(',');
+            appendNumber(builder, value, "");
+        }
+        builder.append('\n');
+        for (SectionNode child : this.children) child.appendCsv(builder, depth + 1);
+    }
+    
+    private static void appendNumber(StringBuilder builder, Number value, String invalid)
+    {
+        if (value instanceof Double d && !Double.isFinite(d))
+        {
+            builder.append(invalid);
+        }
+        else
+        {
+            builder.append(value);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package rutils.profiler;
+
+/**
+ * A rolling window over the most recent values, bounded by a number of values
+ * and optionally by their age. A {@link Histogram} of the values in the window
+ * is kept up to date as values are added and dropped.
+ */
+final class Window
+{
+    private final LongRing  values;
+    private final LongRing  times;
+    private final long      maxAge;
+    private final Histogram histogram = new Histogram();
+    
+    private long total;
+    
+    /**
+     * @param capacity The maximum number of values to keep.
+     * @param maxAge   The maximum age in nanoseconds of the values to keep, or zero or less to keep any age.
+     */
+    Window(int capacity, long maxAge)
+    {
+        this.values = new LongRing(capacity);
+        this.times  = maxAge > 0 ? new LongRing(capacity) : null;
+        this.maxAge = maxAge;
+    }
+    
+    int size()
+    {
+        return this.values.size();
+    }
+    
+    long get(int index)
+    {
+        return this.values.get(index);
+    }
+    
+    long getFromEnd(int age)
+    {
+        return this.values.getFromEnd(age);
+    }
+    
+    Histogram histogram()
+    {
+        return this.histogram;
+    }
+    
+    long mean()
+    {
+        return this.total / Math.max(this.values.size(), 1);
+    }
+    
+    /**
+     * @param value The value.
+     * @param time  The time of the value from {@link System#nanoTime()}.
+     */
+    void add(long value, long time)
+    {
+        if (this.values.isFull()) removeFirst();
+        this.values.add(value);
+        if (this.times != null) this.times.add(time);
+        this.histogram.record(value);
+        this.total += value;
+        trim(time);
+    }
+    
+    /**
+     * Drops the values that are too old.
+     *
+     * @param now The current time from {@link System#nanoTime()}.
+     */
+    void trim(long now)
+    {
+        if (this.times == null) return;
+        while (this.values.size() > 0 && now - this.times.get(0) > this.maxAge) removeFirst();
+    }
+    
+    private void removeFirst()
+    {
+        long value = this.values.removeFirst();
+        if (this.times != null) this.times.removeFirst();
+        this.histogram.remove(value);
+        this.total -= value;
+    }
+}
@@ -0,0 +1,170 @@
+package rutils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryLogTest
+{
+    private static final Logger LOGGER = new Logger();
+    
+    private static String line(long time, String thread, Level level, String name, String message)
+    {
+        StringBuilder builder = new StringBuilder();
+        Logger.logFileImpl(builder, Logger.prefix(StringUtil.getTimeString(time), thread, level, name), message);
+        return builder.toString();
+    }
+    
+    private static String decode(Path file) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryLog.decode(file, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    void roundTrip() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("roundTrip.rlog");
+        
+        Level custom = new Level("CUSTOM", 850) {};
+        long  time   = System.currentTimeMillis();
+        
+        StringBuilder expected = new StringBuilder();
+        try (BinaryLog log = new BinaryLog(file))
+        {
+            log.write(time, "main", Level.INFO, "Test", "Value %s and %d", true, 42);
+            expected.append(line(time, "main", Level.INFO, "Test", "Value true and 42"));
+            
+            log.write(time + 5, "Worker-1", Level.WARNING, "Test", "%c %d %d %d %.2f %.3f %s", 'x', (byte) -3, (short) -300, -5_000_000_000L, 1.5F, 2.25, null);
+            expected.append(line(time + 5, "Worker-1", Level.WARNING, "Test", "x -3 -300 -5000000000 1.50 2.250 null"));
+            
+            log.write(time + 3, "main", Level.FINE, "", "No format", 1, new int[] {1, 2});
+            expected.append(line(time + 3, "main", Level.FINE, "", "No format 1 [1, 2]"));
+            
+            log.write(time + 10, "main", custom, "Other", 7, "seven");
+            expected.append(line(time + 10, "main", custom, "Other", "7 seven"));
+            
+            log.writeMessage(time + 10, "main", Level.SEVERE, "Other", "First Line\nSecond Line");
+            expected.append(line(time + 10, "main", Level.SEVERE, "Other", "First Line\nSecond Line"));
+            
+            log.writeMessage(time + 11, "main", Level.INFO, "Test", "Value %s");
+            expected.append(line(time + 11, "main", Level.INFO, "Test", "Value %s"));
+        }
+        
+        assertEquals(expected.toString(), decode(file));
+    }
+    
+    @Test
+    void size() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("size.rlog");
+        
+        long          time = System.currentTimeMillis();
+        StringBuilder text = new StringBuilder();
+        try (BinaryLog log = new BinaryLog(file))
+        {
+            for (int i = 0; i < 10_000; i++)
+            {
+                log.write(time + i, "main", Level.INFO, "rutils.BinaryLogTest", "Frame %d took %f ms", i, i * 0.01);
+                text.append(line(time + i, "main", Level.INFO, "rutils.BinaryLogTest", String.format("Frame %d took %f ms", i, i * 0.01)));
+            }
+        }
+        
+        long binarySize = Files.size(file);
+        long textSize   = text.toString().getBytes(StandardCharsets.UTF_8).length;
+        BinaryLogTest.LOGGER.info("Binary: %s bytes, Text: %s bytes", binarySize, textSize);
+        
+        assertTrue(binarySize < textSize);
+        assertEquals(text.toString(), decode(file));
+    }
+    
+    @Test
+    void stringLimit() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("stringLimit.rlog");
+        
+        long          time     = System.currentTimeMillis();
+        StringBuilder expected = new StringBuilder();
+        try (BinaryLog log = new BinaryLog(file))
+        {
+            // Formats built at runtime run out of ids, and the rest are written in place.
+            for (int i = 0; i < BinaryLog.MAX_STRINGS + 100; i++)
+            {
+                log.write(time, "main", Level.INFO, "Test", "Loaded file" + i + " %s", i);
+                expected.append(line(time, "main", Level.INFO, "Test", "Loaded file" + i + " " + i));
+            }
+            log.write(time, "Thread " + BinaryLog.MAX_STRINGS, new Level("CUSTOM", 850) {}, "Other", "No format", 1);
+            expected.append(line(time, "Thread " + BinaryLog.MAX_STRINGS, new Level("CUSTOM", 850) {}, "Other", "No format 1"));
+            
+            log.write(time, "main", Level.INFO, "Test", "Loaded file0 %s", 0);
+            expected.append(line(time, "main", Level.INFO, "Test", "Loaded file0 0"));
+        }
+        
+        assertEquals(expected.toString(), decode(file));
+    }
+    
+    @Test
+    void suppliers() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("suppliers.rlog");
+        
+        Level level = Logger.getLevel();
+        Logger.setLevel(Level.INFO);
+        
+        AtomicInteger calls = new AtomicInteger();
+        try
+        {
+            Logger.setBinaryLogFile(file.toString());
+            new Logger().info("Value %s", (Supplier<Integer>) calls::incrementAndGet);
+        }
+        finally
+        {
+            Logger.setBinaryLogFile(null);
+            Logger.setLevel(level);
+        }
+        
+        assertEquals(1, calls.get());
+        assertTrue(decode(file).contains("[rutils.BinaryLogTest]: Value 1"));
+    }
+    
+    @Test
+    void async() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("async.rlog");
+        
+        Level level = Logger.getLevel();
+        Logger.setLevel(Level.INFO);
+        
+        int[] values = {1, 2};
+        try
+        {
+            Logger.setConsoleEnabled(false);
+            Logger.startAsync(1024);
+            Logger.setBinaryLogFile(file.toString());
+            for (int i = 0; i < 100; i++) new Logger().info("Async %s %s", i, values);
+            values[0] = 3; // Changed before the writer gets to it.
+            new Logger().severe("Message");
+        }
+        finally
+        {
+            Logger.setBinaryLogFile(null);
+            Logger.stopAsync();
+            Logger.setConsoleEnabled(true);
+            Logger.setLevel(level);
+        }
+        
+        String decoded = decode(file);
+        for (int i = 0; i < 100; i++) assertTrue(decoded.contains("[rutils.BinaryLogTest]: Async " + i + " [1, 2]\n"));
+        assertTrue(decoded.contains("[" + Thread.currentThread().getName() + "/SEVERE] [rutils.BinaryLogTest]: Message\n"));
+    }
+}
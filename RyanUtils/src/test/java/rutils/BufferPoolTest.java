@@ -0,0 +1,132 @@
+package rutils;
+
+import org.junit.jupiter.api.Test;
+import rutils.profiler.Metrics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest
+{
+    @Test
+    void allocate()
+    {
+        BufferPool pool = new BufferPool("BufferPoolTest.allocate", 1 << 16, 1L << 20);
+        
+        ByteBuffer buffer = pool.allocate(100);
+        assertTrue(buffer.isDirect());
+        assertEquals(0, buffer.position());
+        assertEquals(100, buffer.limit());
+        assertEquals(128, buffer.capacity());
+        assertEquals(128, pool.outstandingBytes());
+        
+        assertEquals(64, pool.allocate(0).capacity());
+        assertEquals(64, pool.allocate(64).capacity());
+        assertEquals(1 << 16, pool.allocate(1 << 16).capacity());
+        assertThrows(IllegalArgumentException.class, () -> pool.allocate(-1));
+        
+        ByteBuffer large = pool.allocate((1 << 16) + 1);
+        assertEquals((1 << 16) + 1, large.capacity());
+        pool.release(large);
+        
+        pool.release(ByteBuffer.allocate(128));
+        pool.release(ByteBuffer.allocateDirect(100));
+        assertEquals(128 + 64 + 64 + (1 << 16), pool.outstandingBytes());
+    }
+    
+    @Test
+    void reuse()
+    {
+        BufferPool pool = new BufferPool("BufferPoolTest.reuse", 1 << 16, 1L << 20);
+        
+        long hits   = Metrics.counter("BufferPoolTest.reuse.hits").count();
+        long misses = Metrics.counter("BufferPoolTest.reuse.misses").count();
+        
+        ByteBuffer buffer = pool.allocate(1000);
+        buffer.order(ByteOrder.LITTLE_ENDIAN).position(10);
+        pool.release(buffer);
+        assertEquals(0, pool.outstandingBytes());
+        
+        ByteBuffer again = pool.allocate(600);
+        assertSame(buffer, again);
+        assertEquals(0, again.position());
+        assertEquals(600, again.limit());
+        assertEquals(ByteOrder.BIG_ENDIAN, again.order());
+        
+        assertNotSame(buffer, pool.allocate(600));
+        
+        assertEquals(hits + 1, Metrics.counter("BufferPoolTest.reuse.hits").count());
+        assertEquals(misses + 2, Metrics.counter("BufferPoolTest.reuse.misses").count());
+    }
+    
+    @Test
+    void shared() throws InterruptedException
+    {
+        BufferPool pool = new BufferPool("BufferPoolTest.shared", 1 << 16, 1L << 20);
+        
+        // Releasing more buffers than one thread keeps moves the rest to the shared pool.
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 32; i++) buffers.add(pool.allocate(256));
+        for (ByteBuffer buffer : buffers) pool.release(buffer);
+        assertTrue(pool.pooledBytes() > 0);
+        
+        long             hits   = Metrics.counter("BufferPoolTest.shared.hits").count();
+        List<ByteBuffer> reused = new ArrayList<>();
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < 4; i++) reused.add(pool.allocate(256));
+        });
+        thread.start();
+        thread.join();
+        
+        assertEquals(hits + 4, Metrics.counter("BufferPoolTest.shared.hits").count());
+        for (ByteBuffer buffer : reused) assertTrue(buffers.contains(buffer));
+        
+        pool.trim();
+        assertEquals(0, pool.pooledBytes());
+    }
+    
+    @Test
+    void limit()
+    {
+        BufferPool pool = new BufferPool("BufferPoolTest.limit", 1 << 16, 1024);
+        
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 64; i++) buffers.add(pool.allocate(256));
+        for (ByteBuffer buffer : buffers) pool.release(buffer);
+        assertTrue(pool.pooledBytes() <= 1024);
+        assertEquals(0, pool.outstandingBytes());
+    }
+    
+    @Test
+    void threadCache()
+    {
+        BufferPool pool = new BufferPool("BufferPoolTest.threadCache", 1 << 20, 1L << 20);
+        
+        // Small classes are kept by the thread and do not count towards the limit.
+        pool.release(pool.allocate(256));
+        assertEquals(256, pool.cachedBytes());
+        assertEquals(0, pool.pooledBytes());
+        assertEquals(256D, Metrics.snapshot().get("BufferPoolTest.threadCache.cachedBytes"));
+        
+        // Classes above the chunk size go straight to the shared pool, which stays under its limit.
+        ByteBuffer first  = pool.allocate(IOUtil.CHUNK_SIZE + 1);
+        ByteBuffer second = pool.allocate(1 << 19);
+        ByteBuffer third  = pool.allocate(1 << 19);
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+        assertEquals(256, pool.cachedBytes());
+        assertEquals((IOUtil.CHUNK_SIZE << 1) + (1 << 19), pool.pooledBytes());
+        
+        assertSame(second, pool.allocate(1 << 19));
+        assertSame(first, pool.allocate(IOUtil.CHUNK_SIZE + 1));
+        assertEquals(0, pool.pooledBytes());
+        
+        pool.allocate(256);
+        assertEquals(0, pool.cachedBytes());
+    }
+}
@@ -1,8 +1,17 @@
 package rutils;
 
 import org.junit.jupiter.api.Test;
+import rutils.codec.Codec;
+import rutils.codec.Codecs;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,4 +33,267 @@ class IOUtilTest
         for (byte data : actual) assertEquals(data, Objects.requireNonNull(loaded).get());
         assertFalse(loaded.hasRemaining());
     }
+    
+    @Test
+    void mapFile() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("mapFile.bin");
+        Files.write(file, bytes(10_000));
+        
+        MappedByteBuffer buffer = IOUtil.mapFile(file.toString());
+        assertNotNull(buffer);
+        assertTrue(buffer.isReadOnly());
+        assertEquals(10_000, buffer.remaining());
+        for (int i = 0; i < 10_000; i++) assertEquals((byte) i, buffer.get(i));
+        assertTrue(IOUtil.unmap(buffer));
+        
+        assertNull(IOUtil.mapFile("path/to/non/existent/file.txt"));
+    }
+    
+    @Test
+    void mapLargeFile() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("mapLargeFile.bin");
+        Files.write(file, bytes(10_000));
+        
+        try (MappedFile mapped = new MappedFile(file, 4096))
+        {
+            assertEquals(10_000L, mapped.size());
+            assertEquals(3, mapped.segmentCount());
+            assertEquals(4096, mapped.segment(0).remaining());
+            assertEquals(10_000 - 8192, mapped.segment(2).remaining());
+            for (long i = 0; i < 10_000; i++) assertEquals((byte) i, mapped.get(i));
+            
+            ByteBuffer within = mapped.slice(100, 1000);
+            assertTrue(within.isDirect());
+            for (int i = 0; i < 1000; i++) assertEquals((byte) (100 + i), within.get(i));
+            
+            ByteBuffer across = mapped.slice(4000, 5000);
+            assertFalse(across.isDirect());
+            assertEquals(5000, across.remaining());
+            for (int i = 0; i < 5000; i++) assertEquals((byte) (4000 + i), across.get(i));
+            
+            assertThrows(IndexOutOfBoundsException.class, () -> mapped.get(10_000));
+            assertThrows(IndexOutOfBoundsException.class, () -> mapped.slice(9_000, 2_000));
+            
+            mapped.close();
+            assertTrue(mapped.isClosed());
+            assertThrows(IllegalStateException.class, () -> mapped.get(0));
+        }
+        
+        MappedFile mapped = IOUtil.mapLargeFile(file.toString());
+        assertNotNull(mapped);
+        assertEquals(1, mapped.segmentCount());
+        mapped.close();
+    }
+    
+    @Test
+    void readOrMapFile() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("readOrMapFile.bin");
+        Files.write(file, bytes(10_000));
+        
+        long threshold = IOUtil.mapThreshold();
+        try
+        {
+            IOUtil.mapThreshold(20_000);
+            ByteBuffer read = IOUtil.readOrMapFile(file.toString());
+            assertNotNull(read);
+            assertFalse(read.isReadOnly());
+            assertEquals(10_001, read.remaining());
+            IOUtil.freeFile(read);
+            
+            IOUtil.mapThreshold(5_000);
+            ByteBuffer mapped = IOUtil.readOrMapFile(file.toString());
+            assertNotNull(mapped);
+            assertTrue(mapped instanceof MappedByteBuffer);
+            assertTrue(mapped.isReadOnly());
+            assertEquals(10_000, mapped.remaining());
+            assertEquals((byte) 9_999, mapped.get(9_999));
+            IOUtil.freeFile(mapped);
+        }
+        finally
+        {
+            IOUtil.mapThreshold(threshold);
+        }
+    }
+    
+    @Test
+    void writeToFile() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("writeToFile.bin");
+        Files.write(file, bytes(20_000));
+        
+        int[] bytesWritten = new int[1];
+        assertTrue(IOUtil.writeToFile(file.toString(), ByteBuffer.wrap(bytes(10_000)), bytesWritten));
+        assertEquals(10_000, bytesWritten[0]);
+        assertArrayEquals(bytes(10_000), Files.readAllBytes(file));
+    }
+    
+    @Test
+    void stream() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("stream.bin");
+        Files.deleteIfExists(file);
+        
+        byte[]           data    = bytes(1_000_000);
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int offset = 0, i = 0; offset < data.length; i++)
+        {
+            int length = Math.min(data.length - offset, 1 + i * 997 % 200_000);
+            
+            ByteBuffer buffer = i % 2 == 0 ? ByteBuffer.allocate(length + 10) : ByteBuffer.allocateDirect(length + 10);
+            buffer.position(5).put(data, offset, length).flip().position(5);
+            buffers.add(buffer);
+            offset += length;
+        }
+        
+        assertEquals(data.length, IOUtil.write(file.toString(), buffers.iterator(), true));
+        for (ByteBuffer buffer : buffers) assertFalse(buffer.hasRemaining());
+        assertArrayEquals(data, Files.readAllBytes(file));
+        
+        for (int chunkSize : new int[] {1000, 4096, IOUtil.CHUNK_SIZE, 300_000})
+        {
+            byte[]        read   = new byte[data.length];
+            List<Integer> chunks = new ArrayList<>();
+            long total = IOUtil.read(file.toString(), chunkSize, chunk -> {
+                int offset = chunks.stream().mapToInt(Integer::intValue).sum();
+                chunks.add(chunk.remaining());
+                chunk.get(read, offset, chunk.remaining());
+            });
+            assertEquals(data.length, total);
+            assertArrayEquals(data, read);
+            
+            for (int i = 0; i < chunks.size() - 1; i++) assertEquals(chunkSize, chunks.get(i).intValue());
+            assertEquals((data.length - 1) % chunkSize + 1, chunks.get(chunks.size() - 1).intValue());
+        }
+        
+        assertEquals(0L, IOUtil.write(file.toString(), List.<ByteBuffer>of().iterator()));
+        assertEquals(0L, IOUtil.read(file.toString(), chunk -> fail("Empty file has no chunks")));
+        
+        assertEquals(-1L, IOUtil.read("path/to/non/existent/file.txt", chunk -> {}));
+        assertEquals(-1L, IOUtil.write("path/to/non/existent/file.txt", Arrays.asList(ByteBuffer.allocate(1)).iterator()));
+        
+        assertThrows(IllegalArgumentException.class, () -> IOUtil.read(file.toString(), 0, chunk -> {}));
+        assertThrows(IllegalArgumentException.class, () -> IOUtil.read(file.toString(), -1, chunk -> {}));
+    }
+    
+    @Test
+    void compress()
+    {
+        assertSame(Codecs.DEFLATE, Codecs.get("deflate"));
+        assertTrue(Codecs.names().contains("deflate-fast"));
+        assertNull(Codecs.get("none"));
+        
+        for (Codec codec : new Codec[] {Codecs.DEFLATE, Codecs.DEFLATE_FAST})
+        {
+            ByteBuffer data = ByteBuffer.allocateDirect(100_000).put(bytes(100_000)).flip();
+            
+            ByteBuffer compressed = IOUtil.compress(data, codec);
+            assertNotNull(compressed);
+            assertFalse(data.hasRemaining());
+            assertTrue(compressed.remaining() < 100_000);
+            
+            ByteBuffer decompressed = IOUtil.decompress(compressed, codec, 100_000);
+            assertNotNull(decompressed);
+            assertEquals(data.flip(), decompressed);
+            
+            assertNull(IOUtil.decompress(ByteBuffer.allocateDirect(16), codec, 100));
+            assertNull(IOUtil.decompress(IOUtil.compress(data.rewind(), codec), codec, 100));
+        }
+    }
+    
+    @Test
+    void compressBlocks()
+    {
+        for (int size : new int[] {0, 1, 1000, 4096, 100_000})
+        {
+            ByteBuffer data = ByteBuffer.allocateDirect(size).put(bytes(size)).flip();
+            
+            ByteBuffer compressed = IOUtil.compressBlocks(data, Codecs.DEFLATE, 4096);
+            assertNotNull(compressed);
+            assertFalse(data.hasRemaining());
+            
+            ByteBuffer decompressed = IOUtil.decompressBlocks(compressed, Codecs.DEFLATE);
+            assertNotNull(decompressed);
+            assertFalse(compressed.hasRemaining());
+            assertEquals(data.flip(), decompressed);
+        }
+        
+        ByteBuffer compressed = IOUtil.compressBlocks(ByteBuffer.wrap(bytes(100_000)), Codecs.DEFLATE, 4096);
+        assertNotNull(compressed);
+        assertNull(IOUtil.decompressBlocks(compressed.duplicate().limit(compressed.limit() - 10), Codecs.DEFLATE));
+        
+        compressed.put(100, (byte) (compressed.get(100) + 1));
+        assertNull(IOUtil.decompressBlocks(compressed, Codecs.DEFLATE));
+        assertNull(IOUtil.decompressBlocks(ByteBuffer.allocate(12), Codecs.DEFLATE));
+    }
+    
+    @Test
+    void compressedFile() throws IOException
+    {
+        Path   file = Files.createDirectories(Path.of("out")).resolve("compressedFile.bin");
+        byte[] data = bytes(3 * IOUtil.COMPRESSION_BLOCK_SIZE + 1000);
+        
+        assertTrue(IOUtil.writeCompressed(file.toString(), ByteBuffer.wrap(data), Codecs.DEFLATE_FAST));
+        assertTrue(Files.size(file) < data.length / 10);
+        
+        ByteBuffer loaded = IOUtil.readCompressed(file.toString(), Codecs.DEFLATE_FAST);
+        assertNotNull(loaded);
+        assertEquals(ByteBuffer.wrap(data), loaded);
+        
+        assertNull(IOUtil.readCompressed("path/to/non/existent/file.txt", Codecs.DEFLATE));
+    }
+    
+    @Test
+    void compressedStream() throws IOException
+    {
+        Path   file = Files.createDirectories(Path.of("out")).resolve("compressedStream.bin");
+        byte[] data = bytes(3 * IOUtil.COMPRESSION_BLOCK_SIZE + 1000);
+        
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < data.length; offset += 300_000) buffers.add(ByteBuffer.wrap(data, offset, Math.min(300_000, data.length - offset)));
+        
+        assertTrue(IOUtil.writeCompressed(file.toString(), buffers.iterator(), Codecs.DEFLATE_FAST));
+        for (ByteBuffer buffer : buffers) assertFalse(buffer.hasRemaining());
+        assertTrue(Files.size(file) < data.length / 10);
+        
+        // Both ways of saving write the same format.
+        assertEquals(ByteBuffer.wrap(data), IOUtil.readCompressed(file.toString(), Codecs.DEFLATE_FAST));
+        
+        byte[]        read   = new byte[data.length];
+        List<Integer> blocks = new ArrayList<>();
+        long total = IOUtil.readCompressed(file.toString(), Codecs.DEFLATE_FAST, block -> {
+            int offset = blocks.stream().mapToInt(Integer::intValue).sum();
+            blocks.add(block.remaining());
+            block.get(read, offset, block.remaining());
+        });
+        assertEquals(data.length, total);
+        assertArrayEquals(data, read);
+        assertEquals(List.of(IOUtil.COMPRESSION_BLOCK_SIZE, IOUtil.COMPRESSION_BLOCK_SIZE, IOUtil.COMPRESSION_BLOCK_SIZE, 1000), blocks);
+        
+        assertTrue(IOUtil.writeCompressed(file.toString(), List.<ByteBuffer>of().iterator(), Codecs.DEFLATE));
+        assertEquals(0, Objects.requireNonNull(IOUtil.readCompressed(file.toString(), Codecs.DEFLATE)).remaining());
+        assertEquals(0L, IOUtil.readCompressed(file.toString(), Codecs.DEFLATE, block -> assertEquals(0, block.remaining())));
+        
+        // A file cut short or with a damaged block is not passed on as if it were whole.
+        assertTrue(IOUtil.writeCompressed(file.toString(), ByteBuffer.wrap(data), Codecs.DEFLATE));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertEquals(-1L, IOUtil.readCompressed(file.toString(), Codecs.DEFLATE, block -> {}));
+        
+        bytes[100]++;
+        Files.write(file, bytes);
+        assertEquals(-1L, IOUtil.readCompressed(file.toString(), Codecs.DEFLATE, block -> {}));
+        
+        assertEquals(-1L, IOUtil.readCompressed("path/to/non/existent/file.txt", Codecs.DEFLATE, block -> {}));
+        assertFalse(IOUtil.writeCompressed("path/to/non/existent/file.txt", buffers.iterator(), Codecs.DEFLATE));
+    }
+    
+    private static byte[] bytes(int size)
+    {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) bytes[i] = (byte) i;
+        return bytes;
+    }
 }
@@ -1,10 +1,20 @@
 package rutils;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.logging.Level;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class LoggerTest
 {
@@ -59,6 +69,323 @@ class LoggerTest
         logger.severe("LOG TEST");
     }
     
+    @Test
+    void async() throws IOException, InterruptedException
+    {
+        Files.createDirectories(Path.of("out"));
+        Logger.addLogFile("out/testAsyncLogging.log");
+        
+        Logger.setLevel(Level.ALL);
+        Logger.startAsync(16);
+        
+        Logger logger = new Logger();
+        
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) logger.finest("ASYNC BLOCK", j);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        
+        Logger.flush();
+        assertEquals(400, count("out/testAsyncLogging.log", "ASYNC BLOCK"));
+        
+        Logger.setOverflowPolicy(Logger.OverflowPolicy.DROP);
+        long dropped = Logger.getDroppedCount();
+        for (int j = 0; j < 400; j++) logger.finest("ASYNC DROP", j);
+        
+        Logger.stopAsync();
+        assertEquals(400, count("out/testAsyncLogging.log", "ASYNC DROP") + Logger.getDroppedCount() - dropped);
+        
+        Logger.setOverflowPolicy(Logger.OverflowPolicy.BLOCK);
+        Logger.setLevel(Level.INFO);
+    }
+    
+    @Test
+    void stopAsync() throws IOException, InterruptedException
+    {
+        Files.createDirectories(Path.of("out"));
+        Files.deleteIfExists(Path.of("out/testStopAsync.log"));
+        Logger.addLogFile("out/testStopAsync.log");
+        
+        Level level = Logger.getLevel();
+        Logger.setLevel(Level.INFO);
+        Logger.setConsoleEnabled(false);
+        try
+        {
+            Logger logger = new Logger();
+            for (int round = 0; round < 20; round++)
+            {
+                Logger.startAsync(16);
+                
+                Thread[] threads = new Thread[4];
+                for (int i = 0; i < threads.length; i++)
+                {
+                    threads[i] = new Thread(() -> {
+                        for (int j = 0; j < 50; j++) logger.info("STOP ASYNC", j);
+                    });
+                    threads[i].start();
+                }
+                // Stopping while the threads are logging must not lose any of their messages.
+                Logger.stopAsync();
+                for (Thread thread : threads) thread.join();
+            }
+            Logger.flush();
+        }
+        finally
+        {
+            Logger.setConsoleEnabled(true);
+            Logger.setLevel(level);
+        }
+        assertEquals(20 * 4 * 50, count("out/testStopAsync.log", "STOP ASYNC"));
+    }
+    
+    @Test
+    void shutdown() throws Exception
+    {
+        Files.createDirectories(Path.of("out"));
+        Files.deleteIfExists(Path.of("out/testShutdown.log"));
+        Logger.addRollingLogFile("out/testShutdown.log", 0L, 0.0, 0, false);
+        
+        Logger logger = new Logger();
+        logger.info("BEFORE SHUTDOWN");
+        
+        Method shutdown = Logger.class.getDeclaredMethod("shutdown");
+        shutdown.setAccessible(true);
+        shutdown.invoke(null);
+        
+        // Used to write to the closed file, and the warning about it recursed until the stack overflowed.
+        logger.info("AFTER SHUTDOWN");
+        logger.warning("AFTER SHUTDOWN");
+        
+        assertEquals(1, count("out/testShutdown.log", "BEFORE SHUTDOWN"));
+        assertEquals(0, count("out/testShutdown.log", "AFTER SHUTDOWN"));
+    }
+    
+    private static long count(String file, String text) throws IOException
+    {
+        try (var lines = Files.lines(Path.of(file)))
+        {
+            return lines.filter(line -> line.contains(text)).count();
+        }
+    }
+    
+    @Test
+    void isLoggable()
+    {
+        Logger logger = new Logger();
+        
+        Logger.setLevel(Level.INFO);
+        assertTrue(logger.isLoggable(Level.INFO));
+        assertFalse(logger.isLoggable(Level.FINE));
+        
+        Logger.setLevel(Level.FINE);
+        assertTrue(logger.isLoggable(Level.FINE));
+        
+        Logger.addBlacklistFilter("LoggerTest");
+        assertFalse(logger.isLoggable(Level.SEVERE));
+        assertFalse(logger.isLoggable(Level.OFF));
+        Logger.removeBlacklistFilter("LoggerTest");
+        assertTrue(logger.isLoggable(Level.SEVERE));
+        
+        Logger.setLevel(Level.INFO);
+    }
+    
+    @Test
+    void disabledAllocationFree()
+    {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        
+        Level level = Logger.getLevel();
+        Logger.setLevel(Level.INFO);
+        try
+        {
+            Logger logger = new Logger();
+            Object object = new Object();
+            
+            int calls = 100_000;
+            
+            for (int pass = 0; pass < 2; pass++)
+            {
+                long bytes;
+                
+                bytes = bean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < calls; i++) logger.finest("Objects %s %s", object, object);
+                long objectBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+                
+                bytes = bean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < calls; i++) logger.finest("Primitive", i);
+                long primitiveBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+                
+                bytes = bean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < calls; i++) logger.finest(() -> "Supplier");
+                long supplierBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+                
+                // One object per call would be at least 16 bytes a call, this only leaves room for the odd one-off from the JIT.
+                if (pass > 0)
+                {
+                    assertTrue(objectBytes < calls / 10);
+                    assertTrue(primitiveBytes < calls / 10);
+                    assertTrue(supplierBytes < calls / 10);
+                }
+            }
+        }
+        finally
+        {
+            Logger.setLevel(level);
+        }
+    }
+    
+    /**
+     * Measures the cost of log calls below the global level.
+     */
+    @Test
+    @Tag("benchmark")
+    void disabledCost()
+    {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        
+        Level level = Logger.getLevel();
+        Logger.setLevel(Level.INFO);
+        try
+        {
+            Logger logger = new Logger();
+            Object object = new Object();
+            
+            int calls = 10_000_000;
+            
+            for (int pass = 0; pass < 2; pass++)
+            {
+                long time, bytes;
+                
+                time  = System.nanoTime();
+                bytes = bean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < calls; i++) logger.finest("Varargs %s %s %s %s", object, i, i, i);
+                long varargsBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+                long varargsTime  = System.nanoTime() - time;
+                
+                time  = System.nanoTime();
+                bytes = bean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < calls; i++) logger.finest("Objects %s %s", object, object);
+                long objectBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+                long objectTime  = System.nanoTime() - time;
+                
+                time  = System.nanoTime();
+                bytes = bean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < calls; i++) logger.finest("Primitive", i);
+                long primitiveBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+                long primitiveTime  = System.nanoTime() - time;
+                
+                time  = System.nanoTime();
+                bytes = bean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < calls; i++) logger.finest(() -> "Supplier");
+                long supplierBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+                long supplierTime  = System.nanoTime() - time;
+                
+                logger.info("Disabled log call cost, pass %s:", pass);
+                logger.info("  varargs:   %5.2f ns/call %6.2f bytes/call", (double) varargsTime / calls, (double) varargsBytes / calls);
+                logger.info("  objects:   %5.2f ns/call %6.2f bytes/call", (double) objectTime / calls, (double) objectBytes / calls);
+                logger.info("  primitive: %5.2f ns/call %6.2f bytes/call", (double) primitiveTime / calls, (double) primitiveBytes / calls);
+                logger.info("  supplier:  %5.2f ns/call %6.2f bytes/call", (double) supplierTime / calls, (double) supplierBytes / calls);
+            }
+        }
+        finally
+        {
+            Logger.setLevel(level);
+        }
+    }
+    
+    @Test
+    void lineEncoder() throws IOException
+    {
+        Logger.LineEncoder encoder = new Logger.LineEncoder();
+        
+        long time = System.currentTimeMillis();
+        
+        String[] messages = {"Plain", "", "First\nSecond", "First\r\nSecond\n", "\n", "Return\n\r", "Trailing\n\n", "\nLeading", "Unicode \u00e9 \u2713 \ud83d\ude00 \ud83d"};
+        for (String message : messages)
+        {
+            StringBuilder expected = new StringBuilder();
+            Logger.logFileImpl(expected, Logger.prefix(StringUtil.getTimeString(time), "main", Level.INFO, "Name"), message);
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            encoder.clear();
+            encoder.prefix(time, "main", Level.INFO, "Name");
+            encoder.file(message);
+            encoder.writeFile(out);
+            
+            assertArrayEquals(expected.toString().getBytes(Charset.defaultCharset()), out.toByteArray());
+        }
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.clear();
+        encoder.prefix(time, "main", Level.SEVERE, "");
+        encoder.console(Level.SEVERE, "Error");
+        encoder.writeConsole(out);
+        
+        String prefix = Logger.prefix(StringUtil.getTimeString(time), "main", Level.SEVERE, "");
+        assertEquals(Logger.RED + prefix + "Error" + Logger.RESET + System.lineSeparator(), out.toString(Charset.defaultCharset()));
+    }
+    
+    /**
+     * Measures how many lines per second can be turned into bytes, using
+     * strings like before and using the line encoder.
+     */
+    @Test
+    @Tag("benchmark")
+    void encoderThroughput() throws IOException
+    {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        
+        Logger.LineEncoder encoder = new Logger.LineEncoder();
+        OutputStream       out     = OutputStream.nullOutputStream();
+        
+        String thread  = Thread.currentThread().getName();
+        String name    = "rutils.LoggerTest";
+        String message = "A typical message with a number in it: 12345";
+        
+        int lines = 1_000_000;
+        
+        for (int pass = 0; pass < 2; pass++)
+        {
+            long time, bytes;
+            
+            time  = System.nanoTime();
+            bytes = bean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < lines; i++)
+            {
+                StringBuilder builder = new StringBuilder();
+                Logger.logFileImpl(builder, Logger.prefix(StringUtil.getCurrentTimeString(), thread, Level.INFO, name), message);
+                out.write(builder.toString().getBytes());
+            }
+            long stringBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+            long stringTime  = System.nanoTime() - time;
+            
+            time  = System.nanoTime();
+            bytes = bean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < lines; i++)
+            {
+                encoder.clear();
+                encoder.prefix(System.currentTimeMillis(), thread, Level.INFO, name);
+                encoder.file(message);
+                encoder.writeFile(out);
+            }
+            long encoderBytes = bean.getCurrentThreadAllocatedBytes() - bytes;
+            long encoderTime  = System.nanoTime() - time;
+            
+            Logger logger = new Logger();
+            logger.info("Line encoding throughput, pass %s:", pass);
+            logger.info("  strings: %,12.0f lines/s %7.2f bytes/line", lines * 1e9 / stringTime, (double) stringBytes / lines);
+            logger.info("  encoder: %,12.0f lines/s %7.2f bytes/line", lines * 1e9 / encoderTime, (double) encoderBytes / lines);
+            
+            // Other charsets are encoded with String.getBytes, which makes an array per line.
+            if (pass > 0 && Charset.defaultCharset().equals(StandardCharsets.UTF_8)) assertTrue(encoderBytes < lines);
+        }
+    }
+    
     @Test
     void log()
     {
@@ -1,13 +1,16 @@
 package rutils;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import java.nio.*;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class MemUtilTest
 {
+    private static final Logger LOGGER = new Logger();
+    
     @Test
     void memCopy()
     {
@@ -143,4 +146,109 @@ class MemUtilTest
         MemUtil.memCopy(dBuffer, dArray);
         for (int i = 0; i < size; i++) assertEquals(dBuffer.get(i), dArray[i]);
     }
+    
+    @Test
+    void memWriteRead()
+    {
+        final Random rand = new Random(1337);
+        
+        int size = 10;
+        
+        short[]  sArray = new short[size];
+        int[]    iArray = new int[size];
+        long[]   lArray = new long[size];
+        float[]  fArray = new float[size];
+        double[] dArray = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            sArray[i] = (short) rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE);
+            iArray[i] = rand.nextInt();
+            lArray[i] = rand.nextLong();
+            fArray[i] = rand.nextFloat();
+            dArray[i] = rand.nextDouble();
+        }
+        
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN})
+        {
+            for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(3 + size * Double.BYTES), ByteBuffer.allocateDirect(3 + size * Double.BYTES)})
+            {
+                buffer.order(order).position(1);
+                
+                MemUtil.memWrite(sArray, 2, buffer, 3, 5);
+                for (int i = 0; i < 5; i++) assertEquals(sArray[2 + i], buffer.getShort(3 + i * Short.BYTES));
+                short[] sRead = new short[size];
+                MemUtil.memRead(buffer, 3, sRead, 1, 5);
+                for (int i = 0; i < 5; i++) assertEquals(sArray[2 + i], sRead[1 + i]);
+                
+                MemUtil.memWrite(iArray, 0, buffer, 3, size);
+                for (int i = 0; i < size; i++) assertEquals(iArray[i], buffer.getInt(3 + i * Integer.BYTES));
+                int[] iRead = new int[size];
+                MemUtil.memRead(buffer, 3, iRead, 0, size);
+                assertArrayEquals(iArray, iRead);
+                
+                MemUtil.memWrite(lArray, 0, buffer, 3, size);
+                for (int i = 0; i < size; i++) assertEquals(lArray[i], buffer.getLong(3 + i * Long.BYTES));
+                long[] lRead = new long[size];
+                MemUtil.memRead(buffer, 3, lRead, 0, size);
+                assertArrayEquals(lArray, lRead);
+                
+                MemUtil.memWrite(fArray, 0, buffer, 3, size);
+                for (int i = 0; i < size; i++) assertEquals(fArray[i], buffer.getFloat(3 + i * Float.BYTES));
+                float[] fRead = new float[size];
+                MemUtil.memRead(buffer, 3, fRead, 0, size);
+                assertArrayEquals(fArray, fRead);
+                
+                MemUtil.memWrite(dArray, 0, buffer, 3, size);
+                for (int i = 0; i < size; i++) assertEquals(dArray[i], buffer.getDouble(3 + i * Double.BYTES));
+                double[] dRead = new double[size];
+                MemUtil.memRead(buffer, 3, dRead, 0, size);
+                assertArrayEquals(dArray, dRead);
+                
+                assertEquals(1, buffer.position());
+                
+                assertThrows(IndexOutOfBoundsException.class, () -> MemUtil.memWrite(dArray, 0, buffer, 4, size));
+                assertThrows(IndexOutOfBoundsException.class, () -> MemUtil.memWrite(dArray, 1, buffer, 0, size));
+                assertThrows(IndexOutOfBoundsException.class, () -> MemUtil.memRead(buffer, -1, dRead, 0, 1));
+                assertThrows(IndexOutOfBoundsException.class, () -> MemUtil.memRead(buffer, 0, dRead, 0, -1));
+            }
+        }
+    }
+    
+    @Test
+    @Tag("benchmark")
+    void memCopyThroughput()
+    {
+        for (int size : new int[] {1 << 10, 1 << 16, 1 << 22})
+        {
+            float[]     array  = new float[size];
+            FloatBuffer buffer = ByteBuffer.allocateDirect(size * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            ByteBuffer  bytes  = ByteBuffer.allocateDirect(size * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < size; i++) array[i] = i;
+            
+            int repeat = Math.max((1 << 24) / size, 1);
+            for (int pass = 0; pass < 3; pass++)
+            {
+                long start = System.nanoTime();
+                for (int r = 0; r < repeat; r++) for (int i = 0; i < size; i++) buffer.put(i, array[i]);
+                long element = System.nanoTime() - start;
+                
+                start = System.nanoTime();
+                for (int r = 0; r < repeat; r++) MemUtil.memCopy(array, 0, buffer, 0, size);
+                long bulk = System.nanoTime() - start;
+                
+                start = System.nanoTime();
+                for (int r = 0; r < repeat; r++) MemUtil.memWrite(array, 0, bytes, 0, size);
+                long write = System.nanoTime() - start;
+                
+                double megabytes = (double) repeat * size * Float.BYTES / (1 << 20);
+                LOGGER.info("Copying %s floats %s times, pass %s: element %.0f MB/s, bulk %.0f MB/s, little endian write %.0f MB/s",
+                            size, repeat, pass, megabytes / (element / 1e9), megabytes / (bulk / 1e9), megabytes / (write / 1e9));
+            }
+            
+            float[] read = new float[size];
+            MemUtil.memRead(bytes, 0, read, 0, size);
+            assertArrayEquals(array, read);
+            assertEquals(array[size - 1], buffer.get(size - 1));
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package rutils;
+
+import org.junit.jupiter.api.Test;
+import rutils.profiler.Metric;
+import rutils.profiler.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest
+{
+    private static final Logger LOGGER = new Logger();
+    
+    @Test
+    void counter() throws InterruptedException
+    {
+        Metric.Counter counter = Metrics.counter("MetricsTest.counter");
+        assertSame(counter, Metrics.counter("MetricsTest.counter"));
+        assertSame(counter, Metrics.get("MetricsTest.counter"));
+        
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100_000; j++) counter.increment();
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        counter.add(10);
+        
+        assertEquals(400_010L, counter.count());
+        assertEquals(400_010D, Metrics.snapshot().get("MetricsTest.counter"));
+        assertTrue(Metrics.snapshot().isCount("MetricsTest.counter"));
+        
+        assertThrows(IllegalArgumentException.class, () -> Metrics.timer("MetricsTest.counter"));
+    }
+    
+    @Test
+    void gauge()
+    {
+        int[] value = {1};
+        
+        Metric.Gauge gauge = Metrics.gauge("MetricsTest.gauge", () -> value[0]);
+        assertEquals(1D, gauge.value());
+        value[0] = 5;
+        assertEquals(5D, Metrics.snapshot().get("MetricsTest.gauge"));
+        assertFalse(Metrics.snapshot().isCount("MetricsTest.gauge"));
+        
+        Metrics.gauge("MetricsTest.gauge", () -> 7);
+        assertEquals(7D, Metrics.snapshot().get("MetricsTest.gauge"));
+        
+        Metrics.remove("MetricsTest.gauge");
+        assertNull(Metrics.get("MetricsTest.gauge"));
+        assertFalse(Metrics.snapshot().values().containsKey("MetricsTest.gauge"));
+    }
+    
+    @Test
+    void timer()
+    {
+        Metric.Timer timer = Metrics.timer("MetricsTest.timer");
+        timer.record(2_000_000L);
+        timer.record(4_000_000L);
+        assertEquals("value", timer.time(() -> "value"));
+        
+        assertEquals(3L, timer.count());
+        assertTrue(timer.total() >= 6_000_000L);
+        assertEquals(4_000_000L, timer.max());
+        
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        assertEquals(3D, snapshot.get("MetricsTest.timer.count"));
+        assertEquals(4_000D, snapshot.get("MetricsTest.timer.max"));
+        assertEquals(timer.total() / 3_000D, snapshot.get("MetricsTest.timer.mean"), 1e-9);
+    }
+    
+    @Test
+    void rate()
+    {
+        Metric.Counter counter = Metrics.counter("MetricsTest.rate");
+        
+        Metrics.Snapshot first = Metrics.snapshot();
+        counter.add(1000);
+        LockSupport.parkNanos(10_000_000L);
+        Metrics.Snapshot second = Metrics.snapshot();
+        
+        double rate = second.rate(first, "MetricsTest.rate");
+        assertEquals(1000D * 1_000_000_000D / (second.time - first.time), rate, 1e-9);
+        assertTrue(rate > 0);
+    }
+    
+    @Test
+    void instrumentation() throws IOException, InterruptedException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("metrics.bin");
+        Files.write(file, new byte[1234]);
+        
+        long bytesRead = Metrics.counter("IOUtil.bytesRead").count();
+        long reads     = Metrics.timer("IOUtil.read").count();
+        
+        ByteBuffer buffer = IOUtil.readFromFile(file.toString());
+        assertNotNull(buffer);
+        assertEquals(bytesRead + 1234, Metrics.counter("IOUtil.bytesRead").count());
+        assertEquals(reads + 1, Metrics.timer("IOUtil.read").count());
+        
+        long queued    = Metrics.counter("TaskDelegator.queued").count();
+        long processed = Metrics.counter("TaskDelegator.processed").count();
+        long runs      = Metrics.timer("TaskDelegator.runTasks").count();
+        
+        TaskDelegator delegator = new TaskDelegator();
+        delegator.setThread();
+        Thread other = new Thread(() -> {
+            delegator.runTask(() -> {});
+            delegator.runTask(() -> {});
+        });
+        other.start();
+        other.join();
+        delegator.runTasks();
+        
+        assertEquals(queued + 2, Metrics.counter("TaskDelegator.queued").count());
+        assertEquals(processed + 2, Metrics.counter("TaskDelegator.processed").count());
+        assertEquals(runs + 1, Metrics.timer("TaskDelegator.runTasks").count());
+        
+        queued = Metrics.counter("TaskDelegator.queued").count();
+        
+        AtomicInteger result = new AtomicInteger();
+        Thread        waiter = new Thread(() -> result.set(delegator.waitReturnTask(() -> 42)));
+        waiter.start();
+        while (waiter.isAlive()) delegator.runTasks();
+        
+        assertEquals(42, result.get());
+        assertEquals(queued + 1, Metrics.counter("TaskDelegator.queued").count());
+    }
+    
+    @Test
+    void report() throws IOException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("metrics.csv");
+        Files.deleteIfExists(file);
+        
+        Metric.Counter counter = Metrics.counter("MetricsTest.report");
+        
+        Metrics.report(0.01, file.toString());
+        for (int i = 0; i < 5; i++)
+        {
+            counter.add(100);
+            LockSupport.parkNanos(10_000_000L);
+        }
+        Metrics.report(0, null);
+        
+        List<String> lines = Files.readAllLines(file);
+        LOGGER.info("Reported %s lines", lines.size());
+        
+        assertEquals("timestamp,name,value,rate", lines.get(0));
+        List<String> rows = lines.stream().filter(line -> line.contains(",MetricsTest.report,")).toList();
+        assertFalse(rows.isEmpty());
+        
+        String[] last = rows.get(rows.size() - 1).split(",");
+        assertEquals(4, last.length);
+        assertEquals("500", last[2]);
+        Double.parseDouble(last[3]);
+    }
+}
@@ -1,9 +1,24 @@
 package rutils;
 
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import rutils.profiler.Histogram;
 import rutils.profiler.Profiler;
 import rutils.profiler.Section;
+import rutils.profiler.SectionData;
+import rutils.profiler.SectionNode;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -130,4 +145,475 @@ public class ProfilerTest
         LOGGER.info(profiler.getMaxDataString(null));
         LOGGER.info(profiler.getMinDataString(null));
     }
+    
+    @Test
+    void concurrent() throws InterruptedException
+    {
+        Profiler concurrent = Profiler.get("Concurrent Profiler");
+        concurrent.enable();
+        
+        concurrent.startFrame();
+        try (Section section = concurrent.startSection("Frame"))
+        {
+            // Not concurrent, so other threads are ignored.
+            Thread ignored = new Thread(() -> assertEquals("null", concurrent.startSection("Ignored").name()), "Ignored");
+            ignored.start();
+            ignored.join();
+            
+            concurrent.concurrent(true);
+            
+            Thread[] workers = new Thread[4];
+            for (int i = 0; i < workers.length; i++)
+            {
+                workers[i] = new Thread(() -> {
+                    for (int j = 0; j < 100; j++)
+                    {
+                        try (Section work = concurrent.startSection("Work"))
+                        {
+                            assertEquals("Work", work.name());
+                            try (Section inner = concurrent.startSection("Inner"))
+                            {
+                                assertEquals("Work.Inner", inner.name());
+                                assertEquals("Work.Inner", concurrent.currentSection());
+                            }
+                        }
+                    }
+                }, "Worker-" + i);
+                workers[i].start();
+            }
+            for (Thread worker : workers) worker.join();
+            
+            assertEquals("Frame", concurrent.currentSection());
+        }
+        concurrent.endFrame();
+        
+        List<String> threads = concurrent.threads();
+        assertEquals(5, threads.size());
+        assertFalse(threads.contains("Ignored"));
+        
+        for (int i = 0; i < 4; i++)
+        {
+            List<SectionData> work = concurrent.getAverageData("Worker-" + i, null);
+            assertEquals(2, work.size());
+            assertEquals("Work", work.get(1).name);
+            
+            List<SectionData> inner = concurrent.getAverageData("Worker-" + i, "Work");
+            assertEquals(2, inner.size());
+            assertEquals("Work.Inner", inner.get(1).name);
+        }
+        
+        List<SectionData> frame = concurrent.getAverageData(null);
+        assertEquals(2, frame.size());
+        assertEquals("Frame", frame.get(1).name);
+        
+        LOGGER.info(concurrent.getThreadDataString());
+    }
+    
+    @Test
+    void sectionHandles()
+    {
+        Profiler handles = Profiler.get("Handle Profiler");
+        handles.enable();
+        
+        Section render  = handles.section("Render");
+        Section shadows = handles.section("Render.Shadows");
+        
+        assertSame(render, handles.section("Render"));
+        assertSame(render, shadows.parent());
+        assertNull(render.parent());
+        assertNotEquals(render.id(), shadows.id());
+        
+        for (int i = 0; i < 10; i++)
+        {
+            handles.startFrame();
+            try (Section r = render.start())
+            {
+                assertSame(render, r);
+                try (Section s = shadows.start())
+                {
+                    assertEquals("Render.Shadows", handles.currentSection());
+                }
+                // Starting by name finds the same section.
+                try (Section s = handles.startSection("Shadows"))
+                {
+                    assertSame(shadows, s);
+                }
+            }
+            handles.endFrame();
+        }
+        
+        List<SectionData> data = handles.getAverageData("Render");
+        assertEquals(2, data.size());
+        assertEquals("Render.Shadows", data.get(1).name);
+        
+        assertEquals(3, handles.getMaxData(null).size()); // Frame, Render and Unspecified
+    }
+    
+    @Test
+    void allocationFree()
+    {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        
+        // Messages that are logged allocate, so only the profiler is measured.
+        Level level = Logger.getLevel();
+        Logger.setLevel(Level.INFO);
+        try
+        {
+            Profiler allocation = Profiler.get("Allocation Profiler");
+            allocation.enable();
+            
+            Section update = allocation.section("Update");
+            Section render = allocation.section("Render");
+            Section draw   = allocation.section("Render.Draw");
+            
+            int frames   = 200;
+            int sections = 1_000;
+            
+            for (int pass = 0; pass < 4; pass++)
+            {
+                allocation.memoryTracking(pass >= 2);
+                
+                long bytes = 0L;
+                for (int frame = 0; frame < frames; frame++)
+                {
+                    allocation.startFrame();
+                    
+                    long start = bean.getCurrentThreadAllocatedBytes();
+                    for (int i = 0; i < sections; i++)
+                    {
+                        update.start().close();
+                        try (Section r = render.start())
+                        {
+                            draw.start().close();
+                            allocation.startSection("Named").close();
+                        }
+                    }
+                    bytes += bean.getCurrentThreadAllocatedBytes() - start;
+                    
+                    allocation.endFrame();
+                }
+                LOGGER.info("Profiler allocations, pass %s, memory tracking %s: %.3f bytes/section", pass, allocation.memoryTracking(), (double) bytes / (frames * sections * 4L));
+                
+                if (pass % 2 == 1) assertEquals(0L, bytes);
+            }
+        }
+        finally
+        {
+            Logger.setLevel(level);
+        }
+    }
+    
+    @Test
+    void histogram()
+    {
+        Random random = new Random(1337);
+        
+        int    count  = 100_000;
+        long[] values = new long[count];
+        
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < count; i++)
+        {
+            values[i] = (long) (Math.exp(random.nextDouble() * 20) * 100);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        
+        assertEquals(count, histogram.count());
+        for (double percentile : new double[] {0, 1, 10, 50, 90, 99, 99.9, 100})
+        {
+            long expected = values[Math.max((int) Math.ceil(percentile / 100 * count) - 1, 0)];
+            long actual   = histogram.valueAtPercentile(percentile);
+            assertEquals(expected, actual, expected * 0.01 + 1, "p" + percentile);
+        }
+        assertEquals(values[0], histogram.min(), values[0] * 0.01 + 1);
+        assertEquals(values[count - 1], histogram.max(), values[count - 1] * 0.01);
+        
+        histogram.clear();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.valueAtPercentile(50));
+    }
+    
+    @Test
+    void window() throws InterruptedException
+    {
+        Profiler windowed = Profiler.get("Window Profiler");
+        windowed.historySize(10);
+        windowed.enabled(true);
+        windowed.clear();
+        
+        for (int i = 0; i < 25; i++)
+        {
+            windowed.startFrame();
+            windowed.startSection("Section").close();
+            windowed.endFrame();
+        }
+        
+        List<SectionData> data = windowed.getPercentileData(null);
+        assertEquals(2, data.size());
+        assertEquals(10, ((SectionData.Percentile) data.get(0)).count);
+        assertEquals(10, ((SectionData.Percentile) data.get(1)).count);
+        LOGGER.info(windowed.getPercentileDataString(null));
+        
+        windowed.historyTime(0.05);
+        windowed.clear();
+        
+        windowed.startFrame();
+        windowed.startSection("Section").close();
+        windowed.endFrame();
+        assertEquals(1, ((SectionData.Percentile) windowed.getPercentileData(null).get(1)).count);
+        
+        Thread.sleep(100);
+        
+        data = windowed.getPercentileData(null);
+        assertEquals(1, data.size());
+        assertEquals(0, ((SectionData.Percentile) data.get(0)).count);
+        assertTrue(windowed.getMaxData(null).isEmpty());
+    }
+    
+    @Test
+    void trace() throws IOException, InterruptedException
+    {
+        Path file = Files.createDirectories(Path.of("out")).resolve("trace.json");
+        
+        Profiler traced = Profiler.get("Trace \"Profiler\"");
+        traced.enabled(true);
+        traced.concurrent(true);
+        traced.traceFile(file.toString());
+        assertEquals(file.toString(), traced.traceFile());
+        
+        int frames = 100;
+        for (int i = 0; i < frames; i++)
+        {
+            traced.startFrame();
+            try (Section update = traced.startSection("Update"))
+            {
+                traced.startSection("Physics").close();
+            }
+            if (i == 0)
+            {
+                Thread worker = new Thread(() -> traced.startSection("Work").close(), "Worker");
+                worker.start();
+                worker.join();
+            }
+            traced.endFrame();
+        }
+        traced.traceFile(null);
+        assertNull(traced.traceFile());
+        
+        String trace = Files.readString(file);
+        assertTrue(trace.startsWith("[\n{\"ph\":\"M\""));
+        assertTrue(trace.endsWith("\n]\n"));
+        
+        assertEquals(frames, count(trace, "\"name\":\"Trace \\\"Profiler\\\"\",\"tid\""));
+        assertEquals(frames, count(trace, "\"name\":\"Update\""));
+        assertEquals(frames, count(trace, "\"name\":\"Update.Physics\""));
+        assertEquals(1, count(trace, "\"name\":\"Work\""));
+        assertEquals(1, count(trace, "\"args\":{\"name\":\"Worker\"}"));
+        assertEquals(3 * frames + 1, count(trace, "\"ph\":\"X\""));
+        
+        Matcher matcher = Pattern.compile("\"ts\":(\\d+\\.\\d{3}),\"dur\":(\\d+\\.\\d{3})}").matcher(trace);
+        int     events  = 0;
+        while (matcher.find())
+        {
+            assertTrue(Double.parseDouble(matcher.group(2)) >= 0);
+            events++;
+        }
+        assertEquals(3 * frames + 1, events);
+        LOGGER.info("Trace of %s frames: %s bytes", frames, trace.length());
+    }
+    
+    @Test
+    void sampling()
+    {
+        Profiler sampled = Profiler.get("Sampling Profiler");
+        sampled.enabled(true);
+        sampled.samplingInterval(0.0005);
+        assertEquals(0.0005, sampled.samplingInterval(), 1e-9);
+        
+        for (int i = 0; i < 20; i++)
+        {
+            sampled.startFrame();
+            try (Section outer = sampled.startSection("Outer"))
+            {
+                try (Section heavy = sampled.startSection("Heavy"))
+                {
+                    spin(9_000_000L);
+                }
+                try (Section light = sampled.startSection("Light"))
+                {
+                    spin(3_000_000L);
+                }
+            }
+            sampled.endFrame();
+        }
+        sampled.samplingInterval(0);
+        assertEquals(0, sampled.samplingInterval());
+        
+        // Sections are not timed while sampling.
+        assertEquals(1, sampled.getAverageData(null).size());
+        
+        List<SectionData> data = sampled.getSampledData("Outer");
+        assertEquals("Outer", data.get(0).name);
+        assertEquals("Outer.Heavy", data.get(1).name);
+        assertEquals("Outer.Light", data.get(2).name);
+        assertTrue(((SectionData.Percent) data.get(1)).percentage > ((SectionData.Percent) data.get(2)).percentage);
+        
+        String thread = Thread.currentThread().getName();
+        String folded = sampled.getFoldedStacks();
+        assertTrue(folded.contains(thread + ";Sampling Profiler;Outer;Heavy "));
+        assertTrue(folded.contains(thread + ";Sampling Profiler;Outer;Light "));
+        
+        LOGGER.info(sampled.getSampledDataString(null));
+        LOGGER.info(folded);
+    }
+    
+    private static void spin(long nanos)
+    {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) Thread.onSpinWait();
+    }
+    
+    @Test
+    void tree()
+    {
+        Profiler tree = Profiler.get("Tree Profiler");
+        tree.enabled(true);
+        
+        for (int i = 0; i < 10; i++)
+        {
+            tree.startFrame();
+            try (Section update = tree.startSection("Update"))
+            {
+                tree.startSection("Physics").close();
+                tree.startSection("Input, \"Keys\"").close();
+            }
+            tree.startSection("Render").close();
+            tree.endFrame();
+        }
+        
+        SectionNode node = tree.getAvgDataTree(null);
+        assertNotNull(node);
+        assertEquals("Tree Profiler", node.name());
+        assertEquals(2, node.children().size());
+        
+        SectionNode update = node.children().stream().filter(n -> n.name().equals("Update")).findFirst().orElseThrow();
+        assertEquals(2, update.children().size());
+        assertTrue(update.children().stream().anyMatch(n -> n.name().equals("Update.Physics")));
+        
+        List<SectionData> data = tree.getAverageData("Update");
+        assertEquals(3, data.size());
+        assertEquals("Update", data.get(0).name);
+        
+        assertNull(tree.getAvgDataTree("Missing"));
+        assertTrue(tree.getAverageData("Missing").isEmpty());
+        
+        String json = node.toJson();
+        assertTrue(json.startsWith("{\"name\":\"Tree Profiler\",\"avgTime\":"));
+        assertTrue(json.contains("{\"name\":\"Update.Input, \\\"Keys\\\"\",\"avgTime\":"));
+        assertEquals(5, count(json, "\"children\":["));
+        
+        String   csv  = tree.getMaxDataTree(null).toCsv();
+        String[] rows = csv.split("\n");
+        assertEquals("name,depth,time,percentage,globalPercentage", rows[0]);
+        assertTrue(rows[1].startsWith("Tree Profiler,0,"));
+        assertTrue(csv.contains("\n\"Update.Input, \"\"Keys\"\"\",2,"));
+        
+        LOGGER.info(json);
+        LOGGER.info(csv);
+        LOGGER.info(tree.getAvgDataString(null));
+    }
+    
+    @Test
+    @Tag("benchmark")
+    void treeReport()
+    {
+        Profiler report = Profiler.get("Report Profiler");
+        report.enabled(true);
+        
+        int       width    = 40;
+        Section[] sections = new Section[width * width];
+        for (int i = 0; i < width; i++)
+        {
+            for (int j = 0; j < width; j++) sections[i * width + j] = report.section("Outer" + i + ".Inner" + j);
+        }
+        for (int frame = 0; frame < 10; frame++)
+        {
+            report.startFrame();
+            for (int i = 0; i < width; i++)
+            {
+                try (Section outer = report.startSection("Outer" + i))
+                {
+                    for (int j = 0; j < width; j++) sections[i * width + j].start().close();
+                }
+            }
+            report.endFrame();
+        }
+        
+        for (int pass = 0; pass < 3; pass++)
+        {
+            long start  = System.nanoTime();
+            int  length = report.getAvgDataString(null).length() + report.getMaxDataString(null).length();
+            LOGGER.info("Report of %s sections, pass %s: %.3f ms (%s chars)", sections.length + width, pass, (System.nanoTime() - start) / 1_000_000D, length);
+        }
+    }
+    
+    @Test
+    void memoryTracking()
+    {
+        Profiler memory = Profiler.get("Memory Profiler");
+        memory.enable();
+        memory.memoryTracking(true);
+        assertTrue(memory.memoryTracking());
+        
+        Object[] garbage = new Object[1];
+        for (int frame = 0; frame < 5; frame++)
+        {
+            memory.startFrame();
+            try (Section allocate = memory.startSection("Allocate"))
+            {
+                garbage[0] = new byte[1_000_000];
+            }
+            try (Section collect = memory.startSection("Collect"))
+            {
+                System.gc();
+                spin(20_000_000L); // Give the collector time to report the pause.
+            }
+            memory.startSection("Nothing").close();
+            memory.endFrame();
+        }
+        
+        String string = memory.getAvgDataString(null);
+        LOGGER.info(string);
+        assertTrue(string.contains("Alloc:"));
+        
+        List<SectionData> data = memory.getAverageData(null);
+        assertEquals(4, data.size());
+        for (SectionData point : data)
+        {
+            assertTrue(point.allocatedBytes() >= 0);
+            assertTrue(point.gcTime() >= 0);
+            if (point.name.equals("Allocate")) assertTrue(point.allocatedBytes() >= 1_000_000L);
+            if (point.name.equals("Nothing")) assertTrue(point.allocatedBytes() < 1_000L);
+        }
+        assertTrue(data.get(0).allocatedBytes() >= 1_000_000L);
+        
+        SectionNode tree = memory.getPercentileDataTree(null);
+        assertNotNull(tree);
+        assertTrue(tree.toCsv().startsWith("name,depth,count,avgTime,minTime,maxTime,p50Time,p90Time,p99Time,p999Time,allocatedBytes,gcTime\n"));
+        
+        memory.memoryTracking(false);
+        memory.clear();
+        memory.startFrame();
+        memory.startSection("Allocate").close();
+        memory.endFrame();
+        for (SectionData point : memory.getAverageData(null)) assertEquals(-1L, point.allocatedBytes());
+    }
+    
+    private static int count(String string, String value)
+    {
+        int count = 0;
+        for (int i = string.indexOf(value); i >= 0; i = string.indexOf(value, i + 1)) count++;
+        return count;
+    }
 }
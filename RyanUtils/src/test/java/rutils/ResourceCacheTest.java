@@ -0,0 +1,133 @@
+package rutils;
+
+import org.junit.jupiter.api.Test;
+import rutils.profiler.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceCacheTest
+{
+    static String file(String directory, String name, int size, int seed) throws IOException
+    {
+        Path   file = Files.createDirectories(Path.of("out", "resourceCache", directory)).resolve(name);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (seed + i);
+        Files.write(file, data);
+        return file.toString();
+    }
+    
+    @Test
+    void get() throws IOException
+    {
+        String        file  = file("get", "file.bin", 1000, 1);
+        ResourceCache cache = new ResourceCache("ResourceCacheTest.get", 1 << 20);
+        
+        long hits   = Metrics.counter("ResourceCacheTest.get.hits").count();
+        long misses = Metrics.counter("ResourceCacheTest.get.misses").count();
+        
+        ByteBuffer first = cache.get(file);
+        assertNotNull(first);
+        assertEquals(1001, first.remaining());
+        assertEquals((byte) 1, first.get(0));
+        assertEquals(0, first.get(1000));
+        
+        ByteBuffer second = cache.get(file);
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        first.position(10);
+        assertEquals(0, second.position());
+        
+        assertEquals(1, cache.size());
+        assertEquals(1001, cache.bytes());
+        assertEquals(hits + 1, Metrics.counter("ResourceCacheTest.get.hits").count());
+        assertEquals(misses + 1, Metrics.counter("ResourceCacheTest.get.misses").count());
+        
+        assertNull(cache.get("path/to/non/existent/file.txt"));
+        assertEquals(1, cache.size());
+        
+        cache.invalidate(file);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+    
+    @Test
+    void changed() throws IOException
+    {
+        String        file  = file("changed", "file.bin", 1000, 1);
+        ResourceCache cache = new ResourceCache("ResourceCacheTest.changed", 1 << 20);
+        
+        assertEquals((byte) 1, cache.get(file).get(0));
+        
+        file("changed", "file.bin", 1000, 2);
+        Files.setLastModifiedTime(Path.of(file), FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertEquals((byte) 2, cache.get(file).get(0));
+        
+        file("changed", "file.bin", 500, 3);
+        ByteBuffer buffer = cache.get(file);
+        assertEquals((byte) 3, buffer.get(0));
+        assertEquals(501, buffer.remaining());
+        assertEquals(501, cache.bytes());
+    }
+    
+    @Test
+    void evict() throws IOException
+    {
+        ResourceCache cache = new ResourceCache("ResourceCacheTest.evict", 3000);
+        
+        String a = file("evict", "a.bin", 999, 0);
+        String b = file("evict", "b.bin", 999, 0);
+        String c = file("evict", "c.bin", 999, 0);
+        String d = file("evict", "d.bin", 999, 0);
+        
+        long evictions = Metrics.counter("ResourceCacheTest.evict.evictions").count();
+        
+        cache.get(a);
+        cache.get(b);
+        cache.get(c);
+        assertEquals(3, cache.size());
+        
+        // a is used again, so b is the least recently used when d is added.
+        cache.get(a);
+        cache.get(d);
+        assertEquals(3, cache.size());
+        assertEquals(3000, cache.bytes());
+        assertEquals(evictions + 1, Metrics.counter("ResourceCacheTest.evict.evictions").count());
+        
+        long misses = Metrics.counter("ResourceCacheTest.evict.misses").count();
+        cache.get(a);
+        cache.get(c);
+        cache.get(d);
+        assertEquals(misses, Metrics.counter("ResourceCacheTest.evict.misses").count());
+        cache.get(b);
+        assertEquals(misses + 1, Metrics.counter("ResourceCacheTest.evict.misses").count());
+        
+        String large = file("evict", "large.bin", 5000, 0);
+        assertEquals(5001, cache.get(large).remaining());
+        assertEquals(3, cache.size());
+    }
+    
+    @Test
+    void watch() throws IOException, InterruptedException
+    {
+        String file = file("watch", "file.bin", 1000, 1);
+        try (ResourceCache cache = new ResourceCache("ResourceCacheTest.watch", 1 << 20))
+        {
+            assertTrue(cache.watch());
+            assertTrue(cache.isWatching());
+            
+            assertEquals((byte) 1, cache.get(file).get(0));
+            assertEquals(1, cache.size());
+            
+            file("watch", "file.bin", 1000, 2);
+            for (int i = 0; i < 500 && cache.size() > 0; i++) Thread.sleep(10);
+            assertEquals(0, cache.size());
+            assertEquals((byte) 2, cache.get(file).get(0));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package rutils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import rutils.profiler.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceLoaderTest
+{
+    static List<String> files = new ArrayList<>();
+    
+    @BeforeAll
+    static void beforeAll() throws IOException
+    {
+        Path directory = Files.createDirectories(Path.of("out", "resourceLoader"));
+        for (int i = 0; i < 64; i++)
+        {
+            Path   file = directory.resolve("file" + i + ".bin");
+            byte[] data = new byte[64 * 1024 + i];
+            for (int j = 0; j < data.length; j++) data[j] = (byte) (i + j);
+            Files.write(file, data);
+            files.add(file.toString());
+        }
+    }
+    
+    @Test
+    void load()
+    {
+        try (ResourceLoader loader = new ResourceLoader())
+        {
+            ByteBuffer buffer = loader.load(files.get(3)).join();
+            assertEquals(64 * 1024 + 3 + 1, buffer.remaining());
+            for (int j = 0; j < 64 * 1024 + 3; j++) assertEquals((byte) (3 + j), buffer.get(j));
+            assertEquals(0, buffer.get(64 * 1024 + 3));
+            
+            CompletableFuture<ByteBuffer> missing = loader.load("path/to/non/existent/file.txt");
+            CompletionException exception = assertThrows(CompletionException.class, missing::join);
+            assertTrue(exception.getCause() instanceof UncheckedIOException);
+            
+            assertEquals(0, loader.pending());
+        }
+    }
+    
+    @Test
+    void deduplicate()
+    {
+        try (ResourceLoader loader = new ResourceLoader(1))
+        {
+            long deduplicated = Metrics.counter("ResourceLoader.deduplicated").count();
+            
+            // The single thread is kept busy so the second and third loads join the first.
+            CompletableFuture<ByteBuffer> busy = loader.load(files.get(0));
+            CompletableFuture<ByteBuffer> a    = loader.load(files.get(1));
+            CompletableFuture<ByteBuffer> b    = loader.load(files.get(1));
+            CompletableFuture<ByteBuffer> c    = loader.load(files.get(1));
+            busy.join();
+            
+            ByteBuffer bufferA = a.join();
+            ByteBuffer bufferB = b.join();
+            ByteBuffer bufferC = c.join();
+            assertNotSame(bufferA, bufferB);
+            assertEquals(bufferA, bufferB);
+            assertEquals(bufferA, bufferC);
+            
+            bufferA.position(10);
+            assertEquals(0, bufferB.position());
+            
+            assertTrue(Metrics.counter("ResourceLoader.deduplicated").count() >= deduplicated + 2);
+            assertEquals(0, loader.pending());
+        }
+    }
+    
+    @Test
+    void prefetch()
+    {
+        try (ResourceLoader loader = new ResourceLoader())
+        {
+            List<String> prefetch = files.subList(0, 16);
+            loader.prefetch(prefetch).join();
+            assertEquals(16, loader.pending());
+            
+            for (String file : prefetch)
+            {
+                CompletableFuture<ByteBuffer> future = loader.load(file);
+                assertTrue(future.isDone());
+                assertEquals(Path.of(file).toFile().length() + 1, future.join().remaining());
+            }
+            assertEquals(0, loader.pending());
+            
+            Map<String, ByteBuffer> all = loader.loadAll(files).join();
+            assertEquals(files, new ArrayList<>(all.keySet()));
+            for (int i = 0; i < files.size(); i++) assertEquals((byte) i, all.get(files.get(i)).get(0));
+        }
+    }
+}
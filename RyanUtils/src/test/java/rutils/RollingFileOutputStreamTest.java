@@ -0,0 +1,130 @@
+package rutils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingFileOutputStreamTest
+{
+    private static Path directory(String name) throws IOException
+    {
+        Path directory = Path.of("out", name);
+        if (Files.exists(directory))
+        {
+            try (Stream<Path> files = Files.walk(directory))
+            {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+            }
+        }
+        return Files.createDirectories(directory);
+    }
+    
+    private static List<Path> archives(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.list(directory))
+        {
+            return files.filter(file -> !file.getFileName().toString().equals("latest.log")).sorted().toList();
+        }
+    }
+    
+    private static String read(Path file) throws IOException
+    {
+        try (InputStream in = file.toString().endsWith(".gz") ? new GZIPInputStream(Files.newInputStream(file)) : Files.newInputStream(file))
+        {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+    
+    @Test
+    void rollBySize() throws IOException
+    {
+        Path directory = directory("rollBySize");
+        Path file      = directory.resolve("latest.log");
+        
+        RollingFileOutputStream stream = new RollingFileOutputStream(file, 1000, 0, 100, false);
+        
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+        {
+            String line = String.format("Line %04d with some padding to make it longer%n", i);
+            expected.append(line);
+            stream.write(line.getBytes(StandardCharsets.UTF_8));
+        }
+        stream.close();
+        
+        List<Path> archives = archives(directory);
+        assertTrue(archives.size() >= 4);
+        
+        StringBuilder actual = new StringBuilder();
+        for (Path archive : archives)
+        {
+            assertTrue(Files.size(archive) <= 1000);
+            actual.append(read(archive));
+        }
+        actual.append(read(file));
+        
+        // Nothing is lost or padded with zeros.
+        assertEquals(expected.toString(), actual.toString());
+    }
+    
+    @Test
+    void rollByAge() throws IOException, InterruptedException
+    {
+        Path directory = directory("rollByAge");
+        Path file      = directory.resolve("latest.log");
+        
+        RollingFileOutputStream stream = new RollingFileOutputStream(file, 0, 0.05, 100, false);
+        
+        stream.write("First\n".getBytes(StandardCharsets.UTF_8));
+        Thread.sleep(100);
+        stream.write("Second\n".getBytes(StandardCharsets.UTF_8));
+        stream.close();
+        
+        List<Path> archives = archives(directory);
+        assertEquals(1, archives.size());
+        assertEquals("First\n", read(archives.get(0)));
+        assertEquals("Second\n", read(file));
+    }
+    
+    @Test
+    void compressAndPrune() throws IOException
+    {
+        Path directory = directory("compressAndPrune");
+        Path file      = directory.resolve("latest.log");
+        
+        Files.writeString(file, "Previous Run\n");
+        
+        RollingFileOutputStream stream = new RollingFileOutputStream(file, 0, 0, 3, true);
+        
+        List<String> expected = new ArrayList<>();
+        expected.add("Previous Run\n");
+        for (int i = 0; i < 5; i++)
+        {
+            String text = "Segment " + i + '\n';
+            expected.add(text);
+            stream.write(text.getBytes(StandardCharsets.UTF_8));
+            stream.roll();
+        }
+        stream.close();
+        
+        List<Path> archives = archives(directory);
+        assertEquals(3, archives.size());
+        for (int i = 0; i < 3; i++)
+        {
+            assertTrue(archives.get(i).toString().endsWith(".log.gz"));
+            assertEquals(expected.get(expected.size() - 3 + i), read(archives.get(i)));
+        }
+        assertEquals(0, Files.size(file));
+    }
+}
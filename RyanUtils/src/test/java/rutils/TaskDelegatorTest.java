@@ -2,8 +2,12 @@ package rutils;
 
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class TaskDelegatorTest
 {
@@ -91,4 +95,183 @@ class TaskDelegatorTest
         
         other.join();
     }
+    
+    @Test
+    void submit() throws InterruptedException, ExecutionException
+    {
+        TaskDelegator taskDelegator = new TaskDelegator();
+        taskDelegator.setThread();
+        
+        CompletableFuture<Integer> value = taskDelegator.submit(() -> 42);
+        assertEquals(42, (int) value.get());
+        
+        CompletableFuture<Integer> failed = taskDelegator.submit(() -> {
+            throw new IllegalStateException("Submit Exception");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        
+        TaskDelegator other = new TaskDelegator();
+        
+        CompletableFuture<Void> run = other.submit(() -> LOGGER.info("Running submitted Task"));
+        assertFalse(run.isDone());
+        
+        Thread thread = new Thread(() -> {
+            other.setThread();
+            other.runTasks();
+        });
+        thread.start();
+        thread.join();
+        
+        assertTrue(run.isDone());
+    }
+    
+    @Test
+    void waitReturnTaskConcurrent() throws InterruptedException
+    {
+        final int callers = 256;
+        
+        TaskDelegator taskDelegator = new TaskDelegator();
+        
+        int[]         results = new int[callers];
+        AtomicBoolean running = new AtomicBoolean(true);
+        
+        Thread owner = new Thread(() -> {
+            taskDelegator.setThread();
+            while (running.get()) taskDelegator.runTasks();
+            taskDelegator.runTasks();
+        });
+        owner.start();
+        
+        Thread[] threads = new Thread[callers];
+        for (int i = 0; i < callers; i++)
+        {
+            final int caller = i;
+            threads[i] = new Thread(() -> {
+                // Each caller must get back its own value.
+                Integer value = taskDelegator.waitReturnTask(() -> caller * 31);
+                results[caller] = value != null ? value : -1;
+                
+                taskDelegator.waitRunTask(() -> results[caller]++);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        
+        running.set(false);
+        owner.join();
+        
+        for (int i = 0; i < callers; i++) assertEquals(i * 31 + 1, results[i]);
+    }
+    
+    @Test
+    void runTasksBudget() throws InterruptedException
+    {
+        TaskDelegator taskDelegator = new TaskDelegator();
+        
+        int[] counter = new int[1];
+        
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < 100; i++) taskDelegator.runTask(() -> counter[0]++);
+        });
+        other.start();
+        other.join();
+        
+        taskDelegator.setThread();
+        taskDelegator.maxTasks(30);
+        
+        assertEquals(100, taskDelegator.pendingTasks());
+        
+        taskDelegator.runTasks();
+        assertEquals(30, counter[0]);
+        assertEquals(70, taskDelegator.deferredTasks());
+        assertEquals(1, taskDelegator.deferredCalls());
+        
+        taskDelegator.runTasks();
+        taskDelegator.runTasks();
+        assertEquals(90, counter[0]);
+        
+        taskDelegator.runTasks();
+        assertEquals(100, counter[0]);
+        assertEquals(0, taskDelegator.pendingTasks());
+        assertEquals(0, taskDelegator.deferredTasks());
+        assertEquals(3, taskDelegator.deferredCalls());
+        
+        taskDelegator.maxTasks(0);
+        taskDelegator.maxTime(0.005);
+        assertEquals(0.005, taskDelegator.maxTime(), 0.000001);
+        
+        other = new Thread(() -> {
+            for (int i = 0; i < 10; i++)
+            {
+                taskDelegator.runTask(() -> {
+                    try
+                    {
+                        Thread.sleep(10);
+                    }
+                    catch (InterruptedException ignored) { }
+                });
+            }
+            taskDelegator.submit(() -> counter[0]++);
+        });
+        other.start();
+        other.join();
+        
+        // Only the first task fits in the time budget.
+        taskDelegator.runTasks();
+        assertEquals(10, taskDelegator.deferredTasks());
+        
+        // The blocking lane can be drained ahead of the run lane.
+        taskDelegator.priority(TaskDelegator.Lane.WAIT);
+        taskDelegator.runTasks();
+        assertEquals(101, counter[0]);
+        
+        taskDelegator.maxTime(0);
+        taskDelegator.runTasks();
+        assertEquals(0, taskDelegator.pendingTasks());
+    }
+    
+    @Test
+    void runTaskContention() throws InterruptedException
+    {
+        final int producers = 16;
+        final int tasks     = 50_000;
+        
+        TaskDelegator taskDelegator = new TaskDelegator();
+        taskDelegator.setThread();
+        
+        int[] counts = new int[producers];
+        
+        CountDownLatch start   = new CountDownLatch(1);
+        AtomicBoolean  ordered = new AtomicBoolean(true);
+        Thread[]       threads = new Thread[producers];
+        for (int i = 0; i < producers; i++)
+        {
+            final int producer = i;
+            threads[i] = new Thread(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                for (int j = 0; j < tasks; j++)
+                {
+                    final int sequence = j;
+                    taskDelegator.runTask(() -> {
+                        if (counts[producer]++ != sequence) ordered.set(false);
+                    });
+                }
+            });
+            threads[i].start();
+        }
+        
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        taskDelegator.runTasks();
+        
+        assertTrue(ordered.get());
+        for (int count : counts) assertEquals(tasks, count);
+    }
 }
@@ -0,0 +1,101 @@
+package rutils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MPSCQueueTest
+{
+    static final class Element extends MPSCQueue.Node
+    {
+        final int producer, sequence;
+        
+        Element(int producer, int sequence)
+        {
+            this.producer = producer;
+            this.sequence = sequence;
+        }
+    }
+    
+    @Test
+    void offerPoll()
+    {
+        MPSCQueue<Element> queue = new MPSCQueue<>();
+        
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        
+        Element e0 = new Element(0, 0);
+        Element e1 = new Element(0, 1);
+        
+        queue.offer(e0);
+        assertFalse(queue.isEmpty());
+        assertSame(e0, queue.peek());
+        
+        queue.offer(e1);
+        assertSame(e0, queue.poll());
+        assertSame(e1, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        
+        // Elements can be reused once they have been polled.
+        queue.offer(e1);
+        queue.offer(e0);
+        assertSame(e1, queue.poll());
+        assertSame(e0, queue.poll());
+        assertNull(queue.poll());
+    }
+    
+    @Test
+    void stress() throws InterruptedException
+    {
+        final int producers = 32;
+        final int elements  = 100_000;
+        
+        MPSCQueue<Element> queue = new MPSCQueue<>();
+        
+        CountDownLatch start   = new CountDownLatch(1);
+        Thread[]       threads = new Thread[producers];
+        for (int i = 0; i < producers; i++)
+        {
+            final int producer = i;
+            threads[i] = new Thread(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                for (int j = 0; j < elements; j++) queue.offer(new Element(producer, j));
+            }, "Producer-" + i);
+            threads[i].start();
+        }
+        
+        int[] expected = new int[producers];
+        int   received = 0;
+        
+        start.countDown();
+        while (received < producers * elements)
+        {
+            Element element = queue.poll();
+            if (element == null)
+            {
+                Thread.onSpinWait();
+                continue;
+            }
+            // Every element is seen exactly once and in order per producer.
+            assertEquals(expected[element.producer]++, element.sequence);
+            received++;
+        }
+        
+        for (Thread thread : threads) thread.join();
+        
+        assertNull(queue.poll());
+        for (int count : expected) assertEquals(elements, count);
+    }
+}
@@ -0,0 +1,90 @@
+package rutils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest
+{
+    @Test
+    void offerPoll()
+    {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        
+        assertEquals(4, buffer.capacity());
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+        
+        for (int i = 0; i < 4; i++) assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+        
+        assertEquals(0, (int) buffer.poll());
+        assertTrue(buffer.offer(4));
+        
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, buffer.drain(drained::add, 2));
+        assertEquals(List.of(1, 2), drained);
+        assertEquals(2, buffer.drain(drained::add, 10));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertTrue(buffer.isEmpty());
+    }
+    
+    @Test
+    void stress() throws InterruptedException
+    {
+        final int producers = 8;
+        final int elements  = 50_000;
+        
+        RingBuffer<long[]> buffer = new RingBuffer<>(1024);
+        
+        CountDownLatch start   = new CountDownLatch(1);
+        Thread[]       threads = new Thread[producers];
+        for (int i = 0; i < producers; i++)
+        {
+            final int producer = i;
+            threads[i] = new Thread(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                for (int j = 0; j < elements; j++)
+                {
+                    long[] element = {producer, j};
+                    while (!buffer.offer(element)) Thread.yield();
+                }
+            }, "Producer-" + i);
+            threads[i].start();
+        }
+        
+        int[] expected = new int[producers];
+        int   received = 0;
+        
+        start.countDown();
+        while (received < producers * elements)
+        {
+            long[] element = buffer.poll();
+            if (element == null)
+            {
+                Thread.onSpinWait();
+                continue;
+            }
+            // Every element is seen exactly once and in order per producer.
+            assertEquals(expected[(int) element[0]]++, element[1]);
+            received++;
+        }
+        
+        for (Thread thread : threads) thread.join();
+        
+        assertNull(buffer.poll());
+        for (int count : expected) assertEquals(elements, count);
+    }
+}
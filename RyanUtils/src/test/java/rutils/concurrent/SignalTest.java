@@ -0,0 +1,69 @@
+package rutils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignalTest
+{
+    @Test
+    void signalBeforeAwait()
+    {
+        Signal signal = new Signal();
+        
+        assertFalse(signal.clear());
+        
+        signal.signal();
+        signal.signal();
+        assertTrue(signal.await());
+        assertFalse(signal.await(1_000_000L));
+    }
+    
+    @Test
+    void timeout()
+    {
+        Signal signal = new Signal();
+        
+        // A stray unpark wakes the first park early, which must not end the wait.
+        LockSupport.unpark(Thread.currentThread());
+        long start = System.nanoTime();
+        assertFalse(signal.await(20_000_000L));
+        assertTrue(System.nanoTime() - start >= 20_000_000L);
+        
+        Thread.currentThread().interrupt();
+        assertFalse(signal.await(1_000_000_000L));
+        assertTrue(Thread.interrupted());
+    }
+    
+    @Test
+    void pingPong() throws InterruptedException
+    {
+        int rounds = 100_000;
+        
+        Signal ping = new Signal();
+        Signal pong = new Signal();
+        
+        AtomicInteger counter = new AtomicInteger();
+        
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < rounds; i++)
+            {
+                while (!ping.await()) Thread.onSpinWait();
+                counter.incrementAndGet();
+                pong.signal();
+            }
+        });
+        thread.start();
+        
+        for (int i = 0; i < rounds; i++)
+        {
+            ping.signal();
+            while (!pong.await()) Thread.onSpinWait();
+            assertEquals(i + 1, counter.get());
+        }
+        thread.join();
+    }
+}
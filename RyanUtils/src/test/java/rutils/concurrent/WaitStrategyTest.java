@@ -0,0 +1,122 @@
+package rutils.concurrent;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import rutils.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitStrategyTest
+{
+    private static final Logger LOGGER = new Logger();
+    
+    private static final Map<String, WaitStrategy> STRATEGIES = Map.of(
+            "BusySpin", WaitStrategy.BUSY_SPIN,
+            "Yielding", WaitStrategy.YIELDING,
+            "Sleeping", WaitStrategy.SLEEPING,
+            "Blocking", WaitStrategy.BLOCKING,
+            "PhasedBackoff", WaitStrategy.phasedBackoff(10_000L, 100_000L, WaitStrategy.BLOCKING)
+    );
+    
+    @Test
+    void await()
+    {
+        STRATEGIES.forEach((name, strategy) -> {
+            Signal signal = new Signal();
+            
+            signal.signal();
+            assertTrue(strategy.await(signal, 1_000_000L), name);
+            
+            long start = System.nanoTime();
+            assertFalse(strategy.await(signal, 1_000_000L), name);
+            assertTrue(System.nanoTime() - start >= 1_000_000L, name);
+        });
+    }
+    
+    @Test
+    void wakeup()
+    {
+        STRATEGIES.forEach((name, strategy) -> {
+            Signal signal = new Signal();
+            
+            AtomicBoolean woken  = new AtomicBoolean();
+            Thread        thread = new Thread(() -> woken.set(strategy.await(signal)));
+            thread.start();
+            
+            signal.signal();
+            try
+            {
+                thread.join(1000);
+            }
+            catch (InterruptedException ignored) { }
+            assertFalse(thread.isAlive(), name);
+            assertTrue(woken.get(), name);
+        });
+    }
+    
+    /**
+     * Measures the time between a producer raising the signal and the worker
+     * waking, and the CPU time the worker uses while events are spaced out.
+     */
+    @Test
+    @Tag("benchmark")
+    void latency() throws InterruptedException
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        
+        int  events  = 500;
+        long spacing = 50_000L;
+        
+        for (String name : new String[] {"BusySpin", "Yielding", "Sleeping", "Blocking", "PhasedBackoff"})
+        {
+            WaitStrategy strategy = STRATEGIES.get(name);
+            
+            Signal     signal   = new Signal();
+            AtomicLong posted   = new AtomicLong();
+            AtomicLong received = new AtomicLong();
+            AtomicLong cpuTime  = new AtomicLong();
+            
+            long[] latencies = new long[events];
+            
+            Thread thread = new Thread(() -> {
+                long cpuStart = bean.getCurrentThreadCpuTime();
+                for (int i = 0; i < events; i++)
+                {
+                    while (!strategy.await(signal)) Thread.onSpinWait();
+                    latencies[i] = System.nanoTime() - posted.get();
+                    received.incrementAndGet();
+                }
+                cpuTime.set(bean.getCurrentThreadCpuTime() - cpuStart);
+            });
+            thread.start();
+            
+            long start = System.nanoTime();
+            for (int i = 0; i < events; i++)
+            {
+                long next = System.nanoTime() + spacing;
+                while (System.nanoTime() < next) Thread.onSpinWait();
+                
+                posted.set(System.nanoTime());
+                signal.signal();
+                while (received.get() <= i) Thread.onSpinWait();
+            }
+            thread.join();
+            long wall = System.nanoTime() - start;
+            
+            Arrays.sort(latencies);
+            WaitStrategyTest.LOGGER.info("%-13s p50=%6dns p99=%8dns max=%9dns worker cpu=%5.1f%%",
+                                         name,
+                                         latencies[events / 2],
+                                         latencies[events * 99 / 100],
+                                         latencies[events - 1],
+                                         100.0 * cpuTime.get() / wall);
+        }
+    }
+}